@@ -0,0 +1,153 @@
+package com.peras.campuswal;
+
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.CancellationSignal;
+
+import com.peras.campuswal.core.SqlDatabase;
+import com.peras.campuswal.core.StorageException;
+
+/**
+ * Runs storage-core queries on the app's SQLiteDatabase. Queries honour the
+ * calling task's CancellationSignal, so a superseded read still stops early.
+ */
+final class AndroidSqlDatabase implements SqlDatabase {
+
+    private final SQLiteDatabase db;
+    private final CancellationSignal signal;
+
+    AndroidSqlDatabase(SQLiteDatabase db) {
+        this(db, null);
+    }
+
+    AndroidSqlDatabase(SQLiteDatabase db, CancellationSignal signal) {
+        this.db = db;
+        this.signal = signal;
+    }
+
+    @Override
+    public void execute(String sql, Object... args) {
+        if (args == null || args.length == 0) {
+            db.execSQL(sql);
+        } else {
+            db.execSQL(sql, args);
+        }
+    }
+
+    @Override
+    public <T> T query(String sql, Object[] args, RowReader<T> reader) {
+        String[] selectionArgs = null;
+        if (args != null && args.length > 0) {
+            selectionArgs = new String[args.length];
+            for (int i = 0; i < args.length; i++) {
+                selectionArgs[i] = args[i] == null ? null : String.valueOf(args[i]);
+            }
+        }
+        Cursor cursor = db.rawQuery(sql, selectionArgs, signal);
+        try {
+            return reader.read(new CursorRows(cursor));
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Override
+    public Statement compile(String sql) {
+        SQLiteStatement statement = db.compileStatement(sql);
+        return new Statement() {
+            @Override
+            public void bind(int index, Object value) {
+                if (value == null) {
+                    statement.bindNull(index);
+                } else if (value instanceof Double || value instanceof Float) {
+                    statement.bindDouble(index, ((Number) value).doubleValue());
+                } else if (value instanceof Number) {
+                    statement.bindLong(index, ((Number) value).longValue());
+                } else {
+                    statement.bindString(index, value.toString());
+                }
+            }
+
+            @Override
+            public long executeInsert() {
+                try {
+                    return statement.executeInsert();
+                } catch (SQLException e) {
+                    // Same type JdbcSqlDatabase throws, so core code can skip a bad row either way
+                    throw new StorageException(e.getMessage(), e);
+                }
+            }
+
+            @Override
+            public void clearBindings() {
+                statement.clearBindings();
+            }
+
+            @Override
+            public void close() {
+                statement.close();
+            }
+        };
+    }
+
+    @Override
+    public void inTransaction(Runnable work) {
+        db.beginTransaction();
+        try {
+            work.run();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    @Override
+    public void inSavepoint(Runnable work) {
+        db.execSQL("SAVEPOINT work");
+        try {
+            work.run();
+        } catch (RuntimeException e) {
+            // Before API 28 SQLiteDatabase takes any statement starting with ROLLBACK for the end
+            // of its own transaction; the leading ';' is the platform's own way around that
+            db.execSQL(";ROLLBACK TO work");
+            throw e;
+        } finally {
+            db.execSQL("RELEASE work");
+        }
+    }
+
+    static final class CursorRows implements Rows {
+        private final Cursor cursor;
+
+        CursorRows(Cursor cursor) {
+            this.cursor = cursor;
+        }
+
+        @Override
+        public boolean next() {
+            return cursor.moveToNext();
+        }
+
+        @Override
+        public boolean isNull(int column) {
+            return cursor.isNull(column);
+        }
+
+        @Override
+        public long getLong(int column) {
+            return cursor.getLong(column);
+        }
+
+        @Override
+        public double getDouble(int column) {
+            return cursor.getDouble(column);
+        }
+
+        @Override
+        public String getString(int column) {
+            return cursor.getString(column);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.peras.campuswal;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.CancellationSignal;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.peras.campuswal.core.ItemDictionary;
+import com.peras.campuswal.core.RowJson;
+
+/**
+ * Reads the change_log that triggers keep for expenses and todos. Callers
+ * remember the version from their last full load or sync and ask only for
+ * rows touched after it; the log holds one entry per row, so a sync costs
+ * the number of changed rows rather than the size of the table.
+ */
+final class ChangeLog {
+
+    private ChangeLog() {
+    }
+
+    /** Newest version handed out so far, or 0 before the first change. */
+    static long currentVersion(SQLiteDatabase db) {
+        // sqlite_sequence rather than MAX(version): it still counts entries the triggers replaced
+        Cursor cursor = db.rawQuery("SELECT seq FROM sqlite_sequence WHERE name = ?",
+            new String[]{DatabaseHelper.TABLE_CHANGE_LOG});
+        long version = cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        cursor.close();
+        return version;
+    }
+
+    static RowJson.Field[] fieldsFor(String table) {
+        if (DatabaseHelper.TABLE_EXPENSES.equals(table)) {
+            return RowJson.EXPENSE;
+        }
+        if (DatabaseHelper.TABLE_TODOS.equals(table)) {
+            return RowJson.TODO;
+        }
+        throw new IllegalArgumentException("Unknown table: " + table);
+    }
+
+    /**
+     * Rows of table inserted or updated after since, plus ids deleted after it.
+     * The returned version is what the caller passes next time; when hasMore
+     * is set it stops at the last change returned so the rest follow in order.
+     */
+    static JSObject changesSince(SQLiteDatabase db, String table, long since, int limit,
+                                 boolean jsonFormat, CancellationSignal signal) {
+        RowJson.Field[] fields = fieldsFor(table);
+
+        // Pin the upper bound first so writes landing mid-query are left for the next sync
+        long upTo = currentVersion(db);
+        if (since > upTo) {
+            // A version this database never issued (restored or reinstalled): tell the caller to reload
+            JSObject reset = new JSObject();
+            reset.put("reset", true);
+            reset.put("version", upTo);
+            return reset;
+        }
+
+        Cursor cursor = db.rawQuery(
+            "SELECT c." + DatabaseHelper.COLUMN_CHANGE_VERSION + " AS change_version, " +
+                "c." + DatabaseHelper.COLUMN_CHANGE_OP + " AS change_op, " +
+                "c." + DatabaseHelper.COLUMN_CHANGE_ROW_ID + " AS change_row_id, " + rowColumns(table, fields) +
+                " FROM " + DatabaseHelper.TABLE_CHANGE_LOG + " c" +
+                " LEFT JOIN " + table + " t ON t.id = c." + DatabaseHelper.COLUMN_CHANGE_ROW_ID +
+                archiveJoin(table) +
+                " WHERE c." + DatabaseHelper.COLUMN_CHANGE_VERSION + " > ?" +
+                " AND c." + DatabaseHelper.COLUMN_CHANGE_VERSION + " <= ?" +
+                " AND c." + DatabaseHelper.COLUMN_CHANGE_TABLE + " = ?" +
+                " ORDER BY c." + DatabaseHelper.COLUMN_CHANGE_VERSION +
+                " LIMIT " + (limit + 1),
+            new String[]{String.valueOf(since), String.valueOf(upTo), table},
+            signal);
+
+        RowSerializer rows = new RowSerializer(cursor, fields);
+        int versionIndex = cursor.getColumnIndexOrThrow("change_version");
+        int opIndex = cursor.getColumnIndexOrThrow("change_op");
+        int rowIdIndex = cursor.getColumnIndexOrThrow("change_row_id");
+        int idIndex = rows.columnIndex("id");
+
+        JSArray upserted = jsonFormat ? null : new JSArray();
+        JSArray deleted = new JSArray();
+        long version = since;
+        int seen = 0;
+        boolean hasMore = false;
+        while (cursor.moveToNext()) {
+            if (seen++ == limit) {
+                hasMore = true;
+                break;
+            }
+            version = cursor.getLong(versionIndex);
+            // A row updated and then deleted only has its delete left in the log,
+            // but check the join too in case the row went away some other way
+            if ("delete".equals(cursor.getString(opIndex)) || cursor.isNull(idIndex)) {
+                deleted.put(cursor.getLong(rowIdIndex));
+            } else if (jsonFormat) {
+                rows.appendRow();
+            } else {
+                upserted.put(rows.readObject());
+            }
+        }
+        cursor.close();
+        StorageMetrics.rows(seen, seen);
+
+        JSObject result = new JSObject();
+        rows.putInto(result, "upserted", upserted);
+        result.put("deleted", deleted);
+        result.put("version", hasMore ? version : upTo);
+        result.put("hasMore", hasMore);
+        result.put("reset", false);
+        return result;
+    }
+
+    /**
+     * An expense may have moved to the archive since it changed, so read it
+     * from either table; its item comes back as the name, not the id.
+     */
+    private static String rowColumns(String table, RowJson.Field[] fields) {
+        if (!DatabaseHelper.TABLE_EXPENSES.equals(table)) {
+            return "t.*";
+        }
+        StringBuilder columns = new StringBuilder();
+        for (RowJson.Field field : fields) {
+            String value;
+            if (field.column.equals(DatabaseHelper.COLUMN_EXPENSE_ITEM)) {
+                value = ItemDictionary.nameOf("COALESCE(t." + DatabaseHelper.COLUMN_EXPENSE_ITEM_ID +
+                    ", a." + DatabaseHelper.COLUMN_EXPENSE_ITEM_ID + ")");
+            } else {
+                value = "COALESCE(t." + field.column + ", a." + field.column + ")";
+            }
+            columns.append(columns.length() == 0 ? "" : ", ").append(value).append(" AS ").append(field.column);
+        }
+        return columns.toString();
+    }
+
+    private static String archiveJoin(String table) {
+        if (!DatabaseHelper.TABLE_EXPENSES.equals(table)) {
+            return "";
+        }
+        return " LEFT JOIN " + DatabaseHelper.TABLE_EXPENSES_ARCHIVE + " a ON a.id = c." +
+            DatabaseHelper.COLUMN_CHANGE_ROW_ID;
+    }
+}
@@ -0,0 +1,120 @@
+package com.peras.campuswal;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.peras.campuswal.core.DashboardSnapshot;
+import com.peras.campuswal.core.Expense;
+import com.peras.campuswal.core.SpendingSummary;
+import com.peras.campuswal.core.Todo;
+
+import java.io.File;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the dashboard snapshot file in step with the database. Writes only
+ * mark it stale; one rewrite runs on its own thread once writes pause, so a
+ * burst of saves costs a single snapshot and none of them waits for it.
+ */
+final class DashboardSnapshotFile {
+
+    static final String FILE_NAME = "dashboard.snapshot";
+    // Long enough to fold a burst of saves together, short enough that a quick exit still catches it
+    private static final long REWRITE_DELAY_MS = 1500;
+
+    private final File file;
+    private final DatabaseHelper dbHelper;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "CampusWal-snapshot");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    private ScheduledFuture<?> pending;
+
+    DashboardSnapshotFile(Context context, DatabaseHelper dbHelper) {
+        this.file = new File(context.getFilesDir(), FILE_NAME);
+        this.dbHelper = dbHelper;
+    }
+
+    /** The saved snapshot as getDashboardSnapshot returns it, or null if there is none yet. */
+    JSObject read(long now) {
+        try {
+            DashboardSnapshot snapshot = DashboardSnapshot.read(file);
+            return snapshot == null ? null : toResult(snapshot, now);
+        } catch (Exception e) {
+            android.util.Log.d("CampusWal", "Dashboard snapshot unreadable: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Schedules a rewrite, pushing back one that has not started yet. */
+    synchronized void invalidate() {
+        if (pending != null) {
+            pending.cancel(false);
+        }
+        pending = executor.schedule(this::rewrite, REWRITE_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /** Rewrites now on the calling thread. */
+    void rewrite() {
+        try {
+            SQLiteDatabase db = dbHelper.getReadableDatabase();
+            // Version first, as getExpenses does: a sync from it can only repeat changes, never miss one
+            long version = ChangeLog.currentVersion(db);
+            DashboardSnapshot.load(new AndroidSqlDatabase(db), version, System.currentTimeMillis()).save(file);
+        } catch (Exception e) {
+            android.util.Log.d("CampusWal", "Dashboard snapshot not saved: " + e.getMessage());
+        }
+    }
+
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    static JSObject toResult(DashboardSnapshot snapshot, long now) {
+        JSArray expenses = new JSArray();
+        for (Expense expense : snapshot.expenses) {
+            JSObject row = new JSObject();
+            row.put("id", expense.id);
+            row.put("item", expense.item);
+            row.put("amount", expense.amount);
+            row.put("date", expense.date);
+            row.put("timestamp", expense.timestamp);
+            expenses.put(row);
+        }
+        JSArray todos = new JSArray();
+        for (Todo todo : snapshot.todos) {
+            JSObject row = new JSObject();
+            row.put("id", todo.id);
+            row.put("title", todo.title);
+            row.put("when", todo.when);
+            row.put("priority", todo.priority);
+            row.put("done", false);
+            // Not saved; claiming it keeps the screen from re-firing reminders before the live rows arrive
+            row.put("notified", true);
+            todos.put(row);
+        }
+
+        JSObject result = new JSObject();
+        result.put("savedAt", snapshot.savedAt);
+        result.put("version", snapshot.version);
+        result.put("expenses", expenses);
+        result.put("todos", todos);
+        // Totals from before midnight would put yesterday on the today card
+        if (snapshot.totalsCurrent(now)) {
+            SpendingSummary.Cards cards = snapshot.totals;
+            JSObject totals = new JSObject();
+            totals.put("today", cards.today.amount);
+            totals.put("week", cards.week.amount);
+            totals.put("month", cards.month.amount);
+            totals.put("year", cards.year.amount);
+            result.put("totals", totals);
+        }
+        return result;
+    }
+}
@@ -4,64 +4,92 @@ import android.content.Context;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 
+import com.peras.campuswal.core.Schema;
+
 public class DatabaseHelper extends SQLiteOpenHelper {
     
     private static final String DATABASE_NAME = "campuswal.db";
-    private static final int DATABASE_VERSION = 1;
+    // The schema and its migrations live in storage-core, shared with the JVM benchmarks
+    private static final int DATABASE_VERSION = Schema.VERSION;
     
     // Expenses table
-    public static final String TABLE_EXPENSES = "expenses";
-    public static final String COLUMN_EXPENSE_ID = "id";
-    public static final String COLUMN_EXPENSE_ITEM = "item";
-    public static final String COLUMN_EXPENSE_AMOUNT = "amount";
-    public static final String COLUMN_EXPENSE_DATE = "date";
-    public static final String COLUMN_EXPENSE_TIMESTAMP = "timestamp";
-    
+    public static final String TABLE_EXPENSES = Schema.TABLE_EXPENSES;
+    public static final String COLUMN_EXPENSE_ID = Schema.COLUMN_EXPENSE_ID;
+    public static final String COLUMN_EXPENSE_ITEM = Schema.COLUMN_EXPENSE_ITEM;
+    public static final String COLUMN_EXPENSE_ITEM_ID = Schema.COLUMN_EXPENSE_ITEM_ID;
+    public static final String COLUMN_EXPENSE_AMOUNT = Schema.COLUMN_EXPENSE_AMOUNT;
+    public static final String COLUMN_EXPENSE_DATE = Schema.COLUMN_EXPENSE_DATE;
+    public static final String COLUMN_EXPENSE_TIMESTAMP = Schema.COLUMN_EXPENSE_TIMESTAMP;
+
+    // Distinct item names that expenses point at by id, and the full-text index over them
+    public static final String TABLE_ITEMS = Schema.TABLE_ITEMS;
+    public static final String TABLE_ITEMS_FTS = Schema.TABLE_ITEMS_FTS;
+
+    // Expenses moved out of the hot table once they pass the archive age; same columns and ids
+    public static final String TABLE_EXPENSES_ARCHIVE = Schema.TABLE_EXPENSES_ARCHIVE;
+
+    // Storage state such as the archive cutoff
+    public static final String TABLE_SETTINGS = Schema.TABLE_SETTINGS;
+
+    // Per-day spending rollup maintained by triggers; day = timestamp / 86400000 (UTC)
+    public static final String TABLE_EXPENSE_DAILY_TOTALS = Schema.TABLE_EXPENSE_DAILY_TOTALS;
+    public static final String COLUMN_ROLLUP_DAY = Schema.COLUMN_ROLLUP_DAY;
+    public static final String COLUMN_ROLLUP_TOTAL = Schema.COLUMN_ROLLUP_TOTAL;
+    public static final String COLUMN_ROLLUP_COUNT = Schema.COLUMN_ROLLUP_COUNT;
+    public static final String COLUMN_ROLLUP_MIN = Schema.COLUMN_ROLLUP_MIN;
+    public static final String COLUMN_ROLLUP_MAX = Schema.COLUMN_ROLLUP_MAX;
+
+    // Latest change per row, for getChangesSince; version only ever grows
+    public static final String TABLE_CHANGE_LOG = Schema.TABLE_CHANGE_LOG;
+    public static final String COLUMN_CHANGE_VERSION = Schema.COLUMN_CHANGE_VERSION;
+    public static final String COLUMN_CHANGE_TABLE = Schema.COLUMN_CHANGE_TABLE;
+    public static final String COLUMN_CHANGE_ROW_ID = Schema.COLUMN_CHANGE_ROW_ID;
+    public static final String COLUMN_CHANGE_OP = Schema.COLUMN_CHANGE_OP;
+
     // Todos table
-    public static final String TABLE_TODOS = "todos";
-    public static final String COLUMN_TODO_ID = "id";
-    public static final String COLUMN_TODO_TITLE = "title";
-    public static final String COLUMN_TODO_WHEN = "when_time";
-    public static final String COLUMN_TODO_PRIORITY = "priority";
-    public static final String COLUMN_TODO_DONE = "done";
-    public static final String COLUMN_TODO_NOTIFIED = "notified";
-    public static final String COLUMN_TODO_DONE_AT = "done_at";
-    
-    // Create table statements
-    private static final String CREATE_EXPENSES_TABLE = 
-        "CREATE TABLE " + TABLE_EXPENSES + " (" +
-        COLUMN_EXPENSE_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
-        COLUMN_EXPENSE_ITEM + " TEXT NOT NULL, " +
-        COLUMN_EXPENSE_AMOUNT + " REAL NOT NULL, " +
-        COLUMN_EXPENSE_DATE + " TEXT NOT NULL, " +
-        COLUMN_EXPENSE_TIMESTAMP + " INTEGER NOT NULL" +
-        ")";
-    
-    private static final String CREATE_TODOS_TABLE = 
-        "CREATE TABLE " + TABLE_TODOS + " (" +
-        COLUMN_TODO_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
-        COLUMN_TODO_TITLE + " TEXT NOT NULL, " +
-        COLUMN_TODO_WHEN + " INTEGER NOT NULL, " +
-        COLUMN_TODO_PRIORITY + " TEXT NOT NULL, " +
-        COLUMN_TODO_DONE + " INTEGER DEFAULT 0, " +
-        COLUMN_TODO_NOTIFIED + " INTEGER DEFAULT 0, " +
-        COLUMN_TODO_DONE_AT + " INTEGER DEFAULT 0" +
-        ")";
-    
+    public static final String TABLE_TODOS = Schema.TABLE_TODOS;
+    public static final String COLUMN_TODO_ID = Schema.COLUMN_TODO_ID;
+    public static final String COLUMN_TODO_TITLE = Schema.COLUMN_TODO_TITLE;
+    public static final String COLUMN_TODO_WHEN = Schema.COLUMN_TODO_WHEN;
+    public static final String COLUMN_TODO_PRIORITY = Schema.COLUMN_TODO_PRIORITY;
+    public static final String COLUMN_TODO_DONE = Schema.COLUMN_TODO_DONE;
+    public static final String COLUMN_TODO_NOTIFIED = Schema.COLUMN_TODO_NOTIFIED;
+    public static final String COLUMN_TODO_DONE_AT = Schema.COLUMN_TODO_DONE_AT;
+
+    // Indexes
+    public static final String INDEX_EXPENSES_TIMESTAMP = Schema.INDEX_EXPENSES_TIMESTAMP;
+    public static final String INDEX_TODOS_WHEN = Schema.INDEX_TODOS_WHEN;
+    public static final String INDEX_TODOS_DONE_WHEN = Schema.INDEX_TODOS_DONE_WHEN;
+    public static final String INDEX_CHANGE_LOG_ROW = Schema.INDEX_CHANGE_LOG_ROW;
+    public static final String INDEX_TODOS_PENDING_REMINDERS = Schema.INDEX_TODOS_PENDING_REMINDERS;
+    public static final String INDEX_EXPENSES_ARCHIVE_TIMESTAMP = Schema.INDEX_EXPENSES_ARCHIVE_TIMESTAMP;
+    public static final String INDEX_TODOS_PENDING = Schema.INDEX_TODOS_PENDING;
+    public static final String INDEX_TODOS_COMPLETED = Schema.INDEX_TODOS_COMPLETED;
+
+    private static DatabaseHelper instance;
+
+    /** Shared helper for the plugin and the reminder receivers, so they use one connection pool. */
+    public static synchronized DatabaseHelper getInstance(Context context) {
+        if (instance == null) {
+            instance = new DatabaseHelper(context.getApplicationContext());
+        }
+        return instance;
+    }
+
     public DatabaseHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        // WAL lets the reader threads query while the writer thread commits
+        setWriteAheadLoggingEnabled(true);
     }
     
     @Override
     public void onCreate(SQLiteDatabase db) {
-        db.execSQL(CREATE_EXPENSES_TABLE);
-        db.execSQL(CREATE_TODOS_TABLE);
+        Schema.create(new AndroidSqlDatabase(db));
     }
     
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_EXPENSES);
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_TODOS);
-        onCreate(db);
+        // SQLiteOpenHelper already wraps this in a transaction, so a failed step rolls back everything
+        Schema.upgrade(new AndroidSqlDatabase(db), oldVersion, newVersion);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,146 @@
+package com.peras.campuswal;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.peras.campuswal.core.ItemDictionary;
+
+import java.io.IOException;
+
+/**
+ * Inserts many expenses through one compiled INSERT statement, after
+ * adding each item name to the dictionary through another. The caller
+ * owns the transaction; a bad row is recorded as a failure and skipped
+ * without aborting the rest of the batch.
+ */
+final class ExpenseBatchInserter {
+
+    // Enough to show the user what went wrong without echoing a whole broken file back
+    private static final int MAX_REPORTED_FAILURES = 100;
+
+    private final SQLiteStatement addItem;
+    private final SQLiteStatement insert;
+    private final JSArray failures = new JSArray();
+    private int inserted;
+    private int failed;
+
+    ExpenseBatchInserter(SQLiteDatabase db) {
+        addItem = db.compileStatement(ItemDictionary.ADD);
+        insert = db.compileStatement(
+            "INSERT INTO " + DatabaseHelper.TABLE_EXPENSES + " (" +
+            DatabaseHelper.COLUMN_EXPENSE_ITEM_ID + ", " +
+            DatabaseHelper.COLUMN_EXPENSE_AMOUNT + ", " +
+            DatabaseHelper.COLUMN_EXPENSE_DATE + ", " +
+            DatabaseHelper.COLUMN_EXPENSE_TIMESTAMP + ") VALUES (" + ItemDictionary.ID_OF + ", ?, ?, ?)"
+        );
+    }
+
+    void insert(int index, String item, Double amount, String date, Long timestamp) {
+        if (item == null || amount == null || date == null || timestamp == null) {
+            fail(index, "Missing required fields");
+            return;
+        }
+        try {
+            addItem.bindString(1, item);
+            addItem.bindString(2, ItemDictionary.key(item));
+            addItem.executeInsert();
+            insert.bindString(1, item);
+            insert.bindDouble(2, amount);
+            insert.bindString(3, date);
+            insert.bindLong(4, timestamp);
+            if (insert.executeInsert() != -1) {
+                inserted++;
+            } else {
+                fail(index, "Failed to insert expense");
+            }
+        } catch (Exception e) {
+            fail(index, e.getMessage());
+        } finally {
+            addItem.clearBindings();
+            insert.clearBindings();
+        }
+    }
+
+    /** Reads one expense object from the stream and inserts it. */
+    void insert(int index, JsonReader reader) throws IOException {
+        String item = null;
+        Double amount = null;
+        String date = null;
+        Long timestamp = null;
+        String error = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.skipValue();
+                continue;
+            }
+            try {
+                switch (name) {
+                    case "item":
+                        item = reader.nextString();
+                        break;
+                    case "amount":
+                        amount = reader.nextDouble();
+                        break;
+                    case "date":
+                        date = reader.nextString();
+                        break;
+                    case "timestamp":
+                        timestamp = reader.nextLong();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            } catch (NumberFormatException | IllegalStateException e) {
+                // Keep reading so the stream stays aligned for the next row
+                error = "Invalid " + name;
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (error != null) {
+            fail(index, error);
+        } else {
+            insert(index, item, amount, date, timestamp);
+        }
+    }
+
+    void close() {
+        addItem.close();
+        insert.close();
+    }
+
+    int inserted() {
+        return inserted;
+    }
+
+    int failed() {
+        return failed;
+    }
+
+    JSObject toResult() {
+        JSObject result = new JSObject();
+        result.put("success", true);
+        result.put("inserted", inserted);
+        result.put("failed", failed);
+        result.put("failures", failures);
+        return result;
+    }
+
+    private void fail(int index, String message) {
+        failed++;
+        if (failures.length() < MAX_REPORTED_FAILURES) {
+            JSObject failure = new JSObject();
+            failure.put("index", index);
+            failure.put("error", message);
+            failures.put(failure);
+        }
+    }
+}
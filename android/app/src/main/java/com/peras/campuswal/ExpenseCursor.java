@@ -0,0 +1,43 @@
+package com.peras.campuswal;
+
+import android.util.Base64;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Opaque keyset position for paging through expenses ordered by
+ * (timestamp DESC, id DESC). The token only encodes the last row the
+ * caller has seen, so the next page is an index seek instead of an OFFSET.
+ */
+final class ExpenseCursor {
+
+    private static final String VERSION = "v1";
+    private static final int FLAGS = Base64.URL_SAFE | Base64.NO_WRAP | Base64.NO_PADDING;
+
+    final long timestamp;
+    final long id;
+
+    ExpenseCursor(long timestamp, long id) {
+        this.timestamp = timestamp;
+        this.id = id;
+    }
+
+    String encode() {
+        String raw = VERSION + ":" + timestamp + ":" + id;
+        return Base64.encodeToString(raw.getBytes(StandardCharsets.UTF_8), FLAGS);
+    }
+
+    static ExpenseCursor decode(String token) {
+        try {
+            String raw = new String(Base64.decode(token, FLAGS), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":");
+            if (parts.length != 3 || !VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new ExpenseCursor(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException and bad base64 both land here
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.peras.campuswal;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.peras.campuswal.core.SqlDatabase;
+import com.peras.campuswal.core.StorageMaintenance;
+
+import java.io.File;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs StorageMaintenance when nobody is waiting on the database: a short
+ * run once writes have paused for a while, and a longer one soon after the
+ * app goes to the background. Runs go through the storage writer, so they
+ * never overlap a save, and stop as soon as any call is queued.
+ */
+final class IdleMaintenance {
+
+    // Quiet time after the last write before an idle run
+    private static final long IDLE_DELAY_MS = 60 * 1000;
+    private static final long IDLE_BUDGET_MS = 250;
+    // Lets a quick app switch come back before anything starts
+    private static final long BACKGROUND_DELAY_MS = 5 * 1000;
+    private static final long BACKGROUND_BUDGET_MS = 2000;
+
+    private final DatabaseHelper dbHelper;
+    private final StorageExecutor storage;
+    private final Runnable onArchived;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "CampusWal-maintenance");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    private ScheduledFuture<?> pending;
+    private volatile StorageMaintenance.Report lastReport;
+    // Writer thread only: set by a run so the write-finished hook it triggers doesn't schedule another
+    private boolean ranLast;
+
+    /** onArchived runs on the writer after a run moved expenses, e.g. to drop cached pages. */
+    IdleMaintenance(DatabaseHelper dbHelper, StorageExecutor storage, Runnable onArchived) {
+        this.dbHelper = dbHelper;
+        this.storage = storage;
+        this.onArchived = onArchived;
+    }
+
+    /** Called on the writer after every write; pushes the idle run back until writes pause. */
+    void writeFinished() {
+        if (ranLast) {
+            ranLast = false;
+            return;
+        }
+        schedule(IDLE_DELAY_MS, IDLE_BUDGET_MS);
+    }
+
+    void backgrounded() {
+        schedule(BACKGROUND_DELAY_MS, BACKGROUND_BUDGET_MS);
+    }
+
+    /** Drops a run that has not started; one in progress gives way to the calls that follow. */
+    synchronized void foregrounded() {
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+
+    /** Runs the due tasks now on the calling thread, which must be the storage writer. */
+    StorageMaintenance.Report run(long budgetMs) {
+        ranLast = true;
+        SqlDatabase db = new AndroidSqlDatabase(dbHelper.getWritableDatabase());
+        StorageMaintenance.Report report = StorageMaintenance.run(db, System.currentTimeMillis(), budgetMs, storage::busy);
+        if (report.archived() > 0) {
+            onArchived.run();
+        }
+        lastReport = report;
+        android.util.Log.d("CampusWal", "Maintenance ran " + report.ran.size() + " tasks in " + report.millis +
+            " ms, deferred " + report.deferred.size() + ", file " + report.after.bytes() + " bytes");
+        return report;
+    }
+
+    /** File size, when each task last ran and what the latest run in this process did. */
+    JSObject stats(SQLiteDatabase database) {
+        SqlDatabase db = new AndroidSqlDatabase(database);
+        long now = System.currentTimeMillis();
+        JSArray tasks = new JSArray();
+        for (StorageMaintenance.Task task : StorageMaintenance.Task.values()) {
+            JSObject row = new JSObject();
+            row.put("task", task.key);
+            row.put("lastRun", StorageMaintenance.lastRun(db, task));
+            row.put("millis", StorageMaintenance.lastMillis(db, task));
+            row.put("due", StorageMaintenance.due(db, task, now));
+            tasks.put(row);
+        }
+
+        JSObject result = new JSObject();
+        result.put("file", toResult(StorageMaintenance.fileStats(db)));
+        result.put("walBytes", new File(database.getPath() + "-wal").length());
+        result.put("tasks", tasks);
+        StorageMaintenance.Report report = lastReport;
+        if (report != null) {
+            result.put("lastRun", toResult(report));
+        }
+        return result;
+    }
+
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private synchronized void schedule(long delayMs, long budgetMs) {
+        if (pending != null) {
+            pending.cancel(false);
+        }
+        pending = executor.schedule(() -> submit(budgetMs), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void submit(long budgetMs) {
+        try {
+            storage.writerFor("maintenance").execute(() -> {
+                try {
+                    run(budgetMs);
+                } catch (Exception e) {
+                    android.util.Log.d("CampusWal", "Maintenance failed: " + e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // A full write queue is anything but idle; the next pause schedules another run
+        }
+    }
+
+    static JSObject toResult(StorageMaintenance.Report report) {
+        JSArray ran = new JSArray();
+        for (StorageMaintenance.TaskRun run : report.ran) {
+            JSObject row = new JSObject();
+            row.put("task", run.task.key);
+            row.put("millis", run.millis);
+            row.put("count", run.count);
+            ran.put(row);
+        }
+        JSArray deferred = new JSArray();
+        for (StorageMaintenance.Task task : report.deferred) {
+            deferred.put(task.key);
+        }
+
+        JSObject result = new JSObject();
+        result.put("millis", report.millis);
+        result.put("before", toResult(report.before));
+        result.put("after", toResult(report.after));
+        result.put("tasks", ran);
+        result.put("deferred", deferred);
+        return result;
+    }
+
+    private static JSObject toResult(StorageMaintenance.FileStats stats) {
+        JSObject result = new JSObject();
+        result.put("bytes", stats.bytes());
+        result.put("pageSize", stats.pageSize);
+        result.put("pages", stats.pageCount);
+        result.put("freelistPages", stats.freelistPages);
+        return result;
+    }
+}
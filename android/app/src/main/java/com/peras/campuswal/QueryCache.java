@@ -0,0 +1,114 @@
+package com.peras.campuswal;
+
+import com.getcapacitor.JSObject;
+
+import org.json.JSONArray;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of resolved getExpenses results, bounded by entry count and by
+ * an estimate of their size. Every expense write calls invalidate(); a read
+ * that started before the write carries the old generation and its result
+ * is dropped rather than cached, so a stale page can never be stored.
+ */
+final class QueryCache {
+
+    private static final int MAX_ENTRIES = 32;
+    private static final long MAX_BYTES = 4L * 1024 * 1024;
+    // Rough cost of one row held as a JSObject (keys, boxed values, map nodes)
+    private static final int OBJECT_ROW_BYTES = 256;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long generation;
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    private static final class Entry {
+        final JSObject result;
+        final long bytes;
+
+        Entry(JSObject result, long bytes) {
+            this.result = result;
+            this.bytes = bytes;
+        }
+    }
+
+    /** Read before running the query and hand back to put(). */
+    synchronized long generation() {
+        return generation;
+    }
+
+    synchronized JSObject get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.result;
+    }
+
+    /** Caches result unless a write invalidated the cache since generation was read. */
+    synchronized void put(String key, long generation, JSObject result) {
+        if (generation != this.generation) {
+            return;
+        }
+        long size = estimateBytes(result);
+        // One huge result would just flush everything else
+        if (size > MAX_BYTES / 4) {
+            return;
+        }
+        Entry previous = entries.put(key, new Entry(result, size));
+        if (previous != null) {
+            bytes -= previous.bytes;
+        }
+        bytes += size;
+
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while ((entries.size() > MAX_ENTRIES || bytes > MAX_BYTES) && eldest.hasNext()) {
+            bytes -= eldest.next().getValue().bytes;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    synchronized void invalidate() {
+        generation++;
+        invalidations++;
+        entries.clear();
+        bytes = 0;
+    }
+
+    synchronized JSObject stats() {
+        JSObject stats = new JSObject();
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("evictions", evictions);
+        stats.put("invalidations", invalidations);
+        stats.put("entries", entries.size());
+        stats.put("bytes", bytes);
+        return stats;
+    }
+
+    private static long estimateBytes(JSObject result) {
+        long size = 64;
+        Iterator<String> keys = result.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            Object value = result.opt(key);
+            size += key.length() * 2L + 16;
+            if (value instanceof String) {
+                size += ((String) value).length() * 2L;
+            } else if (value instanceof JSONArray) {
+                size += (long) ((JSONArray) value).length() * OBJECT_ROW_BYTES;
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,182 @@
+package com.peras.campuswal;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.Intent;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Build;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps one exact alarm armed for the earliest pending todo reminder instead
+ * of an alarm per todo. When it fires, every reminder that is due goes out
+ * in one batch, is marked notified, and the alarm moves to the next one.
+ */
+final class ReminderScheduler {
+
+    // Request code of the one alarm; old per-todo alarms used the todo id instead
+    private static final int ALARM_REQUEST_CODE = Integer.MAX_VALUE;
+    private static final int SUMMARY_NOTIFICATION_ID = Integer.MAX_VALUE;
+    private static final String GROUP_REMINDERS = "campuswal_reminders";
+    private static final int MAX_INBOX_LINES = 5;
+
+    // Named explicitly: the planner otherwise prefers (done, when_time), which still walks
+    // every notified-but-not-done todo before reaching the next pending one
+    private static final String PENDING_REMINDERS =
+        DatabaseHelper.TABLE_TODOS + " INDEXED BY " + DatabaseHelper.INDEX_TODOS_PENDING_REMINDERS +
+        " WHERE " + DatabaseHelper.COLUMN_TODO_DONE + " = 0 AND " + DatabaseHelper.COLUMN_TODO_NOTIFIED + " = 0";
+
+    static final String NEXT_DUE_SQL =
+        "SELECT MIN(" + DatabaseHelper.COLUMN_TODO_WHEN + ") FROM " + PENDING_REMINDERS;
+
+    static final String DUE_SQL =
+        "SELECT " + DatabaseHelper.COLUMN_TODO_ID + ", " + DatabaseHelper.COLUMN_TODO_TITLE +
+        " FROM " + PENDING_REMINDERS + " AND " + DatabaseHelper.COLUMN_TODO_WHEN + " <= ?" +
+        " ORDER BY " + DatabaseHelper.COLUMN_TODO_WHEN;
+
+    // Time the alarm is armed for in this process, so unchanged schedules skip the AlarmManager call
+    private static long armedAt = -1;
+
+    private ReminderScheduler() {
+    }
+
+    /** Arms the alarm for the earliest pending reminder, or cancels it when none are left. */
+    static synchronized void reschedule(Context context, SQLiteDatabase db) {
+        long next = nextDue(db);
+        if (next == armedAt) {
+            return;
+        }
+
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        PendingIntent alarm = alarmIntent(context);
+        if (next < 0) {
+            alarmManager.cancel(alarm);
+            android.util.Log.d("CampusWal", "No pending reminders, alarm cancelled");
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, next, alarm);
+        } else {
+            alarmManager.setExact(AlarmManager.RTC_WAKEUP, next, alarm);
+        }
+        armedAt = next;
+        if (next >= 0) {
+            android.util.Log.d("CampusWal", "Reminder alarm armed for " + next);
+        }
+    }
+
+    /** Forgets the armed time; after boot or an app update the system has dropped the alarm. */
+    static synchronized void reset() {
+        armedAt = -1;
+    }
+
+    /** Posts every due reminder, marks them notified and re-arms for the next one. */
+    static void deliverDue(Context context, SQLiteDatabase db) {
+        List<Long> ids = new ArrayList<>();
+        List<String> titles = new ArrayList<>();
+        Cursor cursor = db.rawQuery(DUE_SQL, new String[]{String.valueOf(System.currentTimeMillis())});
+        while (cursor.moveToNext()) {
+            ids.add(cursor.getLong(0));
+            titles.add(cursor.getString(1));
+        }
+        cursor.close();
+
+        if (!ids.isEmpty()) {
+            markNotified(db, ids);
+            showNotifications(context, ids, titles);
+        }
+        // The alarm that woke us is spent whatever happened above
+        reset();
+        reschedule(context, db);
+    }
+
+    private static long nextDue(SQLiteDatabase db) {
+        Cursor cursor = db.rawQuery(NEXT_DUE_SQL, null);
+        long next = -1;
+        if (cursor.moveToFirst() && !cursor.isNull(0)) {
+            next = cursor.getLong(0);
+        }
+        cursor.close();
+        return next;
+    }
+
+    private static void markNotified(SQLiteDatabase db, List<Long> ids) {
+        ContentValues values = new ContentValues();
+        values.put(DatabaseHelper.COLUMN_TODO_NOTIFIED, 1);
+        db.beginTransaction();
+        try {
+            for (Long id : ids) {
+                db.update(DatabaseHelper.TABLE_TODOS, values,
+                    DatabaseHelper.COLUMN_TODO_ID + " = ?", new String[]{String.valueOf(id)});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static void showNotifications(Context context, List<Long> ids, List<String> titles) {
+        try {
+            Intent appIntent = new Intent(context, MainActivity.class);
+            appIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+            PendingIntent contentIntent = PendingIntent.getActivity(
+                context,
+                0,
+                appIntent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+            );
+
+            NotificationCompat.Builder builder = new NotificationCompat.Builder(context, SQLiteStoragePlugin.CHANNEL_ID)
+                .setSmallIcon(android.R.drawable.ic_dialog_info)
+                .setContentTitle("⏰ Todo Reminder")
+                .setPriority(NotificationCompat.PRIORITY_HIGH)
+                .setDefaults(NotificationCompat.DEFAULT_ALL)
+                .setAutoCancel(true)
+                .setContentIntent(contentIntent)
+                .setGroup(GROUP_REMINDERS)
+                .setVibrate(new long[]{0, 250, 250, 250});
+
+            int notificationId;
+            if (ids.size() == 1) {
+                builder.setContentText(titles.get(0));
+                notificationId = ids.get(0).intValue();
+            } else {
+                // Several due at once (e.g. after the phone was off): one notification, not a burst
+                NotificationCompat.InboxStyle inbox = new NotificationCompat.InboxStyle()
+                    .setBigContentTitle("⏰ " + ids.size() + " Todo Reminders");
+                for (int i = 0; i < titles.size() && i < MAX_INBOX_LINES; i++) {
+                    inbox.addLine(titles.get(i));
+                }
+                if (titles.size() > MAX_INBOX_LINES) {
+                    inbox.setSummaryText("+" + (titles.size() - MAX_INBOX_LINES) + " more");
+                }
+                builder.setContentText(titles.get(0) + " and " + (ids.size() - 1) + " more")
+                    .setStyle(inbox)
+                    .setNumber(ids.size());
+                notificationId = SUMMARY_NOTIFICATION_ID;
+            }
+
+            NotificationManagerCompat.from(context).notify(notificationId, builder.build());
+            android.util.Log.d("CampusWal", "Delivered " + ids.size() + " reminders");
+
+        } catch (Exception e) {
+            android.util.Log.e("CampusWal", "Failed to show notification: " + e.getMessage());
+        }
+    }
+
+    private static PendingIntent alarmIntent(Context context) {
+        Intent intent = new Intent(context, SQLiteStoragePlugin.TodoNotificationReceiver.class);
+        return PendingIntent.getBroadcast(
+            context,
+            ALARM_REQUEST_CODE,
+            intent,
+            PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+    }
+}
@@ -0,0 +1,90 @@
+package com.peras.campuswal;
+
+import android.database.Cursor;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.peras.campuswal.core.RowJson;
+
+/**
+ * Maps cursor columns to JSON fields. Column indices are resolved once per
+ * cursor; rows are written as JSON text by storage-core's RowJson, or read
+ * as JSObjects for callers that still want objects.
+ */
+final class RowSerializer {
+
+    private final Cursor cursor;
+    private final RowJson.Field[] fields;
+    private final int[] indices;
+    private final AndroidSqlDatabase.CursorRows row;
+    private final RowJson json;
+
+    RowSerializer(Cursor cursor, RowJson.Field[] fields) {
+        this.cursor = cursor;
+        this.fields = fields;
+        this.indices = new int[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            indices[i] = cursor.getColumnIndexOrThrow(fields[i].column);
+        }
+        this.row = new AndroidSqlDatabase.CursorRows(cursor);
+        this.json = new RowJson(fields, indices, cursor.getCount());
+    }
+
+    int columnIndex(String column) {
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i].column.equals(column)) {
+                return indices[i];
+            }
+        }
+        return cursor.getColumnIndexOrThrow(column);
+    }
+
+    /** Appends the cursor's current row to the JSON array text. */
+    void appendRow() {
+        json.appendRow(row);
+    }
+
+    int rowCount() {
+        return json.rowCount();
+    }
+
+    /** Closes the array and returns its text; call once, after the last row. */
+    String toJson() {
+        return json.toJson();
+    }
+
+    /**
+     * Puts the rows under key: as the given array of objects, or when that is
+     * null as the pre-serialized JSON text under key + "Json" (format "json").
+     */
+    void putInto(JSObject result, String key, JSArray objects) {
+        if (objects != null) {
+            result.put(key, objects);
+        } else {
+            result.put(key + "Json", toJson());
+        }
+    }
+
+    /** Reads the current row as a JSObject for callers that still want objects. */
+    JSObject readObject() {
+        JSObject object = new JSObject();
+        for (int i = 0; i < fields.length; i++) {
+            int index = indices[i];
+            String key = fields[i].key;
+            switch (fields[i].type) {
+                case LONG:
+                    object.put(key, cursor.getLong(index));
+                    break;
+                case DOUBLE:
+                    object.put(key, cursor.getDouble(index));
+                    break;
+                case BOOLEAN:
+                    object.put(key, cursor.getInt(index) == 1);
+                    break;
+                default:
+                    object.put(key, cursor.getString(index));
+            }
+        }
+        return object;
+    }
+}
@@ -6,22 +6,56 @@ import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginCall;
 import com.getcapacitor.PluginMethod;
 import com.getcapacitor.annotation.CapacitorPlugin;
+import com.peras.campuswal.core.DataTransfer;
+import com.peras.campuswal.core.ExpenseArchive;
+import com.peras.campuswal.core.ExpenseQueries;
+import com.peras.campuswal.core.ExpenseSelection;
+import com.peras.campuswal.core.Expense;
+import com.peras.campuswal.core.GroupCommit;
+import com.peras.campuswal.core.ItemDictionary;
+import com.peras.campuswal.core.ItemSuggestions;
+import com.peras.campuswal.core.RowJson;
+import com.peras.campuswal.core.SpendingHistogram;
+import com.peras.campuswal.core.SpendingSummary;
+import com.peras.campuswal.core.SqlDatabase;
+import com.peras.campuswal.core.SqlStorageRepository;
+import com.peras.campuswal.core.StorageSettings;
+import com.peras.campuswal.core.Todo;
+import com.peras.campuswal.core.TodoQueries;
 
-import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
 import android.widget.Toast;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
-import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Build;
-import androidx.core.app.NotificationCompat;
-import androidx.core.app.NotificationManagerCompat;
-import android.app.AlarmManager;
 import android.content.BroadcastReceiver;
 import android.content.IntentFilter;
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.LongConsumer;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -31,14 +65,80 @@ import org.json.JSONException;
 public class SQLiteStoragePlugin extends Plugin {
 
     private DatabaseHelper dbHelper;
-    private static final String CHANNEL_ID = "campuswal_todos";
+    private StorageExecutor storage;
+    private DashboardSnapshotFile dashboardSnapshot;
+    private IdleMaintenance maintenance;
+    private final QueryCache expenseCache = new QueryCache();
+    // Built on the first suggestItems call, then kept current by saveExpense
+    private final ItemSuggestions itemSuggestions = new ItemSuggestions();
+    // Set by setGroupCommit; null while every save commits on its own
+    private volatile GroupCommit groupCommit;
+    // Closes group commit windows; the writer itself never waits on one
+    private final ScheduledExecutorService groupTimer = Executors.newSingleThreadScheduledExecutor(
+        runnable -> new Thread(runnable, "CampusWal-group-commit"));
+    // Writer thread only: a save added a todo, so the alarm is re-armed once the write finishes
+    private boolean remindersStale;
+    static final String CHANNEL_ID = "campuswal_todos";
     private static final String CHANNEL_NAME = "Todo Reminders";
     private static final String CHANNEL_DESCRIPTION = "Notifications for scheduled todos";
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int MAX_GROUP_WINDOW_MS = 1000;
+    private static final int DEFAULT_GROUP_WRITES = 32;
+    private static final int MAX_TOP_ITEMS = 100;
+    private static final long DEFAULT_MAINTENANCE_BUDGET_MS = 1000;
+    private static final long MAX_MAINTENANCE_BUDGET_MS = 10 * 1000;
+    private static final long CACHE_TIME_BUCKET_MS = 60 * 1000;
+    private static final int TRANSFER_BUFFER_CHARS = 64 * 1024;
+    private static final long PROGRESS_INTERVAL_MS = 250;
+    // Listed explicitly: the archive half of a UNION must line up column for column
+    private static final String EXPENSE_COLUMNS =
+        DatabaseHelper.COLUMN_EXPENSE_ID + ", " + ItemDictionary.ITEM + ", " +
+        DatabaseHelper.COLUMN_EXPENSE_AMOUNT + ", " + DatabaseHelper.COLUMN_EXPENSE_DATE + ", " +
+        DatabaseHelper.COLUMN_EXPENSE_TIMESTAMP;
 
     @Override
     public void load() {
-        dbHelper = new DatabaseHelper(getContext());
+        dbHelper = DatabaseHelper.getInstance(getContext());
+        dashboardSnapshot = new DashboardSnapshotFile(getContext(), dbHelper);
+        storage = new StorageExecutor(() -> {
+            dashboardSnapshot.invalidate();
+            maintenance.writeFinished();
+            if (remindersStale) {
+                // Once per write, so a committed group of todo saves re-arms the alarm just once
+                remindersStale = false;
+                try {
+                    ReminderScheduler.reschedule(getContext(), dbHelper.getWritableDatabase());
+                } catch (Exception e) {
+                    android.util.Log.d("CampusWal", "Reminder reschedule failed: " + e.getMessage());
+                }
+            }
+        });
+        maintenance = new IdleMaintenance(dbHelper, storage, expenseCache::invalidate);
         createNotificationChannel();
+        // Refreshed once per launch too, so a new day or a migration shows up by the next cold start
+        dashboardSnapshot.invalidate();
+    }
+
+    @Override
+    protected void handleOnResume() {
+        maintenance.foregrounded();
+        super.handleOnResume();
+    }
+
+    @Override
+    protected void handleOnStop() {
+        // Backgrounded: the best moment for the longer maintenance tasks
+        maintenance.backgrounded();
+        super.handleOnStop();
+    }
+
+    @Override
+    protected void handleOnDestroy() {
+        groupTimer.shutdown();
+        storage.shutdown();
+        dashboardSnapshot.shutdown();
+        maintenance.shutdown();
+        super.handleOnDestroy();
     }
 
     private void createNotificationChannel() {
@@ -59,273 +159,1057 @@ public class SQLiteStoragePlugin extends Plugin {
 
     @PluginMethod
     public void saveExpense(PluginCall call) {
-        try {
-            String item = call.getString("item");
-            Double amount = call.getDouble("amount");
-            String date = call.getString("date");
-            Long timestamp = call.getLong("timestamp");
-
-            if (item == null || amount == null || date == null || timestamp == null) {
-                showToast("Missing expense data", false);
-                call.reject("Missing required fields");
+        String item = call.getString("item");
+        Double amount = call.getDouble("amount");
+        String date = call.getString("date");
+        Long timestamp = call.getLong("timestamp");
+
+        if (item == null || amount == null || date == null || timestamp == null) {
+            showToast("Missing expense data", false);
+            reject(call, "Missing required fields");
+            return;
+        }
+
+        // The repository files the name in the item dictionary and the expense under its id
+        Expense expense = new Expense(item, amount, date, timestamp);
+
+        GroupCommit group = groupCommit;
+        if (group != null) {
+            group.submit(db -> new SqlStorageRepository(db).saveExpense(expense),
+                settle(call, id -> finishSaveExpense(call, item, id), "Error saving expense: "));
+            return;
+        }
+
+        storage.write(call, signal -> {
+            try {
+                long id = new SqlStorageRepository(new AndroidSqlDatabase(dbHelper.getWritableDatabase()))
+                    .saveExpense(expense);
+                finishSaveExpense(call, item, id);
+            } catch (Exception e) {
+                showToast("Error saving expense: " + e.getMessage(), false);
+                reject(call, "Error saving expense: " + e.getMessage());
+            }
+        });
+    }
+
+    private void finishSaveExpense(PluginCall call, String item, long id) {
+        expenseCache.invalidate();
+        StorageMetrics.rowsWritten(id != -1 ? 1 : 0);
+
+        if (id != -1) {
+            itemSuggestions.add(item);
+            showToast("Expense saved successfully!", true);
+            JSObject result = new JSObject();
+            result.put("success", true);
+            result.put("id", id);
+            resolve(call, result);
+        } else {
+            showToast("Failed to save expense", false);
+            reject(call, "Failed to insert expense");
+        }
+    }
+
+    @PluginMethod
+    public void saveExpensesBatch(PluginCall call) {
+        storage.write(call, signal -> {
+            try {
+                JSArray expenses = call.getArray("expenses");
+                if (expenses == null) {
+                    showToast("Missing expense data", false);
+                    reject(call, "Missing required fields");
+                    return;
+                }
+
+                SQLiteDatabase db = dbHelper.getWritableDatabase();
+                ExpenseBatchInserter inserter = new ExpenseBatchInserter(db);
+                // One transaction means one journal commit for the whole batch
+                db.beginTransaction();
+                try {
+                    for (int i = 0; i < expenses.length(); i++) {
+                        JSONObject expense = expenses.optJSONObject(i);
+                        if (expense == null) {
+                            inserter.insert(i, null, null, null, null);
+                            continue;
+                        }
+                        Object amount = expense.opt("amount");
+                        Object timestamp = expense.opt("timestamp");
+                        inserter.insert(i,
+                            expense.optString("item", null),
+                            amount instanceof Number ? ((Number) amount).doubleValue() : null,
+                            expense.optString("date", null),
+                            timestamp instanceof Number ? ((Number) timestamp).longValue() : null);
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                    inserter.close();
+                    expenseCache.invalidate();
+                    itemSuggestions.invalidate();
+                }
+
+                showBatchToast("Saved", inserter);
+                StorageMetrics.rowsWritten(inserter.inserted());
+                resolve(call, inserter.toResult());
+            } catch (Exception e) {
+                showToast("Error saving expenses: " + e.getMessage(), false);
+                reject(call, "Error saving expenses: " + e.getMessage());
+            }
+        });
+    }
+
+    @PluginMethod
+    public void importExpenses(PluginCall call) {
+        storage.write(call, signal -> {
+            String path = call.getString("path");
+            if (path == null) {
+                reject(call, "Missing required fields");
                 return;
             }
 
+            // Accepts the old expenses.json (a bare array) or an export ({ "expenses": [...] }).
+            // Rows are streamed, so the file is never held in memory as a whole.
+            try (JsonReader reader = new JsonReader(new InputStreamReader(
+                    new BufferedInputStream(new FileInputStream(path)), StandardCharsets.UTF_8))) {
+                SQLiteDatabase db = dbHelper.getWritableDatabase();
+                ExpenseBatchInserter inserter = new ExpenseBatchInserter(db);
+                db.beginTransaction();
+                try {
+                    if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                        reader.beginObject();
+                        while (reader.hasNext()) {
+                            if ("expenses".equals(reader.nextName())) {
+                                insertExpenseArray(reader, inserter);
+                            } else {
+                                reader.skipValue();
+                            }
+                        }
+                        reader.endObject();
+                    } else {
+                        insertExpenseArray(reader, inserter);
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                    inserter.close();
+                    expenseCache.invalidate();
+                    itemSuggestions.invalidate();
+                }
+
+                showBatchToast("Imported", inserter);
+                StorageMetrics.rowsWritten(inserter.inserted());
+                resolve(call, inserter.toResult());
+            } catch (Exception e) {
+                // The transaction was rolled back, so a malformed file leaves nothing half-imported
+                showToast("Error importing expenses: " + e.getMessage(), false);
+                reject(call, "Error importing expenses: " + e.getMessage());
+            }
+        });
+    }
+
+    @PluginMethod
+    public void exportData(PluginCall call) {
+        String path = call.getString("path");
+        if (path == null) {
+            reject(call, "Missing required fields");
+            return;
+        }
+        JSArray tableArray = call.getArray("tables");
+        List<String> tables = new ArrayList<>();
+        try {
+            for (int i = 0; tableArray != null && i < tableArray.length(); i++) {
+                tables.add(tableArray.getString(i));
+            }
+        } catch (JSONException e) {
+            reject(call, "tables must be an array of table names");
+            return;
+        }
+        if (tables.isEmpty()) {
+            tables.add(DatabaseHelper.TABLE_EXPENSES);
+            tables.add(DatabaseHelper.TABLE_TODOS);
+        }
+
+        storage.read(call, signal -> {
+            File target = new File(path);
+            // Written beside the target and renamed at the end, so a failed export never replaces a good backup
+            File partial = new File(path + ".partial");
+            try {
+                DataTransfer.Format format = call.getString("format") != null
+                    ? DataTransfer.Format.parse(call.getString("format"))
+                    : DataTransfer.Format.forPath(path);
+                TransferProgress progress = new TransferProgress("export", signal);
+                long rows;
+                try (FileOutputStream stream = new FileOutputStream(partial);
+                     FileChannel channel = stream.getChannel();
+                     Writer writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1),
+                         TRANSFER_BUFFER_CHARS)) {
+                    rows = DataTransfer.export(new AndroidSqlDatabase(dbHelper.getReadableDatabase(), signal),
+                        writer, format, tables, progress);
+                    writer.flush();
+                    channel.force(true);
+                }
+                if (!partial.renameTo(target)) {
+                    throw new IOException("Could not replace " + path);
+                }
+                StorageMetrics.rows(rows, rows);
+
+                JSObject result = new JSObject();
+                result.put("success", true);
+                result.put("path", target.getAbsolutePath());
+                result.put("rows", rows);
+                result.put("bytes", target.length());
+                resolve(call, result);
+            } catch (Exception e) {
+                partial.delete();
+                reject(call, "Error exporting data: " + e.getMessage());
+            }
+        });
+    }
+
+    @PluginMethod
+    public void importData(PluginCall call) {
+        String path = call.getString("path");
+        if (path == null) {
+            reject(call, "Missing required fields");
+            return;
+        }
+
+        storage.write(call, signal -> {
+            DataTransfer.ImportResult imported = null;
             SQLiteDatabase db = dbHelper.getWritableDatabase();
-            ContentValues values = new ContentValues();
-            values.put(DatabaseHelper.COLUMN_EXPENSE_ITEM, item);
-            values.put(DatabaseHelper.COLUMN_EXPENSE_AMOUNT, amount);
-            values.put(DatabaseHelper.COLUMN_EXPENSE_DATE, date);
-            values.put(DatabaseHelper.COLUMN_EXPENSE_TIMESTAMP, timestamp);
+            File file = new File(path);
+            try (FileInputStream stream = new FileInputStream(file);
+                 BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8),
+                     TRANSFER_BUFFER_CHARS)) {
+                DataTransfer.Format format = call.getString("format") != null
+                    ? DataTransfer.Format.parse(call.getString("format"))
+                    : DataTransfer.Format.forPath(path);
+                FileChannel channel = stream.getChannel();
+                long size = file.length();
+                TransferProgress progress = new TransferProgress("import", signal) {
+                    @Override
+                    void addDetails(JSObject event) throws IOException {
+                        // Bytes consumed, so the UI gets a fraction even though the row count is unknown up front
+                        event.put("bytes", channel.position());
+                        event.put("totalBytes", size);
+                    }
+                };
+                imported = DataTransfer.importFrom(new AndroidSqlDatabase(db, signal), reader, format,
+                    call.getString("table", DatabaseHelper.TABLE_EXPENSES), progress);
 
-            long id = db.insert(DatabaseHelper.TABLE_EXPENSES, null, values);
-            
-            if (id != -1) {
-                showToast("Expense saved successfully!", true);
+                JSArray failures = new JSArray();
+                for (String failure : imported.failures) {
+                    failures.put(failure);
+                }
                 JSObject result = new JSObject();
                 result.put("success", true);
-                result.put("id", id);
-                call.resolve(result);
+                result.put("expenses", imported.expenses);
+                result.put("todos", imported.todos);
+                result.put("failed", imported.failed);
+                result.put("failures", failures);
+                showToast("Imported " + (imported.expenses + imported.todos) + " rows", imported.failed == 0);
+                resolve(call, result);
+            } catch (Exception e) {
+                // Batches already committed stay; the error says where reading stopped
+                showToast("Error importing data: " + e.getMessage(), false);
+                reject(call, "Error importing data: " + e.getMessage());
+            } finally {
+                expenseCache.invalidate();
+                itemSuggestions.invalidate();
+                ReminderScheduler.reschedule(getContext(), db);
+                if (imported != null) {
+                    StorageMetrics.rowsWritten(imported.expenses + imported.todos);
+                }
+            }
+        });
+    }
+
+    /**
+     * Sends "transferProgress" events, at most every PROGRESS_INTERVAL_MS,
+     * and stops the transfer when its task has been cancelled.
+     */
+    private class TransferProgress implements DataTransfer.Progress {
+        private final String operation;
+        private final CancellationSignal signal;
+        private long lastSent;
+
+        TransferProgress(String operation, CancellationSignal signal) {
+            this.operation = operation;
+            this.signal = signal;
+        }
+
+        @Override
+        public void onProgress(String table, long rows, long total) {
+            if (signal != null) {
+                signal.throwIfCanceled();
+            }
+            long now = System.currentTimeMillis();
+            if (now - lastSent < PROGRESS_INTERVAL_MS && rows != total) {
+                return;
+            }
+            lastSent = now;
+            JSObject event = new JSObject();
+            event.put("operation", operation);
+            event.put("table", table);
+            event.put("rows", rows);
+            event.put("total", total);
+            try {
+                addDetails(event);
+            } catch (IOException e) {
+                android.util.Log.d("CampusWal", "Progress details unavailable: " + e.getMessage());
+            }
+            notifyListeners("transferProgress", event);
+        }
+
+        void addDetails(JSObject event) throws IOException {
+        }
+    }
+
+    private void insertExpenseArray(JsonReader reader, ExpenseBatchInserter inserter) throws IOException {
+        int index = 0;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                inserter.insert(index, reader);
             } else {
-                showToast("Failed to save expense", false);
-                call.reject("Failed to insert expense");
+                reader.skipValue();
+                inserter.insert(index, null, null, null, null);
             }
-        } catch (Exception e) {
-            showToast("Error saving expense: " + e.getMessage(), false);
-            call.reject("Error saving expense: " + e.getMessage());
+            index++;
+        }
+        reader.endArray();
+    }
+
+    private void showBatchToast(String verb, ExpenseBatchInserter inserter) {
+        if (inserter.failed() == 0) {
+            showToast(verb + " " + inserter.inserted() + " expenses", true);
+        } else {
+            showToast(verb + " " + inserter.inserted() + " expenses, " + inserter.failed() + " failed", false);
         }
     }
 
     @PluginMethod
     public void getExpenses(PluginCall call) {
-        try {
-            String searchQuery = call.getString("search", "");
-            String timeFilter = call.getString("timeFilter", "all");
-            
-            SQLiteDatabase db = dbHelper.getReadableDatabase();
-            
-            String selection = "";
-            String[] selectionArgs = null;
+        storage.read(call, call.getString("cancelKey"), signal -> {
+            try {
+                String searchQuery = call.getString("search", "").trim();
+                String timeFilter = call.getString("timeFilter", "all");
+                Integer limit = call.getInt("limit");
+                String cursorToken = call.getString("cursor");
+                boolean jsonFormat = "json".equals(call.getString("format"));
+
+                if (limit != null && (limit <= 0 || limit > MAX_PAGE_SIZE)) {
+                    reject(call, "limit must be between 1 and " + MAX_PAGE_SIZE);
+                    return;
+                }
+
+                // Rolling windows start from a whole minute, so tab switches within it hit the cache
+                long now = System.currentTimeMillis();
+                long timeLimit = getTimeLimit(timeFilter, now - now % CACHE_TIME_BUCKET_MS);
+                String cacheKey = searchQuery + '\u0001' + timeLimit + '\u0001' + limit + '\u0001' +
+                    cursorToken + '\u0001' + jsonFormat;
+                JSObject cached = expenseCache.get(cacheKey);
+                if (cached != null) {
+                    resolve(call, cached);
+                    return;
+                }
+                long generation = expenseCache.generation();
             
-            // Build search query
-            if (!searchQuery.isEmpty()) {
-                selection = DatabaseHelper.COLUMN_EXPENSE_ITEM + " LIKE ?";
-                selectionArgs = new String[]{"%" + searchQuery + "%"};
-            }
+                SQLiteDatabase db = dbHelper.getReadableDatabase();
             
-            // Add time filter
-            long timeLimit = getTimeLimit(timeFilter);
-            if (timeLimit > 0) {
-                if (!selection.isEmpty()) {
-                    selection += " AND ";
-                }
-                selection += DatabaseHelper.COLUMN_EXPENSE_TIMESTAMP + " >= ?";
-                
-                if (selectionArgs != null) {
-                    String[] newArgs = new String[selectionArgs.length + 1];
-                    System.arraycopy(selectionArgs, 0, newArgs, 0, selectionArgs.length);
-                    newArgs[selectionArgs.length] = String.valueOf(timeLimit);
-                    selectionArgs = newArgs;
-                } else {
-                    selectionArgs = new String[]{String.valueOf(timeLimit)};
+                // Read before the rows so a later getChangesSince can only repeat changes, never miss one
+                long version = ChangeLog.currentVersion(db);
+                // Recent time filters stay on the hot table; "all" and old ranges union in the archive
+                ExpenseSelection selection = ExpenseQueries.select(new AndroidSqlDatabase(db, signal), searchQuery, timeLimit);
+
+                // Paginated mode: only one page of rows crosses the bridge
+                if (limit != null) {
+                    JSObject page = getExpensePage(db, selection, limit, cursorToken, jsonFormat, signal);
+                    page.put("version", version);
+                    expenseCache.put(cacheKey, generation, page);
+                    resolve(call, page);
+                    return;
                 }
-            }
             
-            Cursor cursor = db.query(
-                DatabaseHelper.TABLE_EXPENSES,
-                null,
-                selection,
-                selectionArgs,
-                null,
-                null,
-                DatabaseHelper.COLUMN_EXPENSE_TIMESTAMP + " DESC"
-            );
+                Cursor cursor = db.rawQuery(selection.rowsSql(EXPENSE_COLUMNS, 0), selection.args(), signal);
+
+                RowSerializer rows;
+                JSArray expenses = jsonFormat ? null : new JSArray();
+                double totalAmount = 0;
+                int count = 0;
+                try {
+                    rows = new RowSerializer(cursor, RowJson.EXPENSE);
+                    int amountIndex = rows.columnIndex(DatabaseHelper.COLUMN_EXPENSE_AMOUNT);
+                    while (cursor.moveToNext()) {
+                        if (jsonFormat) {
+                            rows.appendRow();
+                        } else {
+                            expenses.put(rows.readObject());
+                        }
+                        totalAmount += cursor.getDouble(amountIndex);
+                        count++;
+                    }
+                } finally {
+                    cursor.close();
+                }
+                StorageMetrics.rows(count, count);
 
-            JSArray expenses = new JSArray();
-            double totalAmount = 0;
+                JSObject result = new JSObject();
+                rows.putInto(result, "expenses", expenses);
+                result.put("total", totalAmount);
+                result.put("count", count);
+                result.put("version", version);
+                expenseCache.put(cacheKey, generation, result);
+                resolve(call, result);
             
+            } catch (OperationCanceledException e) {
+                reject(call, "Superseded by a newer request", StorageExecutor.SUPERSEDED);
+            } catch (Exception e) {
+                reject(call, "Error getting expenses: " + e.getMessage());
+            }
+        });
+    }
+
+    private JSObject getExpensePage(SQLiteDatabase db, ExpenseSelection selection, int limit, String cursorToken,
+                                    boolean jsonFormat, CancellationSignal signal) {
+        // Totals cover the whole filtered set, not just this page
+        long count = 0;
+        double totalAmount = 0;
+        Cursor totals = db.rawQuery(selection.totalsSql(), selection.args(), signal);
+        try {
+            if (totals.moveToFirst()) {
+                count = totals.getLong(0);
+                totalAmount = totals.getDouble(1);
+            }
+        } finally {
+            totals.close();
+        }
+
+        ExpenseSelection page = selection;
+        if (cursorToken != null && !cursorToken.isEmpty()) {
+            ExpenseCursor after = ExpenseCursor.decode(cursorToken);
+            page = selection.after(after.timestamp, after.id);
+        }
+
+        // Fetch one extra row to learn whether another page exists
+        Cursor cursor = db.rawQuery(page.rowsSql(EXPENSE_COLUMNS, limit + 1), page.args(), signal);
+
+        RowSerializer rows;
+        JSArray expenses = jsonFormat ? null : new JSArray();
+        ExpenseCursor last = null;
+        boolean hasMore = false;
+        int pageRows = 0;
+        try {
+            rows = new RowSerializer(cursor, RowJson.EXPENSE);
+            int timestampIndex = rows.columnIndex(DatabaseHelper.COLUMN_EXPENSE_TIMESTAMP);
+            int idIndex = rows.columnIndex(DatabaseHelper.COLUMN_EXPENSE_ID);
             while (cursor.moveToNext()) {
-                JSObject expense = new JSObject();
-                expense.put("id", cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_EXPENSE_ID)));
-                expense.put("item", cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_EXPENSE_ITEM)));
-                expense.put("amount", cursor.getDouble(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_EXPENSE_AMOUNT)));
-                expense.put("date", cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_EXPENSE_DATE)));
-                expense.put("timestamp", cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_EXPENSE_TIMESTAMP)));
-                
-                expenses.put(expense);
-                totalAmount += cursor.getDouble(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_EXPENSE_AMOUNT));
+                if (pageRows == limit) {
+                    hasMore = true;
+                    break;
+                }
+                if (jsonFormat) {
+                    rows.appendRow();
+                } else {
+                    expenses.put(rows.readObject());
+                }
+                pageRows++;
+                last = new ExpenseCursor(cursor.getLong(timestampIndex), cursor.getLong(idIndex));
             }
+        } finally {
             cursor.close();
+        }
+        // The COUNT/SUM above visits every matching row, not just this page
+        StorageMetrics.rows(count + pageRows, pageRows);
 
+        JSObject result = new JSObject();
+        rows.putInto(result, "expenses", expenses);
+        result.put("total", totalAmount);
+        result.put("count", count);
+        result.put("hasMore", hasMore);
+        if (hasMore) {
+            result.put("nextCursor", last.encode());
+        }
+        return result;
+    }
+
+    @PluginMethod
+    public void suggestItems(PluginCall call) {
+        String prefix = call.getString("prefix", "");
+        int limit = call.getInt("limit", 8);
+        if (limit <= 0 || limit > ItemSuggestions.MAX_LIMIT) {
+            reject(call, "limit must be between 1 and " + ItemSuggestions.MAX_LIMIT);
+            return;
+        }
+        // Once built, answered on the call thread: a keystroke never queues behind storage work
+        if (itemSuggestions.isLoaded()) {
+            onCallThread(call, () -> resolve(call, suggestionsResult(prefix, limit)));
+            return;
+        }
+
+        storage.read(call, signal -> {
+            try {
+                if (!itemSuggestions.isLoaded()) {
+                    itemSuggestions.load(new AndroidSqlDatabase(dbHelper.getReadableDatabase(), signal));
+                    StorageMetrics.rows(itemSuggestions.size(), 0);
+                }
+                resolve(call, suggestionsResult(prefix, limit));
+            } catch (Exception e) {
+                reject(call, "Error loading suggestions: " + e.getMessage());
+            }
+        });
+    }
+
+    private JSObject suggestionsResult(String prefix, int limit) {
+        JSArray items = new JSArray();
+        for (String item : itemSuggestions.suggest(prefix, limit)) {
+            items.put(item);
+        }
+        JSObject result = new JSObject();
+        result.put("items", items);
+        return result;
+    }
+
+    @PluginMethod
+    public void getCacheStats(PluginCall call) {
+        onCallThread(call, () -> resolve(call, expenseCache.stats()));
+    }
+
+    @PluginMethod
+    public void getMetrics(PluginCall call) {
+        // Answered on the call thread: reading counters never waits behind queued storage work
+        onCallThread(call, () -> {
+            StorageMetrics metrics = storage.metrics();
+            JSObject result = metrics.snapshot();
+            result.put("cache", expenseCache.stats());
+            result.put("pendingReads", storage.pendingReads());
+            result.put("pendingWrites", storage.pendingWrites());
+            if (call.getBoolean("reset", false)) {
+                metrics.reset();
+            }
+            resolve(call, result);
+        });
+    }
+
+    @PluginMethod
+    public void getDashboardSnapshot(PluginCall call) {
+        // Answered on the call thread from a mapped file: it must not wait for the database to open
+        onCallThread(call, () -> {
+            JSObject snapshot = dashboardSnapshot.read(System.currentTimeMillis());
             JSObject result = new JSObject();
-            result.put("expenses", expenses);
-            result.put("total", totalAmount);
-            result.put("count", expenses.length());
-            call.resolve(result);
-            
-        } catch (Exception e) {
-            call.reject("Error getting expenses: " + e.getMessage());
+            result.put("found", snapshot != null);
+            if (snapshot != null) {
+                result.put("snapshot", snapshot);
+            }
+            resolve(call, result);
+        });
+    }
+
+    @PluginMethod
+    public void getSummary(PluginCall call) {
+        storage.read(call, signal -> {
+            try {
+                SqlDatabase db = new AndroidSqlDatabase(dbHelper.getReadableDatabase());
+                // Same periods as the Summary cards: calendar day/month/year, rolling 7 days
+                SpendingSummary.Cards cards = SpendingSummary.cards(db, System.currentTimeMillis());
+
+                JSObject counts = new JSObject();
+                counts.put("today", cards.today.count);
+                counts.put("week", cards.week.count);
+                counts.put("month", cards.month.count);
+                counts.put("year", cards.year.count);
+
+                JSObject result = new JSObject();
+                result.put("today", cards.today.amount);
+                result.put("week", cards.week.amount);
+                result.put("month", cards.month.amount);
+                result.put("year", cards.year.amount);
+                result.put("counts", counts);
+                resolve(call, result);
+
+            } catch (Exception e) {
+                reject(call, "Error getting summary: " + e.getMessage());
+            }
+        });
+    }
+
+    @PluginMethod
+    public void getTopItems(PluginCall call) {
+        String range = call.getString("range", "month");
+        int limit = call.getInt("limit", 10);
+        if (limit <= 0 || limit > MAX_TOP_ITEMS) {
+            reject(call, "limit must be between 1 and " + MAX_TOP_ITEMS);
+            return;
         }
+
+        storage.read(call, signal -> {
+            try {
+                // Same ranges as getExpenses' timeFilter; anything else is all time
+                List<ItemDictionary.Total> totals = ItemDictionary.top(
+                    new AndroidSqlDatabase(dbHelper.getReadableDatabase(), signal),
+                    getTimeLimit(range, System.currentTimeMillis()), limit);
+
+                JSArray items = new JSArray();
+                long count = 0;
+                for (ItemDictionary.Total total : totals) {
+                    JSObject row = new JSObject();
+                    row.put("item", total.name);
+                    row.put("total", total.amount);
+                    row.put("count", total.count);
+                    items.put(row);
+                    count += total.count;
+                }
+                StorageMetrics.rows(count, totals.size());
+
+                JSObject result = new JSObject();
+                result.put("range", range);
+                result.put("items", items);
+                resolve(call, result);
+
+            } catch (Exception e) {
+                reject(call, "Error getting top items: " + e.getMessage());
+            }
+        });
     }
 
     @PluginMethod
-    public void saveTodo(PluginCall call) {
-        try {
-            String title = call.getString("title");
-            Long when = call.getLong("when");
-            String priority = call.getString("priority");
+    public void getExpenseHistogram(PluginCall call) {
+        Long from = call.getLong("from");
+        Long to = call.getLong("to");
+        String granularity = call.getString("granularity", "day");
+        if (from == null || to == null) {
+            reject(call, "from and to are required");
+            return;
+        }
 
-            if (title == null || when == null || priority == null) {
-                showToast("Missing todo data", false);
-                call.reject("Missing required fields");
-                return;
+        storage.read(call, signal -> {
+            try {
+                List<SpendingHistogram.Bucket> buckets = SpendingHistogram.histogram(
+                    new AndroidSqlDatabase(dbHelper.getReadableDatabase(), signal),
+                    from, to, SpendingHistogram.Granularity.parse(granularity));
+
+                JSArray rows = new JSArray();
+                long count = 0;
+                for (SpendingHistogram.Bucket bucket : buckets) {
+                    JSObject row = new JSObject();
+                    row.put("start", bucket.start);
+                    row.put("end", bucket.end);
+                    row.put("sum", bucket.amount);
+                    row.put("count", bucket.count);
+                    row.put("min", bucket.min != null ? bucket.min : JSONObject.NULL);
+                    row.put("max", bucket.max != null ? bucket.max : JSONObject.NULL);
+                    rows.put(row);
+                    count += bucket.count;
+                }
+                StorageMetrics.rows(count, buckets.size());
+
+                JSObject result = new JSObject();
+                result.put("granularity", granularity);
+                result.put("buckets", rows);
+                resolve(call, result);
+
+            } catch (IllegalArgumentException e) {
+                reject(call, e.getMessage());
+            } catch (Exception e) {
+                reject(call, "Error getting expense histogram: " + e.getMessage());
             }
+        });
+    }
+
+    @PluginMethod
+    public void archiveExpenses(PluginCall call) {
+        Integer olderThanDays = call.getInt("olderThanDays");
+        if (olderThanDays != null && olderThanDays < 0) {
+            reject(call, "olderThanDays must not be negative");
+            return;
+        }
+
+        storage.write(call, signal -> {
+            try {
+                SqlDatabase db = new AndroidSqlDatabase(dbHelper.getWritableDatabase());
+                // A given age becomes the policy that idle maintenance keeps applying; 0 turns it off
+                if (olderThanDays != null) {
+                    StorageSettings.putLong(db, ExpenseArchive.KEY_OLDER_THAN_DAYS, olderThanDays);
+                }
+                long moved = ExpenseArchive.applyPolicy(db, System.currentTimeMillis());
+                if (moved > 0) {
+                    expenseCache.invalidate();
+                }
+                android.util.Log.d("CampusWal", "Archived " + moved + " expenses");
 
-            SQLiteDatabase db = dbHelper.getWritableDatabase();
-            ContentValues values = new ContentValues();
-            values.put(DatabaseHelper.COLUMN_TODO_TITLE, title);
-            values.put(DatabaseHelper.COLUMN_TODO_WHEN, when);
-            values.put(DatabaseHelper.COLUMN_TODO_PRIORITY, priority);
-            values.put(DatabaseHelper.COLUMN_TODO_DONE, 0);
-            values.put(DatabaseHelper.COLUMN_TODO_NOTIFIED, 0);
-
-            long id = db.insert(DatabaseHelper.TABLE_TODOS, null, values);
-            
-            if (id != -1) {
-                showToast("Todo saved successfully!", true);
-                
-                // Schedule notification
-                scheduleNotification(title, when, (int) id);
-                
                 JSObject result = new JSObject();
-                result.put("success", true);
-                result.put("id", id);
-                call.resolve(result);
-            } else {
-                showToast("Failed to save todo", false);
-                call.reject("Failed to insert todo");
+                result.put("moved", moved);
+                result.put("olderThanDays", StorageSettings.getLong(db, ExpenseArchive.KEY_OLDER_THAN_DAYS, 0));
+                result.put("archivedBefore", ExpenseArchive.archivedBefore(db));
+                resolve(call, result);
+
+            } catch (Exception e) {
+                reject(call, "Error archiving expenses: " + e.getMessage());
             }
-        } catch (Exception e) {
-            showToast("Error saving todo: " + e.getMessage(), false);
-            call.reject("Error saving todo: " + e.getMessage());
+        });
+    }
+
+    @PluginMethod
+    public void runMaintenance(PluginCall call) {
+        Long budgetMs = call.getLong("budgetMs", DEFAULT_MAINTENANCE_BUDGET_MS);
+        if (budgetMs == null || budgetMs <= 0 || budgetMs > MAX_MAINTENANCE_BUDGET_MS) {
+            reject(call, "budgetMs must be between 1 and " + MAX_MAINTENANCE_BUDGET_MS);
+            return;
         }
+
+        storage.write(call, signal -> {
+            try {
+                // Same run as the idle scheduler's: only due tasks, and it still gives way to queued calls
+                resolve(call, IdleMaintenance.toResult(maintenance.run(budgetMs)));
+            } catch (Exception e) {
+                reject(call, "Error running maintenance: " + e.getMessage());
+            }
+        });
     }
 
     @PluginMethod
-    public void getTodos(PluginCall call) {
-        try {
-            SQLiteDatabase db = dbHelper.getReadableDatabase();
-            
-            Cursor cursor = db.query(
-                DatabaseHelper.TABLE_TODOS,
-                null,
-                null,
-                null,
-                null,
-                null,
-                DatabaseHelper.COLUMN_TODO_WHEN + " ASC"
-            );
+    public void getMaintenanceStats(PluginCall call) {
+        storage.read(call, signal -> {
+            try {
+                resolve(call, maintenance.stats(dbHelper.getReadableDatabase()));
+            } catch (Exception e) {
+                reject(call, "Error getting maintenance stats: " + e.getMessage());
+            }
+        });
+    }
 
-            JSArray todos = new JSArray();
-            
-            while (cursor.moveToNext()) {
-                JSObject todo = new JSObject();
-                todo.put("id", cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_TODO_ID)));
-                todo.put("title", cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_TODO_TITLE)));
-                todo.put("when", cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_TODO_WHEN)));
-                todo.put("priority", cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_TODO_PRIORITY)));
-                todo.put("done", cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_TODO_DONE)) == 1);
-                todo.put("notified", cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_TODO_NOTIFIED)) == 1);
-                todo.put("doneAt", cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_TODO_DONE_AT)));
-                
-                todos.put(todo);
+    @PluginMethod
+    public void saveTodo(PluginCall call) {
+        String title = call.getString("title");
+        Long when = call.getLong("when");
+        String priority = call.getString("priority");
+
+        if (title == null || when == null || priority == null) {
+            showToast("Missing todo data", false);
+            reject(call, "Missing required fields");
+            return;
+        }
+
+        // The repository stores a time already past as notified, so it never fires
+        Todo todo = new Todo(title, when, priority);
+
+        GroupCommit group = groupCommit;
+        if (group != null) {
+            group.submit(db -> new SqlStorageRepository(db).saveTodo(todo),
+                settle(call, id -> finishSaveTodo(call, id), "Error saving todo: "));
+            return;
+        }
+
+        storage.write(call, signal -> {
+            try {
+                long id = new SqlStorageRepository(new AndroidSqlDatabase(dbHelper.getWritableDatabase()))
+                    .saveTodo(todo);
+                finishSaveTodo(call, id);
+            } catch (Exception e) {
+                showToast("Error saving todo: " + e.getMessage(), false);
+                reject(call, "Error saving todo: " + e.getMessage());
             }
-            cursor.close();
+        });
+    }
+
+    private void finishSaveTodo(PluginCall call, long id) {
+        StorageMetrics.rowsWritten(id != -1 ? 1 : 0);
+
+        if (id != -1) {
+            showToast("Todo saved successfully!", true);
+
+            // Moves the reminder alarm earlier if this todo is now the next one due
+            remindersStale = true;
 
             JSObject result = new JSObject();
-            result.put("todos", todos);
-            call.resolve(result);
-            
-        } catch (Exception e) {
-            call.reject("Error getting todos: " + e.getMessage());
+            result.put("success", true);
+            result.put("id", id);
+            resolve(call, result);
+        } else {
+            showToast("Failed to save todo", false);
+            reject(call, "Failed to insert todo");
         }
     }
 
+    /**
+     * Turns group commit on with the given window and group size, or off with
+     * windowMs 0. While on, saveExpense and saveTodo queue their inserts and
+     * each call resolves once the transaction holding it has committed.
+     */
     @PluginMethod
-    public void updateTodo(PluginCall call) {
+    public void setGroupCommit(PluginCall call) {
+        int windowMs = call.getInt("windowMs", 0);
+        int maxWrites = call.getInt("maxWrites", DEFAULT_GROUP_WRITES);
+        if (windowMs < 0 || windowMs > MAX_GROUP_WINDOW_MS) {
+            reject(call, "windowMs must be between 0 and " + MAX_GROUP_WINDOW_MS);
+            return;
+        }
+        if (maxWrites < 1 || maxWrites > MAX_PAGE_SIZE) {
+            reject(call, "maxWrites must be between 1 and " + MAX_PAGE_SIZE);
+            return;
+        }
+
+        // On the writer, so saves queued before the switch keep the mode they were sent under
+        storage.write(call, signal -> {
+            try {
+                groupCommit = windowMs == 0 ? null : new GroupCommit(
+                    new AndroidSqlDatabase(dbHelper.getWritableDatabase()),
+                    storage.writerFor("groupCommit"), groupTimer, windowMs, maxWrites);
+                JSObject result = new JSObject();
+                result.put("success", true);
+                result.put("enabled", windowMs > 0);
+                resolve(call, result);
+            } catch (Exception e) {
+                reject(call, "Error setting group commit: " + e.getMessage());
+            }
+        });
+    }
+
+    private GroupCommit.Callback settle(PluginCall call, LongConsumer onCommit, String errorPrefix) {
+        // Each grouped save is its own sample, timed from submit, inside the flush's "groupCommit" one
+        StorageMetrics.Sample sample = new StorageMetrics.Sample(call.getMethodName());
+        return new GroupCommit.Callback() {
+            @Override
+            public void committed(long id) {
+                storage.metrics().record(sample, () -> onCommit.accept(id));
+            }
+
+            @Override
+            public void failed(Exception error) {
+                if (error instanceof RejectedExecutionException) {
+                    storage.metrics().dropped(call.getMethodName(), true);
+                    call.reject("Storage is busy, try again", StorageExecutor.BUSY);
+                    return;
+                }
+                storage.metrics().record(sample, () -> {
+                    showToast(errorPrefix + error.getMessage(), false);
+                    reject(call, errorPrefix + error.getMessage());
+                });
+            }
+        };
+    }
+
+    @PluginMethod
+    public void getTodos(PluginCall call) {
+        TodoQueries.View view;
         try {
-            Long id = call.getLong("id");
-            Boolean done = call.getBoolean("done");
-            Long doneAt = call.getLong("doneAt");
-            Long when = call.getLong("when");
+            view = TodoQueries.View.parse(call.getString("view", "all"));
+        } catch (IllegalArgumentException e) {
+            reject(call, e.getMessage());
+            return;
+        }
+        int limit = call.getInt("limit", 0);
+        if (limit < 0 || limit > MAX_PAGE_SIZE) {
+            reject(call, "limit must be between 0 (no limit) and " + MAX_PAGE_SIZE);
+            return;
+        }
+        if (view == TodoQueries.View.DUE && call.getLong("to") == null) {
+            reject(call, "to is required for the due view");
+            return;
+        }
 
-            SQLiteDatabase db = dbHelper.getWritableDatabase();
-            ContentValues values = new ContentValues();
+        storage.read(call, signal -> {
+            try {
+                SQLiteDatabase db = dbHelper.getReadableDatabase();
+                long version = ChangeLog.currentVersion(db);
+
+                // Windows default to starting or ending now; completed todos default to all time
+                long now = System.currentTimeMillis();
+                long from = call.getLong("from", view == TodoQueries.View.DUE ? now : 0L);
+                long to = call.getLong("to", now);
+                TodoQueries.Query query = TodoQueries.query(view, "*", from, to, limit);
+                Cursor cursor = db.rawQuery(query.sql, query.args, signal);
+
+                boolean jsonFormat = "json".equals(call.getString("format"));
+                RowSerializer rows;
+                JSArray todos = jsonFormat ? null : new JSArray();
+                try {
+                    rows = new RowSerializer(cursor, RowJson.TODO);
+                    while (cursor.moveToNext()) {
+                        if (jsonFormat) {
+                            rows.appendRow();
+                        } else {
+                            todos.put(rows.readObject());
+                        }
+                    }
+                    StorageMetrics.rows(cursor.getCount(), cursor.getCount());
+                } finally {
+                    cursor.close();
+                }
+
+                JSObject result = new JSObject();
+                rows.putInto(result, "todos", todos);
+                result.put("version", version);
+                resolve(call, result);
             
-            if (done != null) {
-                values.put(DatabaseHelper.COLUMN_TODO_DONE, done ? 1 : 0);
-                
-                // Cancel notification if todo is marked as done
-                if (done) {
-                    cancelNotification(id.intValue());
+            } catch (Exception e) {
+                reject(call, "Error getting todos: " + e.getMessage());
+            }
+        });
+    }
+
+    @PluginMethod
+    public void getChangesSince(PluginCall call) {
+        storage.read(call, call.getString("cancelKey"), signal -> {
+            try {
+                String table = call.getString("table");
+                Long since = call.getLong("since");
+                int limit = call.getInt("limit", MAX_PAGE_SIZE);
+                boolean jsonFormat = "json".equals(call.getString("format"));
+
+                if (!DatabaseHelper.TABLE_EXPENSES.equals(table) && !DatabaseHelper.TABLE_TODOS.equals(table)) {
+                    reject(call, "table must be \"" + DatabaseHelper.TABLE_EXPENSES +
+                        "\" or \"" + DatabaseHelper.TABLE_TODOS + "\"");
+                    return;
+                }
+                if (since == null || since < 0) {
+                    reject(call, "since must be a version from a previous load or sync");
+                    return;
+                }
+                if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+                    reject(call, "limit must be between 1 and " + MAX_PAGE_SIZE);
+                    return;
                 }
+
+                SQLiteDatabase db = dbHelper.getReadableDatabase();
+                resolve(call, ChangeLog.changesSince(db, table, since, limit, jsonFormat, signal));
+
+            } catch (OperationCanceledException e) {
+                reject(call, "Superseded by a newer request", StorageExecutor.SUPERSEDED);
+            } catch (Exception e) {
+                reject(call, "Error getting changes: " + e.getMessage());
             }
-            if (doneAt != null) {
-                values.put(DatabaseHelper.COLUMN_TODO_DONE_AT, doneAt);
+        });
+    }
+
+    @PluginMethod
+    public void updateTodo(PluginCall call) {
+        storage.write(call, signal -> {
+            try {
+                Long id = call.getLong("id");
+                Boolean done = call.getBoolean("done");
+                Long doneAt = call.getLong("doneAt");
+                Long when = call.getLong("when");
+                if (id == null || (done == null && doneAt == null && when == null)) {
+                    reject(call, "Missing required fields");
+                    return;
+                }
+
+                // A new time re-arms the reminder unless it has already passed
+                SQLiteDatabase db = dbHelper.getWritableDatabase();
+                boolean updated = new SqlStorageRepository(new AndroidSqlDatabase(db))
+                    .updateTodo(id, done, doneAt, when);
+                StorageMetrics.rowsWritten(updated ? 1 : 0);
+
+                if (updated) {
+                    // Done or rescheduled todos may change which reminder is next
+                    ReminderScheduler.reschedule(getContext(), db);
+                    showToast("Todo updated successfully!", true);
+                    JSObject result = new JSObject();
+                    result.put("success", true);
+                    resolve(call, result);
+                } else {
+                    showToast("Failed to update todo", false);
+                    reject(call, "Failed to update todo");
+                }
+            } catch (Exception e) {
+                showToast("Error updating todo: " + e.getMessage(), false);
+                reject(call, "Error updating todo: " + e.getMessage());
             }
-            if (when != null) {
-                values.put(DatabaseHelper.COLUMN_TODO_WHEN, when);
-                values.put(DatabaseHelper.COLUMN_TODO_NOTIFIED, 0); // Reset notification status
-                
-                // Reschedule notification with new time
-                String title = getTodoTitle(db, id);
-                if (title != null) {
-                    scheduleNotification(title, when, id.intValue());
+        });
+    }
+
+    @PluginMethod
+    public void updateTodos(PluginCall call) {
+        storage.write(call, signal -> {
+            try {
+                JSArray todos = call.getArray("todos");
+                if (todos == null) {
+                    reject(call, "Missing required fields");
+                    return;
                 }
+
+                SQLiteDatabase db = dbHelper.getWritableDatabase();
+                TodoBatch batch = new TodoBatch(db);
+                // One transaction and one alarm update however many todos change
+                db.beginTransaction();
+                try {
+                    for (int i = 0; i < todos.length(); i++) {
+                        JSONObject todo = todos.optJSONObject(i);
+                        if (todo == null) {
+                            batch.update(i, null, null, null, null);
+                            continue;
+                        }
+                        Object done = todo.opt("done");
+                        batch.update(i,
+                            longOrNull(todo.opt("id")),
+                            done instanceof Boolean ? (Boolean) done : null,
+                            longOrNull(todo.opt("doneAt")),
+                            longOrNull(todo.opt("when")));
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                    batch.close();
+                }
+
+                finishTodoBatch(db, batch, "Updated");
+                resolve(call, batch.toResult());
+            } catch (Exception e) {
+                showToast("Error updating todos: " + e.getMessage(), false);
+                reject(call, "Error updating todos: " + e.getMessage());
             }
+        });
+    }
 
-            int rowsAffected = db.update(
-                DatabaseHelper.TABLE_TODOS,
-                values,
-                DatabaseHelper.COLUMN_TODO_ID + " = ?",
-                new String[]{String.valueOf(id)}
-            );
+    @PluginMethod
+    public void deleteTodos(PluginCall call) {
+        storage.write(call, signal -> {
+            try {
+                JSArray ids = call.getArray("ids");
+                if (ids == null) {
+                    reject(call, "Missing required fields");
+                    return;
+                }
 
-            if (rowsAffected > 0) {
-                showToast("Todo updated successfully!", true);
-                JSObject result = new JSObject();
-                result.put("success", true);
-                call.resolve(result);
-            } else {
-                showToast("Failed to update todo", false);
-                call.reject("Failed to update todo");
-            }
-        } catch (Exception e) {
-            showToast("Error updating todo: " + e.getMessage(), false);
-            call.reject("Error updating todo: " + e.getMessage());
-        }
-    }
-
-    private String getTodoTitle(SQLiteDatabase db, Long id) {
-        Cursor cursor = db.query(
-            DatabaseHelper.TABLE_TODOS,
-            new String[]{DatabaseHelper.COLUMN_TODO_TITLE},
-            DatabaseHelper.COLUMN_TODO_ID + " = ?",
-            new String[]{String.valueOf(id)},
-            null, null, null
-        );
-        
-        if (cursor.moveToFirst()) {
-            String title = cursor.getString(0);
-            cursor.close();
-            return title;
+                SQLiteDatabase db = dbHelper.getWritableDatabase();
+                TodoBatch batch = new TodoBatch(db);
+                db.beginTransaction();
+                try {
+                    for (int i = 0; i < ids.length(); i++) {
+                        batch.delete(i, longOrNull(ids.opt(i)));
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                    batch.close();
+                }
+
+                finishTodoBatch(db, batch, "Deleted");
+                resolve(call, batch.toResult());
+            } catch (Exception e) {
+                showToast("Error deleting todos: " + e.getMessage(), false);
+                reject(call, "Error deleting todos: " + e.getMessage());
+            }
+        });
+    }
+
+    private void finishTodoBatch(SQLiteDatabase db, TodoBatch batch, String verb) {
+        StorageMetrics.rowsWritten(batch.changed());
+        if (batch.changed() > 0) {
+            ReminderScheduler.reschedule(getContext(), db);
+        }
+        if (batch.failed() == 0) {
+            showToast(verb + " " + batch.changed() + " todos", true);
+        } else {
+            showToast(verb + " " + batch.changed() + " todos, " + batch.failed() + " failed", false);
         }
-        cursor.close();
-        return null;
     }
 
-    private long getTimeLimit(String timeFilter) {
-        long now = System.currentTimeMillis();
+    private static Long longOrNull(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : null;
+    }
+
+    private long getTimeLimit(String timeFilter, long now) {
         switch (timeFilter) {
             case "today":
                 return now - (24 * 60 * 60 * 1000); // 24 hours ago
@@ -340,109 +1224,84 @@ public class SQLiteStoragePlugin extends Plugin {
         }
     }
 
-    private void showToast(String message, boolean isSuccess) {
-        getActivity().runOnUiThread(() -> {
-            Toast.makeText(getContext(), message, Toast.LENGTH_SHORT).show();
-        });
+    // Calls settle through these so the storage metrics see each outcome and payload size
+    private void resolve(PluginCall call, JSObject result) {
+        StorageMetrics.Sample sample = StorageMetrics.current();
+        if (sample == null) {
+            onCallThread(call, () -> resolve(call, result));
+            return;
+        }
+        sample.bytes += StorageMetrics.payloadBytes(result);
+        call.resolve(result);
     }
 
-    private void scheduleNotification(String title, long when, int todoId) {
-        try {
-            long currentTime = System.currentTimeMillis();
-            
-            // Only schedule if the time is in the future
-            if (when <= currentTime) {
-                android.util.Log.d("CampusWal", "Todo time is in the past, not scheduling notification");
-                return;
-            }
-            
-            AlarmManager alarmManager = (AlarmManager) getContext().getSystemService(Context.ALARM_SERVICE);
-            
-            Intent intent = new Intent(getContext(), TodoNotificationReceiver.class);
-            intent.putExtra("todo_title", title);
-            intent.putExtra("todo_id", todoId);
-            
-            PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                getContext(),
-                todoId, // Use todoId as request code to make it unique
-                intent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-            );
-            
-            // Schedule the alarm
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, when, pendingIntent);
-            } else {
-                alarmManager.setExact(AlarmManager.RTC_WAKEUP, when, pendingIntent);
-            }
-            
-            android.util.Log.d("CampusWal", "Scheduled notification for: " + title + " at " + when);
-            
-        } catch (Exception e) {
-            android.util.Log.e("CampusWal", "Failed to schedule notification: " + e.getMessage());
-        }
+    private void reject(PluginCall call, String message) {
+        reject(call, message, null);
     }
 
-    private void cancelNotification(int todoId) {
-        try {
-            AlarmManager alarmManager = (AlarmManager) getContext().getSystemService(Context.ALARM_SERVICE);
-            
-            Intent intent = new Intent(getContext(), TodoNotificationReceiver.class);
-            PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                getContext(),
-                todoId,
-                intent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-            );
-            
-            alarmManager.cancel(pendingIntent);
-            android.util.Log.d("CampusWal", "Cancelled notification for todo ID: " + todoId);
-            
-        } catch (Exception e) {
-            android.util.Log.e("CampusWal", "Failed to cancel notification: " + e.getMessage());
+    private void reject(PluginCall call, String message, String code) {
+        StorageMetrics.Sample sample = StorageMetrics.current();
+        if (sample == null) {
+            // Settled before reaching storage, e.g. failed validation: still a call in the metrics
+            onCallThread(call, () -> reject(call, message, code));
+            return;
         }
+        sample.failed = true;
+        sample.superseded = StorageExecutor.SUPERSEDED.equals(code);
+        call.reject(message, code);
+    }
+
+    // Times a call settled on the calling thread, which no storage task measures
+    private void onCallThread(PluginCall call, Runnable work) {
+        storage.metrics().record(new StorageMetrics.Sample(call.getMethodName()), work);
     }
 
-    // Broadcast receiver for handling scheduled notifications
+    private void showToast(String message, boolean isSuccess) {
+        getActivity().runOnUiThread(() -> {
+            Toast.makeText(getContext(), message, Toast.LENGTH_SHORT).show();
+        });
+    }
+
+    // Fired by the single reminder alarm; delivers everything due and re-arms
     public static class TodoNotificationReceiver extends BroadcastReceiver {
         @Override
         public void onReceive(Context context, Intent intent) {
-            String todoTitle = intent.getStringExtra("todo_title");
-            int todoId = intent.getIntExtra("todo_id", 0);
-            
-            showNotification(context, todoTitle, todoId);
+            PendingResult pending = goAsync();
+            new Thread(() -> {
+                try {
+                    SQLiteDatabase db = DatabaseHelper.getInstance(context).getWritableDatabase();
+                    ReminderScheduler.deliverDue(context, db);
+                } catch (Exception e) {
+                    android.util.Log.e("CampusWal", "Failed to deliver reminders: " + e.getMessage());
+                } finally {
+                    pending.finish();
+                }
+            }, "CampusWal-reminders").start();
         }
-        
-        private void showNotification(Context context, String title, int todoId) {
-            try {
-                Intent appIntent = new Intent(context, MainActivity.class);
-                appIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
-                
-                PendingIntent pendingIntent = PendingIntent.getActivity(
-                    context,
-                    todoId,
-                    appIntent,
-                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-                );
-                
-                NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
-                    .setSmallIcon(android.R.drawable.ic_dialog_info) // You can replace with your app icon
-                    .setContentTitle("⏰ Todo Reminder")
-                    .setContentText(title)
-                    .setPriority(NotificationCompat.PRIORITY_HIGH)
-                    .setDefaults(NotificationCompat.DEFAULT_ALL)
-                    .setAutoCancel(true)
-                    .setContentIntent(pendingIntent)
-                    .setVibrate(new long[]{0, 250, 250, 250});
-                
-                NotificationManagerCompat notificationManager = NotificationManagerCompat.from(context);
-                notificationManager.notify(todoId, builder.build());
-                
-                android.util.Log.d("CampusWal", "Notification shown for: " + title);
-                
-            } catch (Exception e) {
-                android.util.Log.e("CampusWal", "Failed to show notification: " + e.getMessage());
+    }
+
+    // Alarms don't survive a reboot or an app update, so arm the next one again
+    public static class ReminderRebuildReceiver extends BroadcastReceiver {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            String action = intent.getAction();
+            if (!Intent.ACTION_BOOT_COMPLETED.equals(action) &&
+                    !Intent.ACTION_MY_PACKAGE_REPLACED.equals(action)) {
+                return;
             }
+            PendingResult pending = goAsync();
+            new Thread(() -> {
+                try {
+                    SQLiteDatabase db = DatabaseHelper.getInstance(context).getWritableDatabase();
+                    ReminderScheduler.reset();
+                    // Anything that fell due while the phone was off goes out now
+                    ReminderScheduler.deliverDue(context, db);
+                } catch (Exception e) {
+                    android.util.Log.e("CampusWal", "Failed to rebuild reminders: " + e.getMessage());
+                } finally {
+                    pending.finish();
+                }
+            }, "CampusWal-reminders").start();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,190 @@
+package com.peras.campuswal;
+
+import android.os.CancellationSignal;
+
+import com.getcapacitor.PluginCall;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs database work off the plugin call thread: a single writer so
+ * transactions never contend, and a small reader pool that WAL lets run
+ * alongside it. Both queues are bounded; a full queue rejects the call
+ * instead of letting work pile up behind a slow query.
+ */
+final class StorageExecutor {
+
+    /** Reject code for calls replaced by a newer call with the same cancel key. */
+    static final String SUPERSEDED = "SUPERSEDED";
+    static final String BUSY = "BUSY";
+
+    private static final int READER_THREADS = 3;
+    private static final int READ_QUEUE_CAPACITY = 32;
+    private static final int WRITE_QUEUE_CAPACITY = 64;
+
+    interface Task {
+        void run(CancellationSignal signal);
+    }
+
+    private final ThreadPoolExecutor writer;
+    private final ThreadPoolExecutor readers;
+    private final ConcurrentHashMap<String, Job> latestByKey = new ConcurrentHashMap<>();
+    private final StorageMetrics metrics = new StorageMetrics();
+    private final Runnable afterWrite;
+
+    /** afterWrite runs on the writer thread after every write task, e.g. to mark derived files stale. */
+    StorageExecutor(Runnable afterWrite) {
+        this.afterWrite = afterWrite;
+        writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(WRITE_QUEUE_CAPACITY), threads("CampusWal-db-writer"));
+        readers = new ThreadPoolExecutor(READER_THREADS, READER_THREADS, 30, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(READ_QUEUE_CAPACITY), threads("CampusWal-db-reader"));
+        readers.allowCoreThreadTimeOut(true);
+    }
+
+    void read(PluginCall call, Task task) {
+        submit(readers, call, null, task);
+    }
+
+    /**
+     * Like {@link #read(PluginCall, Task)}, but a later call with the same key
+     * cancels this one: dropped from the queue if it hasn't started, or its
+     * query interrupted through the CancellationSignal if it has.
+     */
+    void read(PluginCall call, String cancelKey, Task task) {
+        submit(readers, call, cancelKey, task);
+    }
+
+    void write(PluginCall call, Task task) {
+        submit(writer, call, null, task);
+    }
+
+    /**
+     * The writer thread as a plain Executor, for write work that settles its
+     * own calls, such as a group commit. Timed in the metrics under name;
+     * a full queue throws RejectedExecutionException.
+     */
+    Executor writerFor(String name) {
+        return work -> {
+            Job job = new Job(writer, name, null, null, signal -> work.run());
+            try {
+                writer.execute(job);
+            } catch (RejectedExecutionException e) {
+                metrics.dropped(name, true);
+                throw e;
+            }
+        };
+    }
+
+    StorageMetrics metrics() {
+        return metrics;
+    }
+
+    int pendingReads() {
+        return readers.getQueue().size();
+    }
+
+    int pendingWrites() {
+        return writer.getQueue().size();
+    }
+
+    /** Whether a read is queued or running, or a write is queued behind the current one. */
+    boolean busy() {
+        return readers.getActiveCount() > 0 || pendingReads() > 0 || pendingWrites() > 0;
+    }
+
+    void shutdown() {
+        readers.shutdown();
+        writer.shutdown();
+    }
+
+    private void submit(ThreadPoolExecutor pool, PluginCall call, String cancelKey, Task task) {
+        Job job = new Job(pool, call.getMethodName(), call, cancelKey, task);
+        if (cancelKey != null) {
+            Job previous = latestByKey.put(cancelKey, job);
+            if (previous != null) {
+                previous.supersede();
+            }
+        }
+        try {
+            pool.execute(job);
+        } catch (RejectedExecutionException e) {
+            job.finish();
+            metrics.dropped(call.getMethodName(), true);
+            call.reject("Storage is busy, try again", BUSY);
+        }
+    }
+
+    private final class Job implements Runnable {
+        private static final int PENDING = 0;
+        private static final int RUNNING = 1;
+        private static final int CANCELLED = 2;
+
+        private final ThreadPoolExecutor pool;
+        private final PluginCall call;
+        private final String cancelKey;
+        private final Task task;
+        private final CancellationSignal signal = new CancellationSignal();
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        private final StorageMetrics.Sample sample;
+
+        Job(ThreadPoolExecutor pool, String name, PluginCall call, String cancelKey, Task task) {
+            this.pool = pool;
+            this.call = call;
+            this.cancelKey = cancelKey;
+            this.task = task;
+            this.sample = new StorageMetrics.Sample(name);
+        }
+
+        @Override
+        public void run() {
+            if (!state.compareAndSet(PENDING, RUNNING)) {
+                return;
+            }
+            metrics.begin(sample);
+            try {
+                task.run(signal);
+            } finally {
+                metrics.end(sample);
+                finish();
+                if (pool == writer && afterWrite != null) {
+                    afterWrite.run();
+                }
+            }
+        }
+
+        void supersede() {
+            if (state.compareAndSet(PENDING, CANCELLED)) {
+                // Never started, so nobody else will settle the call; free its queue slot too
+                pool.remove(this);
+                metrics.dropped(call.getMethodName(), false);
+                call.reject("Superseded by a newer request", SUPERSEDED);
+            } else {
+                // Already running: the task sees OperationCanceledException and rejects itself
+                signal.cancel();
+            }
+        }
+
+        void finish() {
+            if (cancelKey != null) {
+                latestByKey.remove(cancelKey, this);
+            }
+        }
+    }
+
+    private static ThreadFactory threads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        };
+    }
+}
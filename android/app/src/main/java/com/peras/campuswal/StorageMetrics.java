@@ -0,0 +1,247 @@
+package com.peras.campuswal;
+
+import com.getcapacitor.JSObject;
+
+import org.json.JSONArray;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-method latency histograms and counters for plugin calls. Recording is
+ * a handful of lock-free increments per call, so it stays on in release
+ * builds. StorageExecutor opens a Sample around each task; the plugin adds
+ * row counts and the outcome to it from the worker thread, and opens its
+ * own for calls answered on the calling thread and for each grouped save.
+ */
+final class StorageMetrics {
+
+    // Rough serialized size of one row held as a JSObject
+    private static final int OBJECT_ROW_BYTES = 96;
+
+    private static final ThreadLocal<Sample> CURRENT = new ThreadLocal<>();
+
+    private final ConcurrentHashMap<String, MethodStats> methods = new ConcurrentHashMap<>();
+    private volatile long since = System.currentTimeMillis();
+
+    /** What one call did; filled in by the task while it runs on the worker thread. */
+    static final class Sample {
+        final String method;
+        final long queuedAt;
+        long startedAt;
+        long rowsScanned;
+        long rowsReturned;
+        long rowsWritten;
+        long bytes;
+        boolean failed;
+        boolean superseded;
+        // The sample this one was opened inside of on the same thread, restored when it ends
+        private Sample outer;
+
+        Sample(String method) {
+            this.method = method != null ? method : "unknown";
+            this.queuedAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * Latency histogram with four buckets per power of two, from 64µs up to
+     * about two minutes, so percentiles are accurate to within 25%.
+     */
+    static final class Histogram {
+        private static final int MIN_SHIFT = 6;
+        private static final int BUCKETS = 85;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+        void record(long micros) {
+            counts.incrementAndGet(bucketFor(micros));
+        }
+
+        /** Upper bound, in microseconds, of the bucket holding the given percentile. */
+        long percentile(double percentile) {
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                total += counts.get(i);
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(percentile / 100 * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts.get(i);
+                if (seen >= rank) {
+                    return upperBound(i);
+                }
+            }
+            return upperBound(BUCKETS - 1);
+        }
+
+        static int bucketFor(long micros) {
+            if (micros < (1L << MIN_SHIFT)) {
+                return 0;
+            }
+            int log2 = 63 - Long.numberOfLeadingZeros(micros);
+            int quarter = (int) (micros >> (log2 - 2)) & 3;
+            return Math.min(BUCKETS - 1, (log2 - MIN_SHIFT) * 4 + quarter + 1);
+        }
+
+        static long upperBound(int bucket) {
+            if (bucket == 0) {
+                return 1L << MIN_SHIFT;
+            }
+            int log2 = (bucket - 1) / 4 + MIN_SHIFT;
+            int quarter = (bucket - 1) % 4;
+            return (long) (5 + quarter) << (log2 - 2);
+        }
+    }
+
+    private static final class MethodStats {
+        final Histogram latency = new Histogram();
+        final LongAdder calls = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder superseded = new LongAdder();
+        final LongAdder rejectedBusy = new LongAdder();
+        final LongAdder queueMicros = new LongAdder();
+        final LongAdder rowsScanned = new LongAdder();
+        final LongAdder rowsReturned = new LongAdder();
+        final LongAdder rowsWritten = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final AtomicLong maxMicros = new AtomicLong();
+    }
+
+    /** The sample for the task running on this thread, or null outside a storage task. */
+    static Sample current() {
+        return CURRENT.get();
+    }
+
+    static void rows(long scanned, long returned) {
+        Sample sample = CURRENT.get();
+        if (sample != null) {
+            sample.rowsScanned += scanned;
+            sample.rowsReturned += returned;
+        }
+    }
+
+    static void rowsWritten(long written) {
+        Sample sample = CURRENT.get();
+        if (sample != null) {
+            sample.rowsWritten += written;
+        }
+    }
+
+    /** Cheap estimate of the JSON a result becomes on the bridge, without serializing it. */
+    static long payloadBytes(JSObject result) {
+        long size = 2;
+        Iterator<String> keys = result.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            Object value = result.opt(key);
+            size += key.length() + 4;
+            if (value instanceof String) {
+                size += ((String) value).length();
+            } else if (value instanceof JSONArray) {
+                size += (long) ((JSONArray) value).length() * OBJECT_ROW_BYTES;
+            } else {
+                size += 8;
+            }
+        }
+        return size;
+    }
+
+    void begin(Sample sample) {
+        sample.startedAt = System.nanoTime();
+        sample.outer = CURRENT.get();
+        CURRENT.set(sample);
+    }
+
+    void end(Sample sample) {
+        if (sample.outer != null) {
+            CURRENT.set(sample.outer);
+            sample.outer = null;
+        } else {
+            CURRENT.remove();
+        }
+        long now = System.nanoTime();
+        MethodStats stats = stats(sample.method);
+        long micros = (now - sample.queuedAt) / 1000;
+        stats.calls.increment();
+        stats.latency.record(micros);
+        stats.queueMicros.add((sample.startedAt - sample.queuedAt) / 1000);
+        stats.maxMicros.accumulateAndGet(micros, Math::max);
+        stats.rowsScanned.add(sample.rowsScanned);
+        stats.rowsReturned.add(sample.rowsReturned);
+        stats.rowsWritten.add(sample.rowsWritten);
+        stats.bytes.add(sample.bytes);
+        if (sample.superseded) {
+            stats.superseded.increment();
+        } else if (sample.failed) {
+            stats.errors.increment();
+        }
+    }
+
+    /** Runs work with sample as the current one, then records it. */
+    void record(Sample sample, Runnable work) {
+        begin(sample);
+        try {
+            work.run();
+        } finally {
+            end(sample);
+        }
+    }
+
+    /** A call dropped before it ran: superseded while queued, or refused by a full queue. */
+    void dropped(String method, boolean busy) {
+        MethodStats stats = stats(method != null ? method : "unknown");
+        if (busy) {
+            stats.rejectedBusy.increment();
+        } else {
+            stats.superseded.increment();
+        }
+    }
+
+    JSObject snapshot() {
+        JSObject result = new JSObject();
+        for (Map.Entry<String, MethodStats> entry : methods.entrySet()) {
+            MethodStats stats = entry.getValue();
+            long calls = stats.calls.sum();
+            JSObject method = new JSObject();
+            method.put("calls", calls);
+            method.put("errors", stats.errors.sum());
+            method.put("superseded", stats.superseded.sum());
+            method.put("busy", stats.rejectedBusy.sum());
+            method.put("p50Ms", stats.latency.percentile(50) / 1000.0);
+            method.put("p95Ms", stats.latency.percentile(95) / 1000.0);
+            method.put("p99Ms", stats.latency.percentile(99) / 1000.0);
+            method.put("maxMs", stats.maxMicros.get() / 1000.0);
+            method.put("avgQueueMs", calls == 0 ? 0 : stats.queueMicros.sum() / 1000.0 / calls);
+            method.put("rowsScanned", stats.rowsScanned.sum());
+            method.put("rowsReturned", stats.rowsReturned.sum());
+            method.put("rowsWritten", stats.rowsWritten.sum());
+            method.put("bytes", stats.bytes.sum());
+            result.put(entry.getKey(), method);
+        }
+        JSObject snapshot = new JSObject();
+        snapshot.put("since", since);
+        snapshot.put("methods", result);
+        return snapshot;
+    }
+
+    void reset() {
+        methods.clear();
+        since = System.currentTimeMillis();
+    }
+
+    private MethodStats stats(String method) {
+        MethodStats stats = methods.get(method);
+        if (stats == null) {
+            stats = methods.computeIfAbsent(method, key -> new MethodStats());
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,129 @@
+package com.peras.campuswal;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.peras.campuswal.core.SqlStorageRepository;
+
+/**
+ * Updates or deletes many todos through compiled statements of the
+ * repository's single-todo SQL. The caller owns the transaction and
+ * re-arms the reminder alarm once afterwards; a change naming a missing
+ * todo is recorded as a failure and skipped.
+ */
+final class TodoBatch {
+
+    private static final int MAX_REPORTED_FAILURES = 100;
+
+    private final SQLiteDatabase db;
+    private final long now = System.currentTimeMillis();
+    private SQLiteStatement update;
+    private SQLiteStatement delete;
+    private final JSArray failures = new JSArray();
+    private int updated;
+    private int deleted;
+    private int failed;
+
+    TodoBatch(SQLiteDatabase db) {
+        this.db = db;
+    }
+
+    void update(int index, Long id, Boolean done, Long doneAt, Long when) {
+        if (id == null) {
+            fail(index, "Missing id");
+            return;
+        }
+        if (done == null && doneAt == null && when == null) {
+            fail(index, "Nothing to update");
+            return;
+        }
+        if (update == null) {
+            update = db.compileStatement(SqlStorageRepository.UPDATE_TODO);
+        }
+        try {
+            bindOrNull(update, 1, done == null ? null : (long) (done ? 1 : 0));
+            bindOrNull(update, 2, doneAt);
+            bindOrNull(update, 3, when);
+            update.bindLong(4, id);
+            update.bindLong(5, now);
+            if (update.executeUpdateDelete() > 0) {
+                updated++;
+            } else {
+                fail(index, "Todo not found");
+            }
+        } catch (Exception e) {
+            fail(index, e.getMessage());
+        } finally {
+            update.clearBindings();
+        }
+    }
+
+    void delete(int index, Long id) {
+        if (id == null) {
+            fail(index, "Missing id");
+            return;
+        }
+        if (delete == null) {
+            delete = db.compileStatement(SqlStorageRepository.DELETE_TODO);
+        }
+        try {
+            delete.bindLong(1, id);
+            if (delete.executeUpdateDelete() > 0) {
+                deleted++;
+            } else {
+                fail(index, "Todo not found");
+            }
+        } catch (Exception e) {
+            fail(index, e.getMessage());
+        } finally {
+            delete.clearBindings();
+        }
+    }
+
+    void close() {
+        if (update != null) {
+            update.close();
+        }
+        if (delete != null) {
+            delete.close();
+        }
+    }
+
+    int changed() {
+        return updated + deleted;
+    }
+
+    int failed() {
+        return failed;
+    }
+
+    JSObject toResult() {
+        JSObject result = new JSObject();
+        result.put("success", true);
+        result.put("updated", updated);
+        result.put("deleted", deleted);
+        result.put("failed", failed);
+        result.put("failures", failures);
+        return result;
+    }
+
+    private static void bindOrNull(SQLiteStatement statement, int index, Long value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindLong(index, value);
+        }
+    }
+
+    private void fail(int index, String message) {
+        failed++;
+        if (failures.length() < MAX_REPORTED_FAILURES) {
+            JSObject failure = new JSObject();
+            failure.put("index", index);
+            failure.put("error", message);
+            failures.put(failure);
+        }
+    }
+}
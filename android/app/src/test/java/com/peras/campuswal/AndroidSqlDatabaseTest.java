@@ -0,0 +1,69 @@
+package com.peras.campuswal;
+
+import static org.junit.Assert.*;
+
+import android.content.Context;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.peras.campuswal.core.SqlDatabase;
+import com.peras.campuswal.core.StorageException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+/**
+ * A write that throws inside a savepoint must undo only its own changes
+ * and leave SQLiteDatabase's transaction open for the rest to commit.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class AndroidSqlDatabaseTest {
+
+    private static final String INSERT = "INSERT INTO todos (title, when_time, priority) VALUES (?, 0, 'low')";
+
+    private Context context;
+    private DatabaseHelper helper;
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        context.deleteDatabase("campuswal.db");
+        helper = new DatabaseHelper(context);
+        db = helper.getWritableDatabase();
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        context.deleteDatabase("campuswal.db");
+    }
+
+    @Test
+    public void inSavepoint_failureUndoesOnlyItsOwnWork() {
+        SqlDatabase sql = new AndroidSqlDatabase(db);
+        sql.inTransaction(() -> {
+            sql.inSavepoint(() -> sql.execute(INSERT, "kept"));
+            try {
+                sql.inSavepoint(() -> {
+                    sql.execute(INSERT, "undone");
+                    throw new StorageException("failed write", null);
+                });
+                fail("The failure should propagate");
+            } catch (StorageException expected) {
+                assertTrue(db.inTransaction());
+            }
+            sql.inSavepoint(() -> sql.execute(INSERT, "also kept"));
+        });
+
+        assertFalse(db.inTransaction());
+        assertEquals(2, DatabaseUtils.queryNumEntries(db, "todos"));
+        assertEquals(0, DatabaseUtils.queryNumEntries(db, "todos", "title = 'undone'"));
+    }
+}
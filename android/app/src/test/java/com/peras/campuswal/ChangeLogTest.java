@@ -0,0 +1,121 @@
+package com.peras.campuswal;
+
+import static org.junit.Assert.*;
+
+import android.content.Context;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.getcapacitor.JSObject;
+
+import org.json.JSONArray;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+/**
+ * Checks that a sync from a saved version returns exactly the rows touched
+ * since, with deletes as ids, and that paging through the log loses nothing.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class ChangeLogTest {
+
+    private Context context;
+    private DatabaseHelper helper;
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        context.deleteDatabase("campuswal.db");
+        helper = new DatabaseHelper(context);
+        db = helper.getWritableDatabase();
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        context.deleteDatabase("campuswal.db");
+    }
+
+    @Test
+    public void changesSince_returnsOnlyRowsTouchedAfterVersion() throws Exception {
+        for (int i = 1; i <= 5; i++) {
+            insertExpense("item " + i, i);
+        }
+        long baseline = ChangeLog.currentVersion(db);
+
+        db.execSQL("UPDATE expenses SET amount = 42 WHERE id = 2");
+        db.execSQL("UPDATE expenses SET amount = 43 WHERE id = 2");
+        db.execSQL("DELETE FROM expenses WHERE id = 3");
+        insertExpense("item 6", 6);
+        // Todos share the log but must not show up in an expenses sync
+        db.execSQL("INSERT INTO todos (title, when_time, priority) VALUES ('t', 1, 'low')");
+
+        JSObject result = ChangeLog.changesSince(db, "expenses", baseline, 100, false, null);
+        JSONArray upserted = result.getJSONArray("upserted");
+        JSONArray deleted = result.getJSONArray("deleted");
+
+        assertEquals(2, upserted.length());
+        assertEquals(2, upserted.getJSONObject(0).getLong("id"));
+        assertEquals(43.0, upserted.getJSONObject(0).getDouble("amount"), 0);
+        assertEquals(6, upserted.getJSONObject(1).getLong("id"));
+        assertEquals(1, deleted.length());
+        assertEquals(3, deleted.getLong(0));
+        assertFalse(result.getBoolean("hasMore"));
+        assertEquals(ChangeLog.currentVersion(db), result.getLong("version"));
+
+        JSObject empty = ChangeLog.changesSince(db, "expenses", result.getLong("version"), 100, false, null);
+        assertEquals(0, empty.getJSONArray("upserted").length());
+        assertEquals(0, empty.getJSONArray("deleted").length());
+    }
+
+    @Test
+    public void changesSince_pagesThroughLog() throws Exception {
+        long since = ChangeLog.currentVersion(db);
+        for (int i = 1; i <= 25; i++) {
+            insertExpense("item " + i, i);
+        }
+
+        int seen = 0;
+        int pages = 0;
+        boolean hasMore = true;
+        while (hasMore) {
+            JSObject page = ChangeLog.changesSince(db, "expenses", since, 10, true, null);
+            seen += new JSONArray(page.getString("upsertedJson")).length();
+            since = page.getLong("version");
+            hasMore = page.getBoolean("hasMore");
+            pages++;
+        }
+        assertEquals(25, seen);
+        assertEquals(3, pages);
+    }
+
+    @Test
+    public void changesSince_unknownVersionAsksForReload() throws Exception {
+        insertExpense("item", 1);
+        JSObject result = ChangeLog.changesSince(db, "todos", ChangeLog.currentVersion(db) + 10, 100, false, null);
+        assertTrue(result.getBoolean("reset"));
+    }
+
+    @Test
+    public void log_keepsOneEntryPerRow() {
+        insertExpense("item", 1);
+        for (int i = 0; i < 20; i++) {
+            db.execSQL("UPDATE expenses SET amount = ? WHERE id = 1", new Object[]{i});
+        }
+        assertEquals(1, DatabaseUtils.queryNumEntries(db, "change_log"));
+    }
+
+    private void insertExpense(String item, long timestamp) {
+        db.execSQL("INSERT OR IGNORE INTO items (name, key) VALUES (?, ?)", new Object[]{item, item});
+        db.execSQL("INSERT INTO expenses (item_id, amount, date, timestamp)" +
+                " VALUES ((SELECT id FROM items WHERE name = ?), 1, 'd', ?)",
+            new Object[]{item, timestamp});
+    }
+}
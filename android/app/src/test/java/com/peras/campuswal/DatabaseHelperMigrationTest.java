@@ -0,0 +1,212 @@
+package com.peras.campuswal;
+
+import static org.junit.Assert.*;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.peras.campuswal.core.ItemDictionary;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Upgrades a populated version 1 database and checks that user data
+ * survives, the hot queries are served from indexes and overdue reminders
+ * stay quiet.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class DatabaseHelperMigrationTest {
+
+    private Context context;
+    private DatabaseHelper helper;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        context.deleteDatabase("campuswal.db");
+        createVersion1Database(context.getDatabasePath("campuswal.db"));
+    }
+
+    @After
+    public void tearDown() {
+        if (helper != null) {
+            helper.close();
+        }
+        context.deleteDatabase("campuswal.db");
+    }
+
+    @Test
+    public void upgradeFromVersion1_keepsRows() {
+        helper = new DatabaseHelper(context);
+        SQLiteDatabase db = helper.getReadableDatabase();
+
+        assertEquals(200, count(db, DatabaseHelper.TABLE_EXPENSES));
+        assertEquals(50, count(db, DatabaseHelper.TABLE_TODOS));
+    }
+
+    @Test
+    public void upgradeFromVersion1_expenseQueriesUseIndex() {
+        helper = new DatabaseHelper(context);
+        SQLiteDatabase db = helper.getReadableDatabase();
+
+        assertNoFullScan(db, "SELECT * FROM expenses ORDER BY timestamp DESC, id DESC LIMIT 20");
+        assertNoFullScan(db, "SELECT * FROM expenses WHERE timestamp >= 1000 ORDER BY timestamp DESC, id DESC");
+        assertNoFullScan(db, "SELECT * FROM expenses WHERE timestamp <= 5000 AND (timestamp < 5000 OR id < 10) " +
+            "ORDER BY timestamp DESC, id DESC LIMIT 20");
+    }
+
+    @Test
+    public void upgradeFromVersion1_todoQueriesUseIndex() {
+        helper = new DatabaseHelper(context);
+        SQLiteDatabase db = helper.getReadableDatabase();
+
+        assertNoFullScan(db, "SELECT * FROM todos ORDER BY when_time ASC");
+        assertNoFullScan(db, "SELECT * FROM todos WHERE done = 0 ORDER BY when_time ASC LIMIT 1");
+    }
+
+    @Test
+    public void upgradeFromVersion1_searchIndexCoversExistingAndNewRows() {
+        helper = new DatabaseHelper(context);
+        SQLiteDatabase db = helper.getWritableDatabase();
+
+        assertEquals(11, countMatches(db, "item 19*"));
+
+        addExpense(db, "Bus fare");
+        assertEquals(1, countMatches(db, "bus* far*"));
+
+        // Renaming the dictionary entry renames it for every expense filed under it
+        db.execSQL("UPDATE items SET name = 'Train fare' WHERE name = 'Bus fare'");
+        assertEquals(0, countMatches(db, "bus*"));
+        assertEquals(1, countMatches(db, "train*"));
+
+        db.execSQL("DELETE FROM expenses WHERE item_id = (SELECT id FROM items WHERE name = 'Train fare')");
+        assertEquals(0, countMatches(db, "train*"));
+    }
+
+    @Test
+    public void upgradeFromVersion1_itemNamesReadBackUnchanged() {
+        helper = new DatabaseHelper(context);
+        SQLiteDatabase db = helper.getWritableDatabase();
+
+        assertEquals(200, count(db, "items"));
+        Cursor cursor = db.rawQuery("SELECT id, " + ItemDictionary.ITEM + " FROM expenses ORDER BY id", null);
+        int rows = 0;
+        while (cursor.moveToNext()) {
+            assertEquals("Item " + (cursor.getLong(0) - 1), cursor.getString(1));
+            rows++;
+        }
+        cursor.close();
+        assertEquals(200, rows);
+
+        // AUTOINCREMENT survives the rebuild: a deleted id is never handed out again
+        db.execSQL("DELETE FROM expenses WHERE id = 200");
+        assertEquals(201, addExpense(db, "Item 0"));
+        assertEquals(200, count(db, "items"));
+    }
+
+    @Test
+    public void upgradeFromVersion1_overdueRemindersDoNotFire() {
+        long later = System.currentTimeMillis() + 60 * 60 * 1000;
+        SQLiteDatabase old = SQLiteDatabase.openDatabase(context.getDatabasePath("campuswal.db").getPath(),
+            null, SQLiteDatabase.OPEN_READWRITE);
+        old.execSQL("INSERT INTO todos (title, when_time, priority) VALUES ('Upcoming', ?, 'low')",
+            new Object[]{later});
+        old.close();
+
+        helper = new DatabaseHelper(context);
+        SQLiteDatabase db = helper.getReadableDatabase();
+
+        // Version 1 never set notified; only the todo still ahead is left to remind of
+        assertEquals(25, DatabaseUtils.queryNumEntries(db, "todos", "done = 0 AND notified = 1"));
+        assertEquals(1, DatabaseUtils.queryNumEntries(db, "todos", "done = 0 AND notified = 0"));
+        assertEquals(1, DatabaseUtils.queryNumEntries(db, "todos", "notified = 0 AND when_time = " + later));
+    }
+
+    @Test
+    public void freshInstall_matchesUpgradedSchema() {
+        context.deleteDatabase("campuswal.db");
+        helper = new DatabaseHelper(context);
+        SQLiteDatabase db = helper.getReadableDatabase();
+
+        assertNoFullScan(db, "SELECT * FROM expenses ORDER BY timestamp DESC, id DESC LIMIT 20");
+        assertNoFullScan(db, "SELECT * FROM todos WHERE done = 0 ORDER BY when_time ASC LIMIT 1");
+    }
+
+    private static void createVersion1Database(File path) {
+        path.getParentFile().mkdirs();
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(path, null);
+        db.execSQL("CREATE TABLE expenses (id INTEGER PRIMARY KEY AUTOINCREMENT, item TEXT NOT NULL, " +
+            "amount REAL NOT NULL, date TEXT NOT NULL, timestamp INTEGER NOT NULL)");
+        db.execSQL("CREATE TABLE todos (id INTEGER PRIMARY KEY AUTOINCREMENT, title TEXT NOT NULL, " +
+            "when_time INTEGER NOT NULL, priority TEXT NOT NULL, done INTEGER DEFAULT 0, " +
+            "notified INTEGER DEFAULT 0, done_at INTEGER DEFAULT 0)");
+        for (int i = 0; i < 200; i++) {
+            db.execSQL("INSERT INTO expenses (item, amount, date, timestamp) VALUES (?, ?, ?, ?)",
+                new Object[]{"Item " + i, i * 1.5, "2025-01-01", 1000L * i});
+        }
+        for (int i = 0; i < 50; i++) {
+            db.execSQL("INSERT INTO todos (title, when_time, priority, done) VALUES (?, ?, ?, ?)",
+                new Object[]{"Todo " + i, 1000L * i, "low", i % 2});
+        }
+        db.setVersion(1);
+        db.close();
+    }
+
+    private static long count(SQLiteDatabase db, String table) {
+        Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + table, null);
+        cursor.moveToFirst();
+        long count = cursor.getLong(0);
+        cursor.close();
+        return count;
+    }
+
+    private static long addExpense(SQLiteDatabase db, String item) {
+        ExpenseBatchInserter inserter = new ExpenseBatchInserter(db);
+        inserter.insert(0, item, 2.0, "2025-01-02", 9000L);
+        inserter.close();
+        Cursor cursor = db.rawQuery("SELECT MAX(id) FROM expenses", null);
+        cursor.moveToFirst();
+        long id = cursor.getLong(0);
+        cursor.close();
+        return id;
+    }
+
+    // Expenses whose item name matches, found the way ExpenseQueries searches
+    private static long countMatches(SQLiteDatabase db, String match) {
+        Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM expenses WHERE item_id IN " +
+            "(SELECT docid FROM items_fts WHERE items_fts MATCH ?)", new String[]{match});
+        cursor.moveToFirst();
+        long count = cursor.getLong(0);
+        cursor.close();
+        return count;
+    }
+
+    private static void assertNoFullScan(SQLiteDatabase db, String sql) {
+        List<String> plan = new ArrayList<>();
+        Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, null);
+        int detail = cursor.getColumnIndexOrThrow("detail");
+        while (cursor.moveToNext()) {
+            plan.add(cursor.getString(detail));
+        }
+        cursor.close();
+
+        for (String step : plan) {
+            boolean fullScan = step.startsWith("SCAN") && !step.contains("INDEX");
+            assertFalse("Full table scan for " + sql + ": " + plan, fullScan);
+            assertFalse("Sort without index for " + sql + ": " + plan, step.contains("TEMP B-TREE"));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.peras.campuswal;
+
+import static org.junit.Assert.*;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.JsonReader;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.StringReader;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class ExpenseBatchInserterTest {
+
+    private Context context;
+    private DatabaseHelper helper;
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        context.deleteDatabase("campuswal.db");
+        helper = new DatabaseHelper(context);
+        db = helper.getWritableDatabase();
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        context.deleteDatabase("campuswal.db");
+    }
+
+    @Test
+    public void streamedRows_badRowsAreSkipped() throws Exception {
+        String json = "[" +
+            "{\"id\": 1, \"item\": \"Tea\", \"amount\": 10, \"date\": \"2025-01-01\", \"timestamp\": 1000}," +
+            "{\"item\": \"Bus fare\", \"amount\": \"abc\", \"date\": \"2025-01-01\", \"timestamp\": 2000}," +
+            "{\"item\": \"Lunch\", \"amount\": 80.5, \"timestamp\": 3000}," +
+            "{\"item\": \"Snacks\", \"amount\": \"25\", \"date\": \"2025-01-02\", \"timestamp\": 4000, \"extra\": {\"a\": [1]}}" +
+            "]";
+
+        ExpenseBatchInserter inserter = new ExpenseBatchInserter(db);
+        JsonReader reader = new JsonReader(new StringReader(json));
+        db.beginTransaction();
+        try {
+            reader.beginArray();
+            int index = 0;
+            while (reader.hasNext()) {
+                inserter.insert(index++, reader);
+            }
+            reader.endArray();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            inserter.close();
+        }
+
+        assertEquals(2, inserter.inserted());
+        assertEquals(2, inserter.failed());
+        assertEquals(2, count(db, "SELECT COUNT(*) FROM expenses"));
+        // Triggers still run for batched inserts
+        assertEquals(1, count(db, "SELECT COUNT(*) FROM items_fts WHERE items_fts MATCH 'snack*'"));
+        assertEquals(2, count(db, "SELECT SUM(count) FROM expense_daily_totals"));
+    }
+
+    @Test
+    public void manyRows_singleTransaction() {
+        ExpenseBatchInserter inserter = new ExpenseBatchInserter(db);
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < 10000; i++) {
+                inserter.insert(i, "Item " + (i % 50), (double) i, "2025-01-01", 1000L * i);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            inserter.close();
+        }
+
+        assertEquals(10000, inserter.inserted());
+        assertEquals(10000, count(db, "SELECT COUNT(*) FROM expenses"));
+    }
+
+    private static long count(SQLiteDatabase db, String sql) {
+        Cursor cursor = db.rawQuery(sql, null);
+        cursor.moveToFirst();
+        long count = cursor.getLong(0);
+        cursor.close();
+        return count;
+    }
+}
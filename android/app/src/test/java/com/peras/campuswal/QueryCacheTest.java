@@ -0,0 +1,74 @@
+package com.peras.campuswal;
+
+import static org.junit.Assert.*;
+
+import com.getcapacitor.JSObject;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Checks LRU eviction, hit/miss counting and that a result computed before
+ * a write is never cached after it.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class QueryCacheTest {
+
+    @Test
+    public void get_countsHitsAndMisses() throws Exception {
+        QueryCache cache = new QueryCache();
+        assertNull(cache.get("a"));
+        cache.put("a", cache.generation(), result("a"));
+        assertEquals("a", cache.get("a").getString("expensesJson"));
+
+        JSObject stats = cache.stats();
+        assertEquals(1, stats.getLong("hits"));
+        assertEquals(1, stats.getLong("misses"));
+    }
+
+    @Test
+    public void put_afterInvalidate_isDropped() {
+        QueryCache cache = new QueryCache();
+        long generation = cache.generation();
+        // A write commits while the read is still building its result
+        cache.invalidate();
+        cache.put("a", generation, result("stale"));
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyUsed() {
+        QueryCache cache = new QueryCache();
+        for (int i = 0; i < 40; i++) {
+            cache.put("k" + i, cache.generation(), result("v"));
+            // Keep the first entry hot
+            cache.get("k0");
+        }
+        assertNotNull(cache.get("k0"));
+        assertNull(cache.get("k1"));
+        assertNotNull(cache.get("k39"));
+    }
+
+    @Test
+    public void put_respectsMemoryLimit() throws Exception {
+        QueryCache cache = new QueryCache();
+        StringBuilder rows = new StringBuilder();
+        for (int i = 0; i < 200 * 1024; i++) {
+            rows.append('x');
+        }
+        for (int i = 0; i < 30; i++) {
+            cache.put("k" + i, cache.generation(), result(rows.toString()));
+        }
+        assertTrue(cache.stats().getLong("bytes") <= 4L * 1024 * 1024);
+        assertTrue(cache.stats().getLong("evictions") > 0);
+    }
+
+    private static JSObject result(String json) {
+        JSObject result = new JSObject();
+        result.put("expensesJson", json);
+        return result;
+    }
+}
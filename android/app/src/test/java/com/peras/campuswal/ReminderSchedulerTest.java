@@ -0,0 +1,112 @@
+package com.peras.campuswal;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.AlarmManager;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowAlarmManager;
+
+/**
+ * Checks that only one alarm is armed, for the earliest pending reminder,
+ * and that a delivery marks every due todo notified and moves the alarm on.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class ReminderSchedulerTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+
+    private Context context;
+    private DatabaseHelper helper;
+    private SQLiteDatabase db;
+    private ShadowAlarmManager alarms;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        context.deleteDatabase("campuswal.db");
+        helper = new DatabaseHelper(context);
+        db = helper.getWritableDatabase();
+        alarms = shadowOf((AlarmManager) context.getSystemService(Context.ALARM_SERVICE));
+        ReminderScheduler.reset();
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        context.deleteDatabase("campuswal.db");
+    }
+
+    @Test
+    public void reschedule_armsOneAlarmForEarliestPending() {
+        long now = System.currentTimeMillis();
+        insertTodo("later", now + 3 * HOUR, 0);
+        insertTodo("done", now + HOUR, 1);
+        insertTodo("next", now + 2 * HOUR, 0);
+
+        ReminderScheduler.reschedule(context, db);
+
+        assertEquals(1, alarms.getScheduledAlarms().size());
+        assertEquals(now + 2 * HOUR, alarms.getNextScheduledAlarm().triggerAtTime);
+    }
+
+    @Test
+    public void deliverDue_marksAllDueNotifiedAndRearms() {
+        long now = System.currentTimeMillis();
+        insertTodo("overdue 1", now - 2 * HOUR, 0);
+        insertTodo("overdue 2", now - HOUR, 0);
+        insertTodo("future", now + HOUR, 0);
+
+        ReminderScheduler.deliverDue(context, db);
+
+        assertEquals(2, DatabaseUtils.queryNumEntries(db, "todos", "notified = 1"));
+        assertEquals(1, alarms.getScheduledAlarms().size());
+        assertEquals(now + HOUR, alarms.getNextScheduledAlarm().triggerAtTime);
+    }
+
+    @Test
+    public void deliverDue_nothingPending_cancelsAlarm() {
+        long now = System.currentTimeMillis();
+        insertTodo("only", now + HOUR, 0);
+        ReminderScheduler.reschedule(context, db);
+        db.execSQL("UPDATE todos SET done = 1");
+
+        ReminderScheduler.reschedule(context, db);
+
+        assertTrue(alarms.getScheduledAlarms().isEmpty());
+    }
+
+    @Test
+    public void reminderQueries_usePartialIndex() {
+        assertUsesPendingIndex(ReminderScheduler.NEXT_DUE_SQL, new String[0]);
+        assertUsesPendingIndex(ReminderScheduler.DUE_SQL, new String[]{"0"});
+    }
+
+    private void assertUsesPendingIndex(String sql, String[] args) {
+        Cursor plan = db.rawQuery("EXPLAIN QUERY PLAN " + sql, args);
+        StringBuilder detail = new StringBuilder();
+        while (plan.moveToNext()) {
+            detail.append(plan.getString(plan.getColumnCount() - 1)).append('\n');
+        }
+        plan.close();
+        assertTrue(detail.toString(), detail.toString().contains(DatabaseHelper.INDEX_TODOS_PENDING_REMINDERS));
+        assertFalse(detail.toString(), detail.toString().contains("TEMP B-TREE"));
+    }
+
+    private void insertTodo(String title, long when, int done) {
+        db.execSQL("INSERT INTO todos (title, when_time, priority, done) VALUES (?, ?, 'low', ?)",
+            new Object[]{title, when, done});
+    }
+}
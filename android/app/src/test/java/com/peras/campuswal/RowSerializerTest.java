@@ -0,0 +1,120 @@
+package com.peras.campuswal;
+
+import static org.junit.Assert.*;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.peras.campuswal.core.ItemDictionary;
+import com.peras.campuswal.core.RowJson;
+
+import org.json.JSONArray;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+/**
+ * RowSerializer's JSON text must read back as the same rows the old
+ * JSObject-per-row payload held. Its time and allocations are measured by
+ * storage-core's RowJsonBenchmark, over the RowJson code it writes through.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class RowSerializerTest {
+
+    private static final int ROWS = 5000;
+
+    private Context context;
+    private DatabaseHelper helper;
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        context.deleteDatabase("campuswal.db");
+        helper = new DatabaseHelper(context);
+        db = helper.getWritableDatabase();
+        ExpenseBatchInserter inserter = new ExpenseBatchInserter(db);
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < ROWS; i++) {
+                inserter.insert(i, "Item \"" + (i % 40) + "\"", i * 1.25, "2025-01-01T10:00:00.000Z", 1000L * i);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            inserter.close();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        context.deleteDatabase("campuswal.db");
+    }
+
+    @Test
+    public void serializer_matchesLegacyPayload() throws Exception {
+        JSONArray legacy = new JSONArray(legacyPayload().getJSONArray("expenses").toString());
+        JSONArray packed = new JSONArray(serializerPayload().getString("expensesJson"));
+
+        assertEquals(ROWS, packed.length());
+        for (int i = 0; i < ROWS; i += 97) {
+            assertEquals(legacy.getJSONObject(i).toString(), packed.getJSONObject(i).toString());
+        }
+    }
+
+    @Test
+    public void serializer_writesEscapedTextAndPlainNumbers() {
+        String json = serializerPayload().getString("expensesJson");
+
+        assertTrue(json, json.startsWith("[{\"id\":5000,\"item\":\"Item \\\"39\\\"\",\"amount\":6248.75," +
+            "\"date\":\"2025-01-01T10:00:00.000Z\",\"timestamp\":4999000},"));
+        // Whole amounts print without a fraction, as JSONObject writes them
+        assertTrue(json, json.endsWith(",{\"id\":1,\"item\":\"Item \\\"0\\\"\",\"amount\":0," +
+            "\"date\":\"2025-01-01T10:00:00.000Z\",\"timestamp\":0}]"));
+    }
+
+    private JSObject legacyPayload() {
+        Cursor cursor = db.query(DatabaseHelper.TABLE_EXPENSES,
+            new String[]{DatabaseHelper.COLUMN_EXPENSE_ID, ItemDictionary.ITEM, DatabaseHelper.COLUMN_EXPENSE_AMOUNT,
+                DatabaseHelper.COLUMN_EXPENSE_DATE, DatabaseHelper.COLUMN_EXPENSE_TIMESTAMP},
+            null, null, null, null, "timestamp DESC, id DESC");
+        JSArray expenses = new JSArray();
+        while (cursor.moveToNext()) {
+            JSObject expense = new JSObject();
+            expense.put("id", cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_EXPENSE_ID)));
+            expense.put("item", cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_EXPENSE_ITEM)));
+            expense.put("amount", cursor.getDouble(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_EXPENSE_AMOUNT)));
+            expense.put("date", cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_EXPENSE_DATE)));
+            expense.put("timestamp", cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_EXPENSE_TIMESTAMP)));
+            expenses.put(expense);
+        }
+        cursor.close();
+        JSObject result = new JSObject();
+        result.put("expenses", expenses);
+        return result;
+    }
+
+    private JSObject serializerPayload() {
+        Cursor cursor = db.query(DatabaseHelper.TABLE_EXPENSES,
+            new String[]{DatabaseHelper.COLUMN_EXPENSE_ID, ItemDictionary.ITEM, DatabaseHelper.COLUMN_EXPENSE_AMOUNT,
+                DatabaseHelper.COLUMN_EXPENSE_DATE, DatabaseHelper.COLUMN_EXPENSE_TIMESTAMP},
+            null, null, null, null, "timestamp DESC, id DESC");
+        RowSerializer rows = new RowSerializer(cursor, RowJson.EXPENSE);
+        while (cursor.moveToNext()) {
+            rows.appendRow();
+        }
+        cursor.close();
+        JSObject result = new JSObject();
+        result.put("expensesJson", rows.toJson());
+        return result;
+    }
+}
@@ -0,0 +1,97 @@
+package com.peras.campuswal;
+
+import static org.junit.Assert.*;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.peras.campuswal.core.SpendingSummary;
+import com.peras.campuswal.core.SqlDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.Random;
+
+/**
+ * Checks the trigger-maintained rollup against plain SUMs over the
+ * expenses table after a mix of inserts, updates and deletes.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class SpendingSummaryTest {
+
+    private static final long DAY = SpendingSummary.DAY_MS;
+
+    private Context context;
+    private DatabaseHelper helper;
+    private SQLiteDatabase db;
+    private SqlDatabase sql;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        context.deleteDatabase("campuswal.db");
+        helper = new DatabaseHelper(context);
+        db = helper.getWritableDatabase();
+        sql = new AndroidSqlDatabase(db);
+        // Rollups ignore the item, so every expense here is item 1
+        db.execSQL("INSERT INTO items (id, name, key) VALUES (1, 'x', 'x')");
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        context.deleteDatabase("campuswal.db");
+    }
+
+    @Test
+    public void rangeTotal_matchesRawSumAfterChurn() {
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            db.execSQL("INSERT INTO expenses (item_id, amount, date, timestamp) VALUES (1, ?, 'd', ?)",
+                new Object[]{random.nextInt(100) + 1, (long) (random.nextDouble() * 60 * DAY)});
+        }
+        for (int i = 0; i < 100; i++) {
+            db.execSQL("UPDATE expenses SET amount = ?, timestamp = ? WHERE id = ?",
+                new Object[]{random.nextInt(100) + 1, (long) (random.nextDouble() * 60 * DAY), random.nextInt(500) + 1});
+        }
+        db.execSQL("DELETE FROM expenses WHERE id % 7 = 0");
+
+        for (int i = 0; i < 50; i++) {
+            long start = (long) (random.nextDouble() * 60 * DAY);
+            long end = start + (long) (random.nextDouble() * 20 * DAY);
+            SpendingSummary.Total total = SpendingSummary.rangeTotal(sql, start, end);
+            Cursor cursor = db.rawQuery(
+                "SELECT COALESCE(SUM(amount), 0), COUNT(*) FROM expenses WHERE timestamp >= ? AND timestamp < ?",
+                new String[]{String.valueOf(start), String.valueOf(end)});
+            cursor.moveToFirst();
+            assertEquals(cursor.getDouble(0), total.amount, 0.0001);
+            assertEquals(cursor.getLong(1), total.count);
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void rangeTotal_emptyRange() {
+        db.execSQL("INSERT INTO expenses (item_id, amount, date, timestamp) VALUES (1, 5, 'd', 1000)");
+        assertEquals(0, SpendingSummary.rangeTotal(sql, 1000, 1000).count);
+        assertEquals(1, SpendingSummary.rangeTotal(sql, 1000, 1001).count);
+    }
+
+    @Test
+    public void deletingLastExpenseOfDay_removesRollupRow() {
+        db.execSQL("INSERT INTO expenses (item_id, amount, date, timestamp) VALUES (1, 5, 'd', ?)", new Object[]{3 * DAY});
+        db.execSQL("DELETE FROM expenses");
+        Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM expense_daily_totals", null);
+        cursor.moveToFirst();
+        assertEquals(0, cursor.getLong(0));
+        cursor.close();
+    }
+}
@@ -0,0 +1,85 @@
+package com.peras.campuswal;
+
+import static org.junit.Assert.*;
+
+import com.getcapacitor.JSObject;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Checks histogram bucketing and that samples, nested ones included, land
+ * in the per-method snapshot.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class StorageMetricsTest {
+
+    @Test
+    public void histogram_percentilesWithinBucketError() {
+        StorageMetrics.Histogram histogram = new StorageMetrics.Histogram();
+        // 1ms .. 100ms, one sample each
+        for (int ms = 1; ms <= 100; ms++) {
+            histogram.record(ms * 1000L);
+        }
+        assertWithin(50_000, histogram.percentile(50));
+        assertWithin(95_000, histogram.percentile(95));
+        assertWithin(99_000, histogram.percentile(99));
+    }
+
+    @Test
+    public void histogram_bucketBoundsAreContiguous() {
+        for (long micros = 1; micros < 1_000_000; micros += 7) {
+            int bucket = StorageMetrics.Histogram.bucketFor(micros);
+            assertTrue(micros < StorageMetrics.Histogram.upperBound(bucket));
+            if (bucket > 0) {
+                assertTrue(micros >= StorageMetrics.Histogram.upperBound(bucket - 1));
+            }
+        }
+    }
+
+    @Test
+    public void snapshot_countsCallsRowsAndErrors() throws Exception {
+        StorageMetrics metrics = new StorageMetrics();
+        for (int i = 0; i < 3; i++) {
+            StorageMetrics.Sample sample = new StorageMetrics.Sample("getTodos");
+            metrics.begin(sample);
+            StorageMetrics.rows(10, 4);
+            sample.failed = i == 2;
+            metrics.end(sample);
+        }
+        assertNull(StorageMetrics.current());
+
+        JSObject getTodos = metrics.snapshot().getJSObject("methods").getJSObject("getTodos");
+        assertEquals(3, getTodos.getLong("calls"));
+        assertEquals(1, getTodos.getLong("errors"));
+        assertEquals(30, getTodos.getLong("rowsScanned"));
+        assertEquals(12, getTodos.getLong("rowsReturned"));
+    }
+
+    @Test
+    public void record_nestedSampleCountsUnderItsOwnMethod() throws Exception {
+        StorageMetrics metrics = new StorageMetrics();
+        StorageMetrics.Sample group = new StorageMetrics.Sample("groupCommit");
+        metrics.record(group, () -> {
+            for (String method : new String[]{"saveTodo", "saveExpense", "saveTodo"}) {
+                metrics.record(new StorageMetrics.Sample(method), () -> StorageMetrics.rowsWritten(1));
+                assertSame(group, StorageMetrics.current());
+            }
+        });
+        assertNull(StorageMetrics.current());
+
+        JSObject methods = metrics.snapshot().getJSObject("methods");
+        assertEquals(2, methods.getJSObject("saveTodo").getLong("calls"));
+        assertEquals(2, methods.getJSObject("saveTodo").getLong("rowsWritten"));
+        assertEquals(1, methods.getJSObject("saveExpense").getLong("calls"));
+        assertEquals(0, methods.getJSObject("groupCommit").getLong("rowsWritten"));
+    }
+
+    private static void assertWithin(long expectedMicros, long actualMicros) {
+        assertTrue(actualMicros + " vs " + expectedMicros,
+            actualMicros >= expectedMicros && actualMicros <= expectedMicros * 1.25);
+    }
+}
@@ -0,0 +1,106 @@
+package com.peras.campuswal;
+
+import static org.junit.Assert.*;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+/**
+ * Batched todo changes must touch only the fields each change sets, reset
+ * the reminder only when the time moves, and skip unknown ids.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class TodoBatchTest {
+
+    private Context context;
+    private DatabaseHelper helper;
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        context.deleteDatabase("campuswal.db");
+        helper = new DatabaseHelper(context);
+        db = helper.getWritableDatabase();
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        context.deleteDatabase("campuswal.db");
+    }
+
+    @Test
+    public void update_setsOnlyGivenFields() {
+        long first = insertTodo("first", 100);
+        long second = insertTodo("second", 200);
+        long third = insertTodo("third", 300);
+        long later = System.currentTimeMillis() + 60 * 60 * 1000;
+
+        TodoBatch batch = new TodoBatch(db);
+        batch.update(0, first, true, 150L, null);
+        batch.update(1, second, null, null, later);
+        batch.update(2, 999L, true, null, null);
+        batch.update(3, null, true, null, null);
+        batch.update(4, third, null, null, 500L);
+        batch.close();
+
+        assertEquals(3, batch.changed());
+        assertEquals(2, batch.failed());
+        assertEquals("1|150|100|1", row(first));
+        // Only a new time clears notified, so the reminder fires again
+        assertEquals("0|0|" + later + "|0", row(second));
+        // A time already past is not reminded of
+        assertEquals("0|0|500|1", row(third));
+    }
+
+    @Test
+    public void delete_removesListedTodos() {
+        long keep = insertTodo("keep", 100);
+        long drop1 = insertTodo("drop", 200);
+        long drop2 = insertTodo("drop too", 300);
+
+        TodoBatch batch = new TodoBatch(db);
+        batch.delete(0, drop1);
+        batch.delete(1, drop2);
+        batch.delete(2, drop2);
+        batch.close();
+
+        assertEquals(2, batch.changed());
+        assertEquals(1, batch.failed());
+        assertEquals(1, DatabaseUtils.queryNumEntries(db, "todos"));
+        assertEquals(1, DatabaseUtils.queryNumEntries(db, "todos", "id = " + keep));
+    }
+
+    private long insertTodo(String title, long when) {
+        ContentValues values = new ContentValues();
+        values.put(DatabaseHelper.COLUMN_TODO_TITLE, title);
+        values.put(DatabaseHelper.COLUMN_TODO_WHEN, when);
+        values.put(DatabaseHelper.COLUMN_TODO_PRIORITY, "low");
+        values.put(DatabaseHelper.COLUMN_TODO_DONE, 0);
+        values.put(DatabaseHelper.COLUMN_TODO_NOTIFIED, 1);
+        return db.insert(DatabaseHelper.TABLE_TODOS, null, values);
+    }
+
+    private String row(long id) {
+        Cursor cursor = db.rawQuery("SELECT done, done_at, when_time, notified FROM todos WHERE id = ?",
+            new String[]{String.valueOf(id)});
+        cursor.moveToFirst();
+        String row = cursor.getLong(0) + "|" + (cursor.isNull(1) ? "null" : cursor.getLong(1)) + "|" +
+            cursor.getLong(2) + "|" + cursor.getLong(3);
+        cursor.close();
+        return row;
+    }
+}
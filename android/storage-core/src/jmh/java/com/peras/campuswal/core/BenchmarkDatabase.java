@@ -0,0 +1,64 @@
+package com.peras.campuswal.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A throwaway SQLite file filled with a reproducible spread of expenses:
+ * item names drawn from a small vocabulary and timestamps over the two
+ * years before a fixed "now", like a heavy long-time user.
+ */
+final class BenchmarkDatabase {
+
+    static final long NOW = 1_760_000_000_000L;
+    static final long SPAN_MS = 730 * SpendingSummary.DAY_MS;
+
+    private static final String[] WORDS = {
+        "coffee", "green", "tea", "lunch", "bus", "ticket", "book", "rent", "laptop", "charger",
+        "pizza", "groceries", "milk", "bread", "cinema", "gym", "printing", "notebook", "pen", "taxi"
+    };
+    private static final int BATCH = 10_000;
+
+    final File file;
+    final JdbcSqlDatabase db;
+    final SqlStorageRepository repository;
+
+    private BenchmarkDatabase(File file) {
+        this.file = file;
+        this.db = JdbcSqlDatabase.open(file.getPath());
+        this.repository = new SqlStorageRepository(db);
+    }
+
+    static BenchmarkDatabase create(int rows) throws IOException {
+        File file = File.createTempFile("campuswal-bench", ".db");
+        file.delete();
+        BenchmarkDatabase bench = new BenchmarkDatabase(file);
+        Schema.create(bench.db);
+        Random random = new Random(rows);
+        for (int done = 0; done < rows; done += BATCH) {
+            bench.repository.saveExpenses(expenses(random, Math.min(BATCH, rows - done)));
+        }
+        bench.db.execute("ANALYZE");
+        return bench;
+    }
+
+    static List<Expense> expenses(Random random, int count) {
+        List<Expense> expenses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String item = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)];
+            long timestamp = NOW - (long) (random.nextDouble() * SPAN_MS);
+            expenses.add(new Expense(item, 1 + random.nextInt(5000) / 100.0, "2025-01-01", timestamp));
+        }
+        return expenses;
+    }
+
+    void close() {
+        db.close();
+        file.delete();
+        new File(file.getPath() + "-wal").delete();
+        new File(file.getPath() + "-shm").delete();
+    }
+}
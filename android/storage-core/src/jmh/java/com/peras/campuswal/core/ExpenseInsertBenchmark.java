@@ -0,0 +1,87 @@
+package com.peras.campuswal.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows per second through saveExpenses into a table that already holds
+ * rows expenses, so the cost of the timestamp index, FTS index, rollup
+ * and change log triggers at that size is included. What an iteration
+ * inserted is deleted before the next, so every iteration starts at rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpenseInsertBenchmark {
+
+    private static final int BATCH = 1000;
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private BenchmarkDatabase bench;
+    private List<Expense> batch;
+    private long lastId;
+    private long lastVersion;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        bench = BenchmarkDatabase.create(rows);
+        batch = BenchmarkDatabase.expenses(new Random(7), BATCH);
+        lastId = max(Schema.COLUMN_EXPENSE_ID, Schema.TABLE_EXPENSES);
+        lastVersion = max(Schema.COLUMN_CHANGE_VERSION, Schema.TABLE_CHANGE_LOG);
+    }
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        // Through the triggers, so the daily rollup and search index shrink back too
+        bench.db.inTransaction(() -> {
+            bench.db.execute("DELETE FROM " + Schema.TABLE_EXPENSES +
+                " WHERE " + Schema.COLUMN_EXPENSE_ID + " > ?", lastId);
+            bench.db.execute("DELETE FROM " + Schema.TABLE_CHANGE_LOG +
+                " WHERE " + Schema.COLUMN_CHANGE_VERSION + " > ?", lastVersion);
+        });
+        bench.db.query("PRAGMA wal_checkpoint(TRUNCATE)", null, result -> result.next());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        bench.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void insertBatch() {
+        bench.repository.saveExpenses(batch);
+    }
+
+    @Benchmark
+    public long insertSingle() {
+        return bench.repository.saveExpense(batch.get(0));
+    }
+
+    private long max(String column, String table) {
+        return bench.db.query("SELECT MAX(" + column + ") FROM " + table, null,
+            result -> result.next() ? result.getLong(0) : 0);
+    }
+}
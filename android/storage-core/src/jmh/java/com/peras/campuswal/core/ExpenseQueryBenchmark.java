@@ -0,0 +1,117 @@
+package com.peras.campuswal.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the reads behind the expense list and the summary cards, with
+ * the page size the app asks for. The two searches take the two paths
+ * over the item names: several words go through the FTS word-prefix
+ * match, a single mid-word fragment through the LIKE scan. Top items sums
+ * spend per item id over a month and all time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpenseQueryBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private BenchmarkDatabase bench;
+    private Expense secondPageAfter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        bench = BenchmarkDatabase.create(rows);
+        ExpensePage first = bench.repository.findExpenses("", monthAgo(), PAGE_SIZE, null);
+        secondPageAfter = first.expenses.get(first.expenses.size() - 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        bench.close();
+    }
+
+    @Benchmark
+    public ExpensePage searchWordPrefix() {
+        return bench.repository.findExpenses("gre te", 0, PAGE_SIZE, null);
+    }
+
+    @Benchmark
+    public ExpensePage searchSubstring() {
+        return bench.repository.findExpenses("ffe", 0, PAGE_SIZE, null);
+    }
+
+    @Benchmark
+    public ExpensePage timeFilterFirstPage() {
+        return bench.repository.findExpenses("", monthAgo(), PAGE_SIZE, null);
+    }
+
+    @Benchmark
+    public ExpensePage timeFilterNextPage() {
+        return bench.repository.findExpenses("", monthAgo(), PAGE_SIZE, secondPageAfter);
+    }
+
+    @Benchmark
+    public ExpensePage allFirstPage() {
+        return bench.repository.findExpenses("", 0, PAGE_SIZE, null);
+    }
+
+    @Benchmark
+    public SpendingSummary.Total summaryMonth() {
+        long month = SpendingSummary.startOfMonth(BenchmarkDatabase.NOW);
+        return bench.repository.spending(month, SpendingSummary.addMonths(month, 1));
+    }
+
+    @Benchmark
+    public SpendingSummary.Total summaryYear() {
+        long year = SpendingSummary.startOfYear(BenchmarkDatabase.NOW);
+        return bench.repository.spending(year, SpendingSummary.addYears(year, 1));
+    }
+
+    @Benchmark
+    public List<SpendingHistogram.Bucket> histogramMonthly() {
+        return bench.repository.histogram(BenchmarkDatabase.NOW - BenchmarkDatabase.SPAN_MS, BenchmarkDatabase.NOW,
+            SpendingHistogram.Granularity.MONTH);
+    }
+
+    @Benchmark
+    public List<SpendingHistogram.Bucket> histogramDaily() {
+        return bench.repository.histogram(monthAgo(), BenchmarkDatabase.NOW, SpendingHistogram.Granularity.DAY);
+    }
+
+    @Benchmark
+    public List<ItemDictionary.Total> topItemsMonth() {
+        return bench.repository.topItems(monthAgo(), 10);
+    }
+
+    @Benchmark
+    public List<ItemDictionary.Total> topItemsAll() {
+        return bench.repository.topItems(0, 10);
+    }
+
+    private static long monthAgo() {
+        return BenchmarkDatabase.NOW - 30 * SpendingSummary.DAY_MS;
+    }
+}
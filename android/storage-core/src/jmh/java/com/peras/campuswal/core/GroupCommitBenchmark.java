@@ -0,0 +1,104 @@
+package com.peras.campuswal.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves per second for a burst of single saves arriving at once, as when
+ * a user taps save repeatedly: each save committing on its own on the
+ * writer thread, versus the same saves through GroupCommit. Run with
+ * synchronous NORMAL (the app's setting; WAL commits skip fsync) and FULL
+ * (every commit fsyncs) to see both the per-transaction and the sync cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GroupCommitBenchmark {
+
+    private static final int BURST = 100;
+
+    @Param({"NORMAL", "FULL"})
+    public String synchronous;
+
+    private BenchmarkDatabase bench;
+    private List<Expense> burst;
+    private ExecutorService writer;
+    private ScheduledExecutorService timer;
+    private GroupCommit group;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        bench = BenchmarkDatabase.create(10_000);
+        bench.db.execute("PRAGMA synchronous = " + synchronous);
+        burst = BenchmarkDatabase.expenses(new Random(11), BURST);
+        writer = Executors.newSingleThreadExecutor();
+        timer = Executors.newSingleThreadScheduledExecutor();
+        group = new GroupCommit(bench.db, writer, timer, 5, 32);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        timer.shutdown();
+        writer.shutdown();
+        writer.awaitTermination(10, TimeUnit.SECONDS);
+        bench.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void perCallCommit() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(BURST);
+        for (Expense expense : burst) {
+            writer.execute(() -> {
+                bench.repository.saveExpense(expense);
+                done.countDown();
+            });
+        }
+        done.await();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void groupCommit() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(BURST);
+        GroupCommit.Callback callback = new GroupCommit.Callback() {
+            @Override
+            public void committed(long id) {
+                done.countDown();
+            }
+
+            @Override
+            public void failed(Exception error) {
+                throw new AssertionError(error);
+            }
+        };
+        for (Expense expense : burst) {
+            group.submit(db -> bench.repository.saveExpense(expense), callback);
+        }
+        done.await();
+    }
+}
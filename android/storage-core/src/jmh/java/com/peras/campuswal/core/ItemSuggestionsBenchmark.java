@@ -0,0 +1,79 @@
+package com.peras.campuswal.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of one autocomplete lookup over names distinct item names,
+ * from a one-letter prefix that matches a wide range to a near-complete
+ * name, plus the incremental update saveExpense makes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ItemSuggestionsBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int names;
+
+    private BenchmarkDatabase bench;
+    private ItemSuggestions suggestions;
+    private int added;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        bench = BenchmarkDatabase.create(0);
+        Random random = new Random(names);
+        List<Expense> expenses = new ArrayList<>(names);
+        for (int i = 0; i < names; i++) {
+            // Skewed reuse like real names: a few are bought daily, most a handful of times
+            String item = BenchmarkDatabase.expenses(random, 1).get(0).item + " " + i;
+            for (int uses = 1 + (int) (5 / (random.nextDouble() + 0.05)); uses > 0; uses--) {
+                expenses.add(new Expense(item, 1, "2025-01-01", BenchmarkDatabase.NOW));
+            }
+        }
+        bench.repository.saveExpenses(expenses);
+        suggestions = new ItemSuggestions();
+        suggestions.load(bench.db);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        bench.close();
+    }
+
+    @Benchmark
+    public List<String> suggestOneLetter() {
+        return suggestions.suggest("c", 8);
+    }
+
+    @Benchmark
+    public List<String> suggestWord() {
+        return suggestions.suggest("coffee g", 8);
+    }
+
+    @Benchmark
+    public void addExisting() {
+        suggestions.add("coffee green " + (added++ % names));
+    }
+}
@@ -0,0 +1,113 @@
+package com.peras.campuswal.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to turn a result set of expenses into the JSON text that crosses
+ * the bridge: an object per row rendered afterwards, as JSObject rows are,
+ * versus RowJson, which the app's RowSerializer writes every row through.
+ * Both read the same JDBC rows; run with -prof gc for the bytes allocated
+ * per result set.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowJsonBenchmark {
+
+    private static final String SQL =
+        "SELECT " + Schema.COLUMN_EXPENSE_ID + ", " + ItemDictionary.ITEM + ", " +
+            Schema.COLUMN_EXPENSE_AMOUNT + ", " + Schema.COLUMN_EXPENSE_DATE + ", " +
+            Schema.COLUMN_EXPENSE_TIMESTAMP + " FROM " + Schema.TABLE_EXPENSES +
+            " ORDER BY " + ExpenseQueries.ORDER + " LIMIT ?";
+    private static final String[] KEYS = {"id", "item", "amount", "date", "timestamp"};
+
+    @Param({"50", "5000"})
+    public int rows;
+
+    private BenchmarkDatabase bench;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        bench = BenchmarkDatabase.create(10_000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        bench.close();
+    }
+
+    @Benchmark
+    public String objectPerRow() {
+        List<Map<String, Object>> objects = bench.db.query(SQL, new Object[]{rows}, result -> {
+            List<Map<String, Object>> list = new ArrayList<>();
+            while (result.next()) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put(KEYS[0], result.getLong(0));
+                row.put(KEYS[1], result.getString(1));
+                row.put(KEYS[2], result.getDouble(2));
+                row.put(KEYS[3], result.getString(3));
+                row.put(KEYS[4], result.getLong(4));
+                list.add(row);
+            }
+            return list;
+        });
+
+        StringBuilder json = new StringBuilder().append('[');
+        for (Map<String, Object> row : objects) {
+            json.append(json.length() > 1 ? ",{" : "{");
+            boolean first = true;
+            for (Map.Entry<String, Object> field : row.entrySet()) {
+                if (!first) {
+                    json.append(',');
+                }
+                first = false;
+                JsonText.appendQuoted(json, field.getKey());
+                json.append(':');
+                Object value = field.getValue();
+                if (value instanceof String) {
+                    JsonText.appendQuoted(json, (String) value);
+                } else if (value instanceof Double) {
+                    JsonText.appendNumber(json, (Double) value);
+                } else {
+                    json.append(value);
+                }
+            }
+            json.append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    @Benchmark
+    public String rowJson() {
+        // SQL selects the columns in RowJson.EXPENSE order
+        return bench.db.query(SQL, new Object[]{rows}, result -> {
+            RowJson json = new RowJson(RowJson.EXPENSE, null, rows);
+            while (result.next()) {
+                json.appendRow(result);
+            }
+            return json.toJson();
+        });
+    }
+}
@@ -0,0 +1,107 @@
+package com.peras.campuswal.core;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RFC 4180 CSV: fields are quoted only when they hold a comma, quote or
+ * line break, and the reader accepts quoted line breaks, so item names
+ * survive a round trip whatever they contain.
+ */
+public final class CsvText {
+
+    private CsvText() {
+    }
+
+    public static void appendField(StringBuilder out, String value) {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.append(value);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+
+    /** Reads one record at a time; wrap the source in a BufferedReader. */
+    public static final class RecordReader {
+        private final Reader in;
+        private final StringBuilder field = new StringBuilder();
+        private int pending = -2;
+
+        public RecordReader(Reader in) {
+            this.in = in;
+        }
+
+        /** The next record's fields, or null at the end of the input. */
+        public List<String> next() throws IOException {
+            List<String> fields = new ArrayList<>();
+            field.setLength(0);
+            boolean quoted = false;
+            boolean any = false;
+            int c;
+            while ((c = read()) != -1) {
+                any = true;
+                if (quoted) {
+                    if (c != '"') {
+                        field.append((char) c);
+                    } else if (peek() == '"') {
+                        read();
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                    }
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == '\r') {
+                    if (c == '\r' && peek() == '\n') {
+                        read();
+                    }
+                    break;
+                } else {
+                    field.append((char) c);
+                }
+            }
+            if (!any) {
+                return null;
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+
+        private int read() throws IOException {
+            if (pending != -2) {
+                int c = pending;
+                pending = -2;
+                return c;
+            }
+            return in.read();
+        }
+
+        private int peek() throws IOException {
+            if (pending == -2) {
+                pending = in.read();
+            }
+            return pending;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.peras.campuswal.core;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * What the first screen shows, saved as a small binary file so a cold start
+ * can paint it before the database is even opened: the Summary card totals,
+ * the newest page of expenses and the first pending todos. The file is
+ * replaced whole through a rename, so a reader sees the old snapshot or the
+ * new one, and a checksum turns any other damage into a miss.
+ */
+public final class DashboardSnapshot {
+
+    /** Expenses and pending todos kept; about what one screen shows. */
+    public static final int PAGE_ROWS = 50;
+
+    // "CWDS", then a format number bumped whenever the layout below changes
+    private static final int MAGIC = 0x43574453;
+    private static final int FORMAT = 1;
+    // Anything larger than this was not written by us
+    private static final int MAX_BYTES = 1 << 20;
+
+    private static final String EXPENSE_COLUMNS =
+        Schema.COLUMN_EXPENSE_ID + ", " + ItemDictionary.ITEM + ", " +
+        Schema.COLUMN_EXPENSE_AMOUNT + ", " + Schema.COLUMN_EXPENSE_DATE + ", " +
+        Schema.COLUMN_EXPENSE_TIMESTAMP;
+
+    private static final String TODO_COLUMNS =
+        Schema.COLUMN_TODO_ID + ", " + Schema.COLUMN_TODO_TITLE + ", " +
+        Schema.COLUMN_TODO_WHEN + ", " + Schema.COLUMN_TODO_PRIORITY;
+
+    /** When the snapshot was taken, and the change log version it reflects. */
+    public final long savedAt;
+    public final long version;
+    public final SpendingSummary.Cards totals;
+    /** Newest first, as getExpenses orders them. */
+    public final List<Expense> expenses;
+    /** Soonest first, as the pending view orders them. */
+    public final List<Todo> todos;
+
+    public DashboardSnapshot(long savedAt, long version, SpendingSummary.Cards totals,
+                             List<Expense> expenses, List<Todo> todos) {
+        this.savedAt = savedAt;
+        this.version = version;
+        this.totals = totals;
+        this.expenses = Collections.unmodifiableList(expenses);
+        this.todos = Collections.unmodifiableList(todos);
+    }
+
+    /** Reads the current dashboard; a handful of indexed queries. */
+    public static DashboardSnapshot load(SqlDatabase db, long version, long now) {
+        SpendingSummary.Cards totals = SpendingSummary.cards(db, now);
+
+        ExpenseSelection recent = ExpenseQueries.select(db, "", 0);
+        List<Expense> expenses = db.query(recent.rowsSql(EXPENSE_COLUMNS, PAGE_ROWS), recent.args(), rows -> {
+            List<Expense> list = new ArrayList<>();
+            while (rows.next()) {
+                list.add(new Expense(rows.getLong(0), rows.getString(1), rows.getDouble(2),
+                    rows.getString(3), rows.getLong(4)));
+            }
+            return list;
+        });
+
+        TodoQueries.Query pending = TodoQueries.query(TodoQueries.View.PENDING, TODO_COLUMNS, 0, 0, PAGE_ROWS);
+        List<Todo> todos = db.query(pending.sql, pending.args, rows -> {
+            List<Todo> list = new ArrayList<>();
+            while (rows.next()) {
+                list.add(new Todo(rows.getLong(0), rows.getString(1), rows.getLong(2), rows.getString(3), false));
+            }
+            return list;
+        });
+
+        return new DashboardSnapshot(now, version, totals, expenses, todos);
+    }
+
+    /** Whether the day, month and year cards still describe the day containing now. */
+    public boolean totalsCurrent(long now) {
+        return SpendingSummary.startOfDay(now) == SpendingSummary.startOfDay(savedAt);
+    }
+
+    /**
+     * Layout, big-endian: magic, format, savedAt, version, four (amount,
+     * count) totals, the expenses, the todos, then a CRC32 of everything
+     * before it. Strings are a length and UTF-8 bytes.
+     */
+    public ByteBuffer encode() {
+        List<byte[]> strings = new ArrayList<>();
+        int size = 4 + 4 + 8 + 8 + 4 * (8 + 8) + 4 + 4 + 8;
+        for (Expense expense : expenses) {
+            size += 8 + 8 + 8 + utf8(strings, expense.item) + utf8(strings, expense.date);
+        }
+        for (Todo todo : todos) {
+            size += 8 + 8 + utf8(strings, todo.title) + utf8(strings, todo.priority);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).putInt(FORMAT).putLong(savedAt).putLong(version);
+        for (SpendingSummary.Total total : new SpendingSummary.Total[]{totals.today, totals.week, totals.month, totals.year}) {
+            buffer.putDouble(total.amount).putLong(total.count);
+        }
+        int next = 0;
+        buffer.putInt(expenses.size());
+        for (Expense expense : expenses) {
+            buffer.putLong(expense.id).putLong(expense.timestamp).putDouble(expense.amount);
+            putString(buffer, strings.get(next++));
+            putString(buffer, strings.get(next++));
+        }
+        buffer.putInt(todos.size());
+        for (Todo todo : todos) {
+            buffer.putLong(todo.id).putLong(todo.when);
+            putString(buffer, strings.get(next++));
+            putString(buffer, strings.get(next++));
+        }
+        ByteBuffer head = buffer.duplicate();
+        head.flip();
+        buffer.putLong(checksum(head, head.limit()));
+        buffer.flip();
+        return buffer;
+    }
+
+    /** The snapshot in buffer, or null if it is truncated, damaged or from another format. */
+    public static DashboardSnapshot decode(ByteBuffer buffer) {
+        int length = buffer.remaining();
+        if (length < 8 + 8 || buffer.getInt(buffer.position()) != MAGIC ||
+                buffer.getInt(buffer.position() + 4) != FORMAT) {
+            return null;
+        }
+        if (checksum(buffer, length - 8) != buffer.getLong(buffer.position() + length - 8)) {
+            return null;
+        }
+
+        ByteBuffer in = buffer.duplicate();
+        in.limit(in.position() + length - 8);
+        try {
+            in.getInt();
+            in.getInt();
+            long savedAt = in.getLong();
+            long version = in.getLong();
+            SpendingSummary.Total[] totals = new SpendingSummary.Total[4];
+            for (int i = 0; i < totals.length; i++) {
+                totals[i] = new SpendingSummary.Total();
+                totals[i].amount = in.getDouble();
+                totals[i].count = in.getLong();
+            }
+            int expenseCount = count(in);
+            List<Expense> expenses = new ArrayList<>(expenseCount);
+            for (int i = 0; i < expenseCount; i++) {
+                long id = in.getLong();
+                long timestamp = in.getLong();
+                double amount = in.getDouble();
+                expenses.add(new Expense(id, getString(in), amount, getString(in), timestamp));
+            }
+            int todoCount = count(in);
+            List<Todo> todos = new ArrayList<>(todoCount);
+            for (int i = 0; i < todoCount; i++) {
+                long id = in.getLong();
+                long when = in.getLong();
+                todos.add(new Todo(id, getString(in), when, getString(in), false));
+            }
+            return new DashboardSnapshot(savedAt, version,
+                new SpendingSummary.Cards(totals[0], totals[1], totals[2], totals[3]), expenses, todos);
+        } catch (RuntimeException e) {
+            // A checksum match with a bad layout means a writer bug, not a torn file; still just a miss
+            return null;
+        }
+    }
+
+    /** Writes the snapshot beside file, syncs it, then renames it over file. */
+    public void save(File file) throws IOException {
+        ByteBuffer buffer = encode();
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            FileChannel channel = out.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Could not replace " + file);
+        }
+    }
+
+    /** The snapshot in file, read through a memory map, or null if there is no usable one. */
+    public static DashboardSnapshot read(File file) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            if (size > MAX_BYTES) {
+                return null;
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return decode(map);
+        }
+    }
+
+    // CRC32.update(ByteBuffer) needs API 26, so a mapped buffer is fed through a small scratch array
+    private static long checksum(ByteBuffer buffer, int length) {
+        CRC32 crc = new CRC32();
+        if (buffer.hasArray()) {
+            crc.update(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+            return crc.getValue();
+        }
+        ByteBuffer in = buffer.duplicate();
+        byte[] chunk = new byte[4096];
+        while (length > 0) {
+            int n = Math.min(length, chunk.length);
+            in.get(chunk, 0, n);
+            crc.update(chunk, 0, n);
+            length -= n;
+        }
+        return crc.getValue();
+    }
+
+    private static int utf8(List<byte[]> strings, String value) {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        strings.add(bytes);
+        return 4 + bytes.length;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        buffer.putInt(bytes.length).put(bytes);
+    }
+
+    private static int count(ByteBuffer in) {
+        int count = in.getInt();
+        if (count < 0 || count > PAGE_ROWS) {
+            throw new IllegalStateException("Bad row count " + count);
+        }
+        return count;
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0 || length > in.remaining()) {
+            throw new IllegalStateException("Bad string length " + length);
+        }
+        String value;
+        if (in.hasArray()) {
+            value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            in.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+}
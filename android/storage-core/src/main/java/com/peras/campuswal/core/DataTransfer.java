@@ -0,0 +1,425 @@
+package com.peras.campuswal.core;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Streams expenses and todos to and from CSV or NDJSON in bounded memory.
+ * Export reads each table in id order a page at a time, so no query result
+ * grows with the table; import commits every BATCH_ROWS rows, so neither
+ * the transaction nor the WAL grows with the file. A bad row is counted as
+ * a failure and skipped; rows from earlier batches stay imported when a
+ * later one fails to read.
+ */
+public final class DataTransfer {
+
+    public static final int PAGE_ROWS = 500;
+    public static final int BATCH_ROWS = 2000;
+    // Enough to show the user what went wrong without echoing a whole broken file back
+    private static final int MAX_REPORTED_FAILURES = 100;
+
+    public enum Format {
+        CSV, NDJSON;
+
+        public static Format parse(String value) {
+            try {
+                return valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown format: " + value);
+            }
+        }
+
+        /** CSV for a .csv path, NDJSON for anything else. */
+        public static Format forPath(String path) {
+            return path.toLowerCase(Locale.ROOT).endsWith(".csv") ? CSV : NDJSON;
+        }
+    }
+
+    /** Called every PAGE_ROWS rows and once more when a table is done; throw to cancel. */
+    public interface Progress {
+        void onProgress(String table, long rows, long total);
+    }
+
+    public static final class ImportResult {
+        public long expenses;
+        public long todos;
+        public long failed;
+        public final List<String> failures = new ArrayList<>();
+
+        void fail(long record, String message) {
+            failed++;
+            if (failures.size() < MAX_REPORTED_FAILURES) {
+                failures.add("Record " + record + ": " + message);
+            }
+        }
+    }
+
+    private enum Type { LONG, DOUBLE, STRING, BOOLEAN }
+
+    private static final class Column {
+        final String key;
+        final String name;
+        final Type type;
+        final boolean required;
+        // How the value is read and written; differ from name only for dictionary-encoded columns
+        final String read;
+        final String written;
+        final boolean itemName;
+
+        Column(String key, String name, Type type, boolean required) {
+            this(key, name, type, required, name, "?", false);
+        }
+
+        private Column(String key, String name, Type type, boolean required, String read, String written,
+                       boolean itemName) {
+            this.key = key;
+            this.name = name;
+            this.type = type;
+            this.required = required;
+            this.read = read;
+            this.written = written;
+            this.itemName = itemName;
+        }
+
+        /** An item name stored as its id in the items table. */
+        static Column itemName(String key) {
+            return new Column(key, Schema.COLUMN_EXPENSE_ITEM_ID, Type.STRING, true,
+                ItemDictionary.ITEM, ItemDictionary.ID_OF, true);
+        }
+    }
+
+    private static final class Table {
+        final String name;
+        final Column[] columns;
+        final String count;
+        final String select;
+        final int selectArgs;
+        final String insert;
+
+        /** archive is a second table holding more of the same rows, or null. */
+        Table(String name, String archive, Column... columns) {
+            this.name = name;
+            this.columns = columns;
+            StringBuilder names = new StringBuilder();
+            StringBuilder inserted = new StringBuilder();
+            StringBuilder params = new StringBuilder();
+            for (Column column : columns) {
+                names.append(names.length() == 0 ? "" : ", ").append(column.read);
+                // Imported rows get fresh ids so they can't collide with rows already here
+                if (column != columns[0]) {
+                    inserted.append(inserted.length() == 0 ? "" : ", ").append(column.name);
+                    params.append(params.length() == 0 ? "" : ", ").append(column.written);
+                }
+            }
+            String page = "SELECT " + names + " FROM " + name + " WHERE " + columns[0].name + " > ?";
+            if (archive == null) {
+                this.count = "SELECT COUNT(*) FROM " + name;
+                this.selectArgs = 1;
+            } else {
+                // Ids are unique across both tables, so one keyset walks them together
+                page += " UNION ALL SELECT " + names + " FROM " + archive + " WHERE " + columns[0].name + " > ?";
+                this.count = "SELECT (SELECT COUNT(*) FROM " + name + ") + (SELECT COUNT(*) FROM " + archive + ")";
+                this.selectArgs = 2;
+            }
+            this.select = page + " ORDER BY " + columns[0].name + " LIMIT " + PAGE_ROWS;
+            this.insert = "INSERT INTO " + name + " (" + inserted + ") VALUES (" + params + ")";
+        }
+    }
+
+    // Keys match what getExpenses/getTodos return, so an export reads like the app's own data
+    private static final Table EXPENSES = new Table(Schema.TABLE_EXPENSES, Schema.TABLE_EXPENSES_ARCHIVE,
+        new Column("id", Schema.COLUMN_EXPENSE_ID, Type.LONG, false),
+        Column.itemName("item"),
+        new Column("amount", Schema.COLUMN_EXPENSE_AMOUNT, Type.DOUBLE, true),
+        new Column("date", Schema.COLUMN_EXPENSE_DATE, Type.STRING, true),
+        new Column("timestamp", Schema.COLUMN_EXPENSE_TIMESTAMP, Type.LONG, true));
+
+    private static final Table TODOS = new Table(Schema.TABLE_TODOS, null,
+        new Column("id", Schema.COLUMN_TODO_ID, Type.LONG, false),
+        new Column("title", Schema.COLUMN_TODO_TITLE, Type.STRING, true),
+        new Column("when", Schema.COLUMN_TODO_WHEN, Type.LONG, true),
+        new Column("priority", Schema.COLUMN_TODO_PRIORITY, Type.STRING, true),
+        new Column("done", Schema.COLUMN_TODO_DONE, Type.BOOLEAN, false),
+        new Column("notified", Schema.COLUMN_TODO_NOTIFIED, Type.BOOLEAN, false),
+        new Column("doneAt", Schema.COLUMN_TODO_DONE_AT, Type.LONG, false));
+
+    private DataTransfer() {
+    }
+
+    /**
+     * Writes the given tables to out and returns the number of rows written.
+     * NDJSON tags each line with its table; CSV has one header, so it takes
+     * exactly one table.
+     */
+    public static long export(SqlDatabase db, Writer out, Format format, List<String> tables,
+                              Progress progress) throws IOException {
+        if (format == Format.CSV && tables.size() != 1) {
+            throw new IllegalArgumentException("CSV export takes exactly one table");
+        }
+        StringBuilder line = new StringBuilder(256);
+        long written = 0;
+        try {
+            for (String name : tables) {
+                Table table = table(name);
+                if (format == Format.CSV) {
+                    for (Column column : table.columns) {
+                        line.append(column == table.columns[0] ? "" : ",").append(column.key);
+                    }
+                    out.write(line.append('\n').toString());
+                    line.setLength(0);
+                }
+                written += exportTable(db, out, format, table, line, progress);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+        return written;
+    }
+
+    private static long exportTable(SqlDatabase db, Writer out, Format format, Table table,
+                                    StringBuilder line, Progress progress) {
+        long total = db.query(table.count, null, rows -> rows.next() ? rows.getLong(0) : 0);
+        long[] lastId = {0};
+        long done = 0;
+        int page;
+        do {
+            // Keyset paging: each page seeks by id instead of an ever-growing OFFSET
+            Object[] args = new Object[table.selectArgs];
+            Arrays.fill(args, lastId[0]);
+            page = db.query(table.select, args, rows -> {
+                int count = 0;
+                while (rows.next()) {
+                    lastId[0] = rows.getLong(0);
+                    line.setLength(0);
+                    if (format == Format.CSV) {
+                        appendCsv(line, table, rows);
+                    } else {
+                        appendJson(line, table, rows);
+                    }
+                    try {
+                        out.write(line.append('\n').toString());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    count++;
+                }
+                return count;
+            });
+            done += page;
+            if (progress != null) {
+                progress.onProgress(table.name, done, Math.max(total, done));
+            }
+        } while (page == PAGE_ROWS);
+        return done;
+    }
+
+    private static void appendCsv(StringBuilder line, Table table, SqlDatabase.Rows rows) {
+        for (int i = 0; i < table.columns.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            if (rows.isNull(i)) {
+                continue;
+            }
+            switch (table.columns[i].type) {
+                case STRING:
+                    CsvText.appendField(line, rows.getString(i));
+                    break;
+                case DOUBLE:
+                    JsonText.appendNumber(line, rows.getDouble(i));
+                    break;
+                case BOOLEAN:
+                    line.append(rows.getLong(i) != 0);
+                    break;
+                default:
+                    line.append(rows.getLong(i));
+            }
+        }
+    }
+
+    private static void appendJson(StringBuilder line, Table table, SqlDatabase.Rows rows) {
+        line.append("{\"table\":");
+        JsonText.appendQuoted(line, table.name);
+        for (int i = 0; i < table.columns.length; i++) {
+            line.append(',');
+            JsonText.appendQuoted(line, table.columns[i].key);
+            line.append(':');
+            if (rows.isNull(i)) {
+                line.append("null");
+                continue;
+            }
+            switch (table.columns[i].type) {
+                case STRING:
+                    JsonText.appendQuoted(line, rows.getString(i));
+                    break;
+                case DOUBLE:
+                    JsonText.appendNumber(line, rows.getDouble(i));
+                    break;
+                case BOOLEAN:
+                    line.append(rows.getLong(i) != 0);
+                    break;
+                default:
+                    line.append(rows.getLong(i));
+            }
+        }
+        line.append('}');
+    }
+
+    /**
+     * Reads rows from in and inserts them with new ids. NDJSON lines name
+     * their table, defaulting to csvTable when they don't; a CSV file's
+     * header row names its columns and every row goes to csvTable.
+     */
+    public static ImportResult importFrom(SqlDatabase db, BufferedReader in, Format format, String csvTable,
+                                          Progress progress) throws IOException {
+        Table defaultTable = table(csvTable);
+        ImportResult result = new ImportResult();
+        Map<String, SqlDatabase.Statement> inserts = new HashMap<>();
+        CsvText.RecordReader csv = format == Format.CSV ? new CsvText.RecordReader(in) : null;
+        List<String> header = csv != null ? csv.next() : null;
+        long[] record = {header != null ? 1 : 0};
+        boolean[] more = {true};
+        try {
+            while (more[0]) {
+                db.inTransaction(() -> {
+                    try {
+                        for (int batch = 0; batch < BATCH_ROWS; batch++) {
+                            Map<String, Object> values;
+                            if (csv != null) {
+                                List<String> fields = csv.next();
+                                if (fields == null) {
+                                    more[0] = false;
+                                    return;
+                                }
+                                record[0]++;
+                                values = csvValues(header, fields);
+                            } else {
+                                String line = in.readLine();
+                                if (line == null) {
+                                    more[0] = false;
+                                    return;
+                                }
+                                record[0]++;
+                                if (line.trim().isEmpty()) {
+                                    continue;
+                                }
+                                try {
+                                    values = JsonText.parseFlatObject(line);
+                                } catch (IllegalArgumentException e) {
+                                    result.fail(record[0], e.getMessage());
+                                    continue;
+                                }
+                            }
+                            insert(db, inserts, values, defaultTable, record[0], result);
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                if (progress != null) {
+                    progress.onProgress(null, result.expenses + result.todos, -1);
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            for (SqlDatabase.Statement insert : inserts.values()) {
+                insert.close();
+            }
+        }
+        return result;
+    }
+
+    private static Map<String, Object> csvValues(List<String> header, List<String> fields) {
+        Map<String, Object> values = new HashMap<>();
+        for (int i = 0; header != null && i < header.size() && i < fields.size(); i++) {
+            // An empty field is a missing value, as export writes nulls
+            if (!fields.get(i).isEmpty()) {
+                values.put(header.get(i).trim(), fields.get(i));
+            }
+        }
+        return values;
+    }
+
+    private static void insert(SqlDatabase db, Map<String, SqlDatabase.Statement> inserts, Map<String, Object> values,
+                               Table defaultTable, long record, ImportResult result) {
+        Table table;
+        try {
+            Object name = values.get("table");
+            table = name != null ? table(name.toString()) : defaultTable;
+        } catch (IllegalArgumentException e) {
+            result.fail(record, e.getMessage());
+            return;
+        }
+
+        SqlDatabase.Statement insert = inserts.computeIfAbsent(table.insert, db::compile);
+        try {
+            for (int i = 1; i < table.columns.length; i++) {
+                Column column = table.columns[i];
+                Object value = convert(column, values.get(column.key));
+                if (value == null && column.required) {
+                    result.fail(record, "Missing " + column.key);
+                    return;
+                }
+                if (column.itemName) {
+                    ItemDictionary.add(inserts.computeIfAbsent(ItemDictionary.ADD, db::compile), (String) value);
+                }
+                // Optional columns are all flags or times where 0 means unset
+                insert.bind(i, value != null ? value : 0L);
+            }
+            if (insert.executeInsert() == -1) {
+                result.fail(record, "Failed to insert into " + table.name);
+            } else if (table == EXPENSES) {
+                result.expenses++;
+            } else {
+                result.todos++;
+            }
+        } catch (IllegalArgumentException | StorageException e) {
+            result.fail(record, e.getMessage());
+        } finally {
+            insert.clearBindings();
+        }
+    }
+
+    private static Object convert(Column column, Object value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            switch (column.type) {
+                case LONG:
+                    return value instanceof Number ? ((Number) value).longValue() : Long.parseLong(value.toString().trim());
+                case DOUBLE:
+                    return value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble(value.toString().trim());
+                case BOOLEAN:
+                    if (value instanceof Boolean) {
+                        return (Boolean) value ? 1L : 0L;
+                    }
+                    String text = value.toString().trim();
+                    return "true".equalsIgnoreCase(text) || "1".equals(text) ? 1L : 0L;
+                default:
+                    return value.toString();
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + column.key);
+        }
+    }
+
+    private static Table table(String name) {
+        for (Table table : Arrays.asList(EXPENSES, TODOS)) {
+            if (table.name.equals(name)) {
+                return table;
+            }
+        }
+        throw new IllegalArgumentException("Unknown table: " + name);
+    }
+}
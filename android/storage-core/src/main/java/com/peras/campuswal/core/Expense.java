@@ -0,0 +1,23 @@
+package com.peras.campuswal.core;
+
+/** One row of the expenses table; id is 0 until it has been saved. */
+public final class Expense {
+
+    public final long id;
+    public final String item;
+    public final double amount;
+    public final String date;
+    public final long timestamp;
+
+    public Expense(long id, String item, double amount, String date, long timestamp) {
+        this.id = id;
+        this.item = item;
+        this.amount = amount;
+        this.date = date;
+        this.timestamp = timestamp;
+    }
+
+    public Expense(String item, double amount, String date, long timestamp) {
+        this(0, item, amount, date, timestamp);
+    }
+}
@@ -0,0 +1,84 @@
+package com.peras.campuswal.core;
+
+/**
+ * Moves old expenses from the hot expenses table into expenses_archive.
+ * Everything newer than the stored cutoff is guaranteed to be hot, so
+ * queries that start after it never touch the archive, and its rows stop
+ * weighing on the hot table's indexes. Rows keep their ids and the daily
+ * rollup spans both tables, so totals and sync are unaffected by a move.
+ */
+public final class ExpenseArchive {
+
+    /** Timestamp below which expenses may be archived; 0 while nothing has been. */
+    public static final String KEY_BEFORE = "archive.before";
+    /** Age in days that applyPolicy archives at; 0 turns it off. */
+    public static final String KEY_OLDER_THAN_DAYS = "archive.olderThanDays";
+
+    // Rows moved per transaction, so readers and writers get a turn between batches
+    public static final int BATCH_ROWS = 2000;
+
+    private static final String OLDEST_HOT =
+        "SELECT " + Schema.COLUMN_EXPENSE_ID + " FROM " + Schema.TABLE_EXPENSES +
+            " WHERE " + Schema.COLUMN_EXPENSE_TIMESTAMP + " < ?" +
+            " ORDER BY " + Schema.COLUMN_EXPENSE_TIMESTAMP + ", " + Schema.COLUMN_EXPENSE_ID +
+            " LIMIT " + BATCH_ROWS;
+
+    private static final String COLUMNS =
+        Schema.COLUMN_EXPENSE_ID + ", " + Schema.COLUMN_EXPENSE_ITEM_ID + ", " +
+            Schema.COLUMN_EXPENSE_AMOUNT + ", " + Schema.COLUMN_EXPENSE_DATE + ", " +
+            Schema.COLUMN_EXPENSE_TIMESTAMP;
+
+    private ExpenseArchive() {
+    }
+
+    public static long archivedBefore(SqlDatabase db) {
+        return StorageSettings.getLong(db, KEY_BEFORE, 0);
+    }
+
+    /** Whether expenses at or after since (0 for all time) may include archived ones. */
+    public static boolean covers(SqlDatabase db, long since) {
+        return since < archivedBefore(db);
+    }
+
+    /** The tables a query over expenses at or after since has to read. */
+    public static String[] tables(SqlDatabase db, long since) {
+        return covers(db, since)
+            ? new String[]{Schema.TABLE_EXPENSES, Schema.TABLE_EXPENSES_ARCHIVE}
+            : new String[]{Schema.TABLE_EXPENSES};
+    }
+
+    /** Moves every hot expense older than before into the archive and returns how many moved. */
+    public static long archive(SqlDatabase db, long before) {
+        // Raise the cutoff first: a reader may then look in the archive needlessly, but never miss a row
+        db.inTransaction(() -> {
+            if (before > archivedBefore(db)) {
+                StorageSettings.putLong(db, KEY_BEFORE, before);
+            }
+        });
+
+        long moved = 0;
+        long[] batch = new long[1];
+        do {
+            db.inTransaction(() -> {
+                db.execute("INSERT INTO " + Schema.TABLE_EXPENSES_ARCHIVE + " (" + COLUMNS + ")" +
+                    " SELECT " + COLUMNS + " FROM " + Schema.TABLE_EXPENSES +
+                    " WHERE " + Schema.COLUMN_EXPENSE_ID + " IN (" + OLDEST_HOT + ")", before);
+                batch[0] = db.query("SELECT changes()", null, rows -> rows.next() ? rows.getLong(0) : 0);
+                // Same rows as above: nothing else can write inside this transaction
+                db.execute("DELETE FROM " + Schema.TABLE_EXPENSES +
+                    " WHERE " + Schema.COLUMN_EXPENSE_ID + " IN (" + OLDEST_HOT + ")", before);
+            });
+            moved += batch[0];
+        } while (batch[0] == BATCH_ROWS);
+        return moved;
+    }
+
+    /** Archives by the stored age policy, if one is set, relative to now. */
+    public static long applyPolicy(SqlDatabase db, long now) {
+        long days = StorageSettings.getLong(db, KEY_OLDER_THAN_DAYS, 0);
+        if (days <= 0) {
+            return 0;
+        }
+        return archive(db, SpendingSummary.addDays(SpendingSummary.startOfDay(now), (int) -days));
+    }
+}
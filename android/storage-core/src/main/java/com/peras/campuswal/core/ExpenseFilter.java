@@ -0,0 +1,62 @@
+package com.peras.campuswal.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * WHERE clause plus bound arguments for a query on the expenses table,
+ * built up one AND-ed condition at a time.
+ */
+public final class ExpenseFilter {
+
+    private final StringBuilder selection = new StringBuilder();
+    private final List<String> args = new ArrayList<>();
+
+    public ExpenseFilter and(String clause, String... values) {
+        if (selection.length() > 0) {
+            selection.append(" AND ");
+        }
+        selection.append('(').append(clause).append(')');
+        for (String value : values) {
+            args.add(value);
+        }
+        return this;
+    }
+
+    public ExpenseFilter copy() {
+        ExpenseFilter copy = new ExpenseFilter();
+        copy.selection.append(selection);
+        copy.args.addAll(args);
+        return copy;
+    }
+
+    public String selection() {
+        return selection.toString();
+    }
+
+    public String[] args() {
+        return args.isEmpty() ? null : args.toArray(new String[0]);
+    }
+
+    /**
+     * Turns free text into an FTS prefix query where every word must match
+     * the start of a word in the item name ("gre te" finds "Green tea").
+     * Returns null when the text has no word characters, in which case the
+     * caller should fall back to a substring LIKE.
+     */
+    public static String toMatchQuery(String text) {
+        StringBuilder match = new StringBuilder();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            if (match.length() > 0) {
+                match.append(' ');
+            }
+            // Lower case keeps tokens like "or"/"not" from being read as operators
+            match.append(token).append('*');
+        }
+        return match.length() == 0 ? null : match.toString();
+    }
+}
@@ -0,0 +1,23 @@
+package com.peras.campuswal.core;
+
+import java.util.List;
+
+/**
+ * One page of a filtered expense list, newest first. count and totalAmount
+ * cover every matching expense, not just this page; pass the last expense
+ * back as after to read the next page.
+ */
+public final class ExpensePage {
+
+    public final List<Expense> expenses;
+    public final long count;
+    public final double totalAmount;
+    public final boolean hasMore;
+
+    public ExpensePage(List<Expense> expenses, long count, double totalAmount, boolean hasMore) {
+        this.expenses = expenses;
+        this.count = count;
+        this.totalAmount = totalAmount;
+        this.hasMore = hasMore;
+    }
+}
@@ -0,0 +1,99 @@
+package com.peras.campuswal.core;
+
+import java.util.regex.Pattern;
+
+/**
+ * How expense lists are filtered, ordered and paged. The plugin and the
+ * JVM repository both build their SQL here so benchmarks measure the
+ * queries the app actually runs.
+ */
+public final class ExpenseQueries {
+
+    // id breaks ties between expenses saved in the same millisecond so paging is stable
+    public static final String ORDER =
+        Schema.COLUMN_EXPENSE_TIMESTAMP + " DESC, " + Schema.COLUMN_EXPENSE_ID + " DESC";
+
+    // A typical page, for weighing how soon a walk in ORDER fills one
+    private static final int PAGE_ROWS = 50;
+
+    // A search with no separators, which FTS would read as a single prefix
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+
+    private ExpenseQueries() {
+    }
+
+    /**
+     * Expenses at or after timeLimit (0 for no limit) whose item matches
+     * search. A single word matches names containing it anywhere; several
+     * words match names whose words start with them, through the item
+     * dictionary's FTS index. Only distinct names are searched and expenses
+     * are then found by item id. The archive is only included when
+     * timeLimit reaches back past its cutoff.
+     */
+    public static ExpenseSelection select(SqlDatabase db, String searchQuery, long timeLimit) {
+        boolean archived = ExpenseArchive.covers(db, timeLimit);
+        ExpenseFilter timeOnly = new ExpenseFilter();
+        if (timeLimit > 0) {
+            timeOnly.and(Schema.COLUMN_EXPENSE_TIMESTAMP + " >= ?", String.valueOf(timeLimit));
+        }
+        if (searchQuery.isEmpty()) {
+            return new ExpenseSelection(timeOnly, archived ? timeOnly.copy() : null);
+        }
+
+        String match = ExpenseFilter.toMatchQuery(searchQuery);
+        String itemIds;
+        String arg;
+        if (match != null && !WORD.matcher(searchQuery).matches()) {
+            // Word prefixes ("gre te" for "Green tea") come from the FTS index alone
+            itemIds = "SELECT docid FROM " + Schema.TABLE_ITEMS_FTS + " WHERE " + Schema.TABLE_ITEMS_FTS + " MATCH ?";
+            arg = match;
+        } else {
+            // One word: the substring scan also finds every name the FTS prefix would, and
+            // mid-word hits ("ea" in "Tea") the FTS index can't, so it runs on its own
+            itemIds = "SELECT " + Schema.COLUMN_ITEM_ID + " FROM " + Schema.TABLE_ITEMS +
+                " WHERE " + Schema.COLUMN_ITEM_NAME + " LIKE ?";
+            arg = "%" + searchQuery + "%";
+        }
+        ExpenseFilter matched = byItems(db, timeOnly, itemIds, arg);
+        return new ExpenseSelection(matched, archived ? matched.copy() : null);
+    }
+
+    /** Narrows filter to the rows after (timestamp, id) in ORDER, for keyset paging. */
+    public static ExpenseFilter after(ExpenseFilter filter, long timestamp, long id) {
+        // Written as a range on timestamp so an index on it can seek straight to the page
+        return filter.copy().and(
+            Schema.COLUMN_EXPENSE_TIMESTAMP + " <= ? AND (" +
+                Schema.COLUMN_EXPENSE_TIMESTAMP + " < ? OR " +
+                Schema.COLUMN_EXPENSE_ID + " < ?)",
+            String.valueOf(timestamp),
+            String.valueOf(timestamp),
+            String.valueOf(id));
+    }
+
+    /**
+     * timeOnly narrowed to expenses whose item id is among those itemIds
+     * selects. Seeking each matching row through the item index costs about
+     * one lookup per match; walking the timestamp index until a page fills
+     * costs about PAGE_ROWS * total / matched. Matches are estimated from
+     * the share of dictionary items selected, so choosing never counts
+     * expenses, and a broad match is told to walk by hiding the item index
+     * from the planner with a unary plus.
+     */
+    private static ExpenseFilter byItems(SqlDatabase db, ExpenseFilter timeOnly, String itemIds, String arg) {
+        // Reads only small tables: the rollup has a row per day, the dictionary one per name
+        double[] sizes = db.query(
+            "SELECT (SELECT COUNT(*) FROM (" + itemIds + ")), (SELECT COUNT(*) FROM " + Schema.TABLE_ITEMS + ")," +
+                " (SELECT IFNULL(SUM(" + Schema.COLUMN_ROLLUP_COUNT + "), 0) FROM " + Schema.TABLE_EXPENSE_DAILY_TOTALS + ")",
+            new Object[]{arg},
+            rows -> rows.next() ? new double[]{rows.getLong(0), rows.getLong(1), rows.getLong(2)} : new double[3]);
+        double total = sizes[2];
+        double matched = sizes[1] == 0 ? 0 : total * sizes[0] / sizes[1];
+        boolean walk = matched * matched > PAGE_ROWS * total;
+        return timeOnly.copy().and((walk ? "+" : "") + Schema.COLUMN_EXPENSE_ITEM_ID + " IN (" + itemIds + ")", arg);
+    }
+
+    public static String where(ExpenseFilter filter) {
+        String selection = filter.selection();
+        return selection.isEmpty() ? "" : " WHERE " + selection;
+    }
+}
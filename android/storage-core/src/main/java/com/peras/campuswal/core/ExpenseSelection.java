@@ -0,0 +1,70 @@
+package com.peras.campuswal.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The filters for one expense query over the hot table and, when the
+ * query reaches back past the archive cutoff, the archive too. Both
+ * partitions share ids and ORDER, so their rows merge into one list.
+ */
+public final class ExpenseSelection {
+
+    private final ExpenseFilter hot;
+    private final ExpenseFilter archive;
+
+    ExpenseSelection(ExpenseFilter hot, ExpenseFilter archive) {
+        this.hot = hot;
+        this.archive = archive;
+    }
+
+    public boolean includesArchive() {
+        return archive != null;
+    }
+
+    /** Narrows both partitions to the rows after (timestamp, id) in ORDER, for keyset paging. */
+    public ExpenseSelection after(long timestamp, long id) {
+        return new ExpenseSelection(
+            ExpenseQueries.after(hot, timestamp, id),
+            archive == null ? null : ExpenseQueries.after(archive, timestamp, id));
+    }
+
+    /** The given columns of matching rows in ORDER; limit <= 0 for all of them. */
+    public String rowsSql(String columns, int limit) {
+        String sql = "SELECT " + columns + " FROM " + Schema.TABLE_EXPENSES + ExpenseQueries.where(hot);
+        if (archive != null) {
+            // Each side walks its own timestamp index and SQLite merges the two in order
+            sql += " UNION ALL SELECT " + columns + " FROM " + Schema.TABLE_EXPENSES_ARCHIVE +
+                ExpenseQueries.where(archive);
+        }
+        return sql + " ORDER BY " + ExpenseQueries.ORDER + (limit > 0 ? " LIMIT " + limit : "");
+    }
+
+    /** COUNT and SUM over every matching row, as one row of two columns. */
+    public String totalsSql() {
+        String totals = "SELECT COUNT(*) AS c, COALESCE(SUM(" + Schema.COLUMN_EXPENSE_AMOUNT + "), 0) AS s FROM ";
+        if (archive == null) {
+            return totals + Schema.TABLE_EXPENSES + ExpenseQueries.where(hot);
+        }
+        return "SELECT SUM(c), SUM(s) FROM (" +
+            totals + Schema.TABLE_EXPENSES + ExpenseQueries.where(hot) +
+            " UNION ALL " + totals + Schema.TABLE_EXPENSES_ARCHIVE + ExpenseQueries.where(archive) + ")";
+    }
+
+    /** Arguments for rowsSql and totalsSql, hot partition first. */
+    public String[] args() {
+        List<String> args = new ArrayList<>();
+        addAll(args, hot.args());
+        if (archive != null) {
+            addAll(args, archive.args());
+        }
+        return args.isEmpty() ? null : args.toArray(new String[0]);
+    }
+
+    private static void addAll(List<String> to, String[] values) {
+        if (values != null) {
+            to.addAll(Arrays.asList(values));
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.peras.campuswal.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Folds writes that arrive close together into one transaction, so a burst
+ * of single saves pays for one commit instead of one each. The first write
+ * of a group starts a timer; once the window has passed, or as soon as
+ * maxWrites are queued, the group is handed to the writer, which applies
+ * them all in one transaction and only afterwards reports each write's
+ * result. The writer never waits for a window to close, so other writes
+ * are not held up behind an open group. Each write runs under its own
+ * savepoint: one that throws fails alone and the rest still commit.
+ */
+public final class GroupCommit {
+
+    /** One write; runs inside the group's transaction on the writer thread. */
+    public interface Write {
+        /** The new row id, or -1 if nothing was written. */
+        long apply(SqlDatabase db);
+    }
+
+    /** Told the outcome once the group's transaction has committed or rolled back. */
+    public interface Callback {
+        void committed(long id);
+
+        void failed(Exception error);
+    }
+
+    private static final class Pending {
+        final Write write;
+        final Callback callback;
+
+        Pending(Write write, Callback callback) {
+            this.write = write;
+            this.callback = callback;
+        }
+    }
+
+    private final SqlDatabase db;
+    private final Executor writer;
+    private final ScheduledExecutorService timer;
+    private final long windowMs;
+    private final int maxWrites;
+
+    private final Object lock = new Object();
+    private List<Pending> pending = new ArrayList<>();
+    private ScheduledFuture<?> windowClose;
+    // Bumped each time a group is taken, so a window timer that lost the race finds nothing to do
+    private long generation;
+
+    /**
+     * writer must run one task at a time, the same thread that makes every
+     * other write, so a group never holds a transaction open alongside
+     * another write. timer only closes windows and may be shared.
+     */
+    public GroupCommit(SqlDatabase db, Executor writer, ScheduledExecutorService timer, long windowMs, int maxWrites) {
+        if (windowMs < 0 || maxWrites < 1) {
+            throw new IllegalArgumentException("windowMs must be >= 0 and maxWrites >= 1");
+        }
+        this.db = db;
+        this.writer = writer;
+        this.timer = timer;
+        this.windowMs = windowMs;
+        this.maxWrites = maxWrites;
+    }
+
+    public void submit(Write write, Callback callback) {
+        List<Pending> group = null;
+        synchronized (lock) {
+            pending.add(new Pending(write, callback));
+            if (pending.size() >= maxWrites) {
+                group = take();
+            } else if (pending.size() == 1) {
+                long opened = generation;
+                try {
+                    windowClose = timer.schedule(() -> windowClosed(opened), windowMs, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    // No timer left to close the window, so don't hold the write back
+                    group = take();
+                }
+            }
+        }
+        if (group != null) {
+            post(group);
+        }
+    }
+
+    /** Writes waiting for their group to be handed to the writer. */
+    public int pending() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    private void windowClosed(long opened) {
+        List<Pending> group;
+        synchronized (lock) {
+            if (opened != generation) {
+                return;
+            }
+            group = take();
+        }
+        post(group);
+    }
+
+    // Caller holds lock
+    private List<Pending> take() {
+        List<Pending> group = pending;
+        pending = new ArrayList<>();
+        generation++;
+        if (windowClose != null) {
+            windowClose.cancel(false);
+            windowClose = null;
+        }
+        return group;
+    }
+
+    private void post(List<Pending> group) {
+        try {
+            writer.execute(() -> commit(group));
+        } catch (RejectedExecutionException e) {
+            failAll(group, e);
+        }
+    }
+
+    private void commit(List<Pending> group) {
+        long[] ids = new long[group.size()];
+        RuntimeException[] errors = new RuntimeException[group.size()];
+        try {
+            db.inTransaction(() -> {
+                for (int i = 0; i < ids.length; i++) {
+                    Write write = group.get(i).write;
+                    int index = i;
+                    try {
+                        db.inSavepoint(() -> ids[index] = write.apply(db));
+                    } catch (RuntimeException e) {
+                        errors[i] = e;
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            // The commit itself failed, so nothing in the group was kept
+            failAll(group, e);
+            return;
+        }
+        for (int i = 0; i < ids.length; i++) {
+            if (errors[i] != null) {
+                group.get(i).callback.failed(errors[i]);
+            } else {
+                group.get(i).callback.committed(ids[i]);
+            }
+        }
+    }
+
+    private static void failAll(List<Pending> group, Exception error) {
+        for (Pending write : group) {
+            write.callback.failed(error);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.peras.campuswal.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Item names stored once in the items table; expenses hold the integer id.
+ * Every distinct spelling gets its own row, so an expense reads back with
+ * exactly the name it was saved with, and rows also carry a normalized key
+ * ("bus  Fare" and "Bus fare" share one) for queries that treat spellings
+ * of the same item as one. Writers add the name first, then insert the
+ * expense with ID_OF in place of the name.
+ */
+public final class ItemDictionary {
+
+    /** Inserts a name with its key unless it is already there; bind with add. */
+    public static final String ADD =
+        "INSERT OR IGNORE INTO " + Schema.TABLE_ITEMS + " (" +
+        Schema.COLUMN_ITEM_NAME + ", " + Schema.COLUMN_ITEM_KEY + ") VALUES (?, ?)";
+
+    /** Expression for the id of the name bound to its one parameter. */
+    public static final String ID_OF =
+        "(SELECT " + Schema.COLUMN_ITEM_ID + " FROM " + Schema.TABLE_ITEMS +
+        " WHERE " + Schema.COLUMN_ITEM_NAME + " = ?)";
+
+    /** Select-list entry reading an expense row's name back as the item column. */
+    public static final String ITEM = nameOf(Schema.COLUMN_EXPENSE_ITEM_ID) + " AS " + Schema.COLUMN_EXPENSE_ITEM;
+
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    /** Spend on one item over a range; spellings sharing a key count as one item. */
+    public static final class Total {
+        /** The spelling used most often in the range. */
+        public final String name;
+        public final double amount;
+        public final long count;
+
+        Total(String name, double amount, long count) {
+            this.name = name;
+            this.amount = amount;
+            this.count = count;
+        }
+    }
+
+    private static final class Merged {
+        String name;
+        long nameUses;
+        double amount;
+        long count;
+
+        void add(String spelling, double spent, long uses) {
+            amount += spent;
+            count += uses;
+            if (uses > nameUses) {
+                name = spelling;
+                nameUses = uses;
+            }
+        }
+    }
+
+    private ItemDictionary() {
+    }
+
+    /** Expression for the name behind the item id in idExpression. */
+    public static String nameOf(String idExpression) {
+        return "(SELECT " + Schema.COLUMN_ITEM_NAME + " FROM " + Schema.TABLE_ITEMS +
+            " WHERE " + Schema.COLUMN_ITEM_ID + " = " + idExpression + ")";
+    }
+
+    /** Binds name and its key to a compiled ADD and runs it. */
+    public static void add(SqlDatabase.Statement add, String name) {
+        add.bind(1, name);
+        add.bind(2, key(name));
+        add.executeInsert();
+        add.clearBindings();
+    }
+
+    /** Lower-cased with runs of whitespace collapsed, so near-identical spellings match. */
+    public static String key(String name) {
+        return name == null ? "" : clean(name).toLowerCase(Locale.ROOT);
+    }
+
+    static String clean(String name) {
+        return SPACES.matcher(name.trim()).replaceAll(" ");
+    }
+
+    /**
+     * The limit items with the most spend at or after from (0 for all
+     * time), largest first. Each table is summed per item id on its own,
+     * so the grouping compares integers rather than names; only the ids
+     * that turned up are then named and merged by key.
+     */
+    public static List<Total> top(SqlDatabase db, long from, int limit) {
+        Map<Long, Merged> byId = new HashMap<>();
+        for (String table : ExpenseArchive.tables(db, from)) {
+            db.query(
+                "SELECT " + Schema.COLUMN_EXPENSE_ITEM_ID + ", SUM(" + Schema.COLUMN_EXPENSE_AMOUNT + "), COUNT(*)" +
+                    " FROM " + table + " WHERE " + Schema.COLUMN_EXPENSE_TIMESTAMP + " >= ?" +
+                    // Unary plus: visiting rows in item index order costs a random lookup each
+                    " GROUP BY +" + Schema.COLUMN_EXPENSE_ITEM_ID,
+                new Object[]{from},
+                rows -> {
+                    while (rows.next()) {
+                        byId.computeIfAbsent(rows.getLong(0), id -> new Merged())
+                            .add(null, rows.getDouble(1), rows.getLong(2));
+                    }
+                    return null;
+                });
+        }
+        if (byId.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        StringBuilder ids = new StringBuilder();
+        for (Long id : byId.keySet()) {
+            ids.append(ids.length() == 0 ? "" : ",").append(id);
+        }
+        Map<String, Merged> byKey = new HashMap<>();
+        db.query(
+            "SELECT " + Schema.COLUMN_ITEM_ID + ", " + Schema.COLUMN_ITEM_NAME + ", " + Schema.COLUMN_ITEM_KEY +
+                " FROM " + Schema.TABLE_ITEMS + " WHERE " + Schema.COLUMN_ITEM_ID + " IN (" + ids + ")",
+            null,
+            rows -> {
+                while (rows.next()) {
+                    Merged spelling = byId.get(rows.getLong(0));
+                    byKey.computeIfAbsent(rows.getString(2), key -> new Merged())
+                        .add(rows.getString(1), spelling.amount, spelling.count);
+                }
+                return null;
+            });
+
+        List<Total> totals = new ArrayList<>(byKey.size());
+        for (Merged merged : byKey.values()) {
+            totals.add(new Total(merged.name, merged.amount, merged.count));
+        }
+        totals.sort((a, b) -> a.amount != b.amount
+            ? Double.compare(b.amount, a.amount)
+            : a.name.compareTo(b.name));
+        return totals.size() > limit ? new ArrayList<>(totals.subList(0, Math.max(limit, 0))) : totals;
+    }
+}
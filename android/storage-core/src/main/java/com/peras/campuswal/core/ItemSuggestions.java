@@ -0,0 +1,222 @@
+package com.peras.campuswal.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Item names by how often they were used, for autocomplete. Names are kept
+ * in a sorted array keyed by their normalized form ("bus  Fare" and "Bus
+ * fare" share a key), so a prefix is two binary searches and the best few
+ * matches a small heap over that range; nothing touches SQLite after the
+ * first load. Each key suggests its most used spelling. One- and two-letter
+ * prefixes span too much of the array to rank per keystroke, so their best
+ * MAX_LIMIT entries are kept ranked and adjusted as counts change.
+ */
+public final class ItemSuggestions {
+
+    /** Most suggestions one call can ask for. */
+    public static final int MAX_LIMIT = 50;
+
+    // Prefixes up to this long are answered from the ranked cache
+    private static final int SHORT_PREFIX = 2;
+
+    private static final class Entry {
+        final String key;
+        int count;
+        String spelling;
+        int spellingCount;
+        // Only allocated once a second spelling shows up
+        Map<String, Integer> spellings;
+
+        Entry(String key) {
+            this.key = key;
+        }
+
+        void add(String name, int times) {
+            count += times;
+            if (spelling == null || spelling.equals(name)) {
+                spelling = name;
+                spellingCount += times;
+                return;
+            }
+            if (spellings == null) {
+                spellings = new HashMap<>();
+                spellings.put(spelling, spellingCount);
+            }
+            int used = spellings.merge(name, times, Integer::sum);
+            if (used > spellingCount) {
+                spelling = name;
+                spellingCount = used;
+            }
+        }
+    }
+
+    private Entry[] entries = new Entry[0];
+    private int size;
+    private boolean loaded;
+    private final Map<String, List<Entry>> shortPrefixes = new HashMap<>();
+
+    /** Whether load has run since construction or the last invalidate. */
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /** Drops everything so the next load rebuilds from the database, e.g. after a bulk import. */
+    public synchronized void invalidate() {
+        entries = new Entry[0];
+        size = 0;
+        loaded = false;
+        shortPrefixes.clear();
+    }
+
+    /** Builds the index from every distinct item name, hot and archived, with its count. */
+    public synchronized void load(SqlDatabase db) {
+        Map<String, Entry> byKey = new HashMap<>();
+        // Counted per item id through the item index, then each distinct id's name looked up once
+        db.query(
+            "SELECT " + ItemDictionary.nameOf(Schema.COLUMN_EXPENSE_ITEM_ID) + ", uses FROM (" +
+                "SELECT " + Schema.COLUMN_EXPENSE_ITEM_ID + ", COUNT(*) AS uses FROM (" +
+                "SELECT " + Schema.COLUMN_EXPENSE_ITEM_ID + " FROM " + Schema.TABLE_EXPENSES +
+                " UNION ALL SELECT " + Schema.COLUMN_EXPENSE_ITEM_ID + " FROM " + Schema.TABLE_EXPENSES_ARCHIVE +
+                ") GROUP BY " + Schema.COLUMN_EXPENSE_ITEM_ID + ")",
+            null,
+            rows -> {
+                while (rows.next()) {
+                    String name = rows.getString(0);
+                    String key = normalize(name);
+                    if (!key.isEmpty()) {
+                        byKey.computeIfAbsent(key, Entry::new).add(clean(name), (int) rows.getLong(1));
+                    }
+                }
+                return null;
+            });
+        entries = byKey.values().toArray(new Entry[0]);
+        Arrays.sort(entries, (a, b) -> a.key.compareTo(b.key));
+        size = entries.length;
+        loaded = true;
+        shortPrefixes.clear();
+    }
+
+    /** Counts one more use of name; ignored until the index is loaded, which will include it. */
+    public synchronized void add(String name) {
+        String key = normalize(name);
+        if (!loaded || key.isEmpty()) {
+            return;
+        }
+        int index = search(key);
+        if (index < 0) {
+            index = -index - 1;
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, Math.max(16, size * 2));
+            }
+            System.arraycopy(entries, index, entries, index + 1, size - index);
+            entries[index] = new Entry(key);
+            size++;
+        }
+        Entry entry = entries[index];
+        entry.add(clean(name), 1);
+
+        // The entry only gained, so it can only move up within, or into, each cached top list
+        for (int length = 0; length <= Math.min(SHORT_PREFIX, key.length()); length++) {
+            List<Entry> top = shortPrefixes.get(key.substring(0, length));
+            if (top == null) {
+                continue;
+            }
+            int at = top.indexOf(entry);
+            if (at < 0) {
+                if (top.size() < MAX_LIMIT) {
+                    at = top.size();
+                    top.add(entry);
+                } else if (rank(entry, top.get(top.size() - 1)) > 0) {
+                    at = top.size() - 1;
+                    top.set(at, entry);
+                } else {
+                    continue;
+                }
+            }
+            for (; at > 0 && rank(top.get(at), top.get(at - 1)) > 0; at--) {
+                Collections.swap(top, at, at - 1);
+            }
+        }
+    }
+
+    /** Up to limit names starting with prefix, most used first. */
+    public synchronized List<String> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        List<String> out = new ArrayList<>();
+        limit = Math.min(limit, MAX_LIMIT);
+        if (limit <= 0) {
+            return out;
+        }
+        List<Entry> top;
+        if (key.length() <= SHORT_PREFIX) {
+            top = shortPrefixes.get(key);
+            if (top == null) {
+                top = best(key, MAX_LIMIT);
+                shortPrefixes.put(key, top);
+            }
+        } else {
+            top = best(key, limit);
+        }
+        for (int i = 0; i < Math.min(limit, top.size()); i++) {
+            out.add(top.get(i).spelling);
+        }
+        return out;
+    }
+
+    /** The limit best entries under prefix key, best first. */
+    private List<Entry> best(String key, int limit) {
+        int from = insertionPoint(key);
+        // Every key starting with the prefix sorts before prefix + the highest char
+        int to = insertionPoint(key + Character.MAX_VALUE);
+
+        PriorityQueue<Entry> best = new PriorityQueue<>(limit + 1, ItemSuggestions::rank);
+        for (int i = from; i < to; i++) {
+            best.add(entries[i]);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<Entry> out = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            out.add(best.poll());
+        }
+        Collections.reverse(out);
+        return out;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // Ascending rank: fewer uses first, then later in the alphabet, so the heap drops the weakest
+    private static int rank(Entry a, Entry b) {
+        if (a.count != b.count) {
+            return Integer.compare(a.count, b.count);
+        }
+        return b.key.compareTo(a.key);
+    }
+
+    private int search(String key) {
+        return Arrays.binarySearch(entries, 0, size, new Entry(key), (a, b) -> a.key.compareTo(b.key));
+    }
+
+    private int insertionPoint(String key) {
+        int index = search(key);
+        return index < 0 ? -index - 1 : index;
+    }
+
+    // Same key the items table stores, so suggestions and top items agree on what one item is
+    static String normalize(String name) {
+        return ItemDictionary.key(name);
+    }
+
+    private static String clean(String name) {
+        return ItemDictionary.clean(name);
+    }
+}
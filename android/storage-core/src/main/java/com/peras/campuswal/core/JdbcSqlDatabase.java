@@ -0,0 +1,247 @@
+package com.peras.campuswal.core;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * SqlDatabase over a JDBC connection, for running the storage code on a
+ * plain JVM (tests, benchmarks) with the xerial sqlite-jdbc driver on the
+ * classpath. The app itself uses Android's SQLiteDatabase instead.
+ */
+public final class JdbcSqlDatabase implements SqlDatabase, AutoCloseable {
+
+    private final Connection connection;
+    private int transactionDepth;
+    private PreparedStatement lastInsertRowid;
+
+    public JdbcSqlDatabase(Connection connection) {
+        this.connection = connection;
+    }
+
+    /** Opens a SQLite file in WAL mode with normal sync, like the app's database. */
+    public static JdbcSqlDatabase open(String path) {
+        try {
+            JdbcSqlDatabase db = new JdbcSqlDatabase(DriverManager.getConnection("jdbc:sqlite:" + path));
+            db.query("PRAGMA journal_mode = WAL", null, rows -> rows.next());
+            db.execute("PRAGMA synchronous = NORMAL");
+            return db;
+        } catch (SQLException e) {
+            throw new StorageException("Failed to open " + path, e);
+        }
+    }
+
+    @Override
+    public void execute(String sql, Object... args) {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            bindAll(statement, args);
+            statement.execute();
+        } catch (SQLException e) {
+            throw new StorageException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public <T> T query(String sql, Object[] args, RowReader<T> reader) {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            bindAll(statement, args);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return reader.read(new JdbcRows(resultSet));
+            }
+        } catch (SQLException e) {
+            throw new StorageException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Statement compile(String sql) {
+        try {
+            return new JdbcStatement(connection.prepareStatement(sql));
+        } catch (SQLException e) {
+            throw new StorageException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void inTransaction(Runnable work) {
+        try {
+            if (transactionDepth++ == 0) {
+                connection.setAutoCommit(false);
+            }
+            boolean ok = false;
+            try {
+                work.run();
+                ok = true;
+            } finally {
+                if (--transactionDepth == 0) {
+                    if (ok) {
+                        connection.commit();
+                    } else {
+                        connection.rollback();
+                    }
+                    connection.setAutoCommit(true);
+                }
+            }
+        } catch (SQLException e) {
+            throw new StorageException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void inSavepoint(Runnable work) {
+        execute("SAVEPOINT work");
+        try {
+            work.run();
+        } catch (RuntimeException e) {
+            execute("ROLLBACK TO work");
+            throw e;
+        } finally {
+            execute("RELEASE work");
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (lastInsertRowid != null) {
+                lastInsertRowid.close();
+            }
+            connection.close();
+        } catch (SQLException e) {
+            throw new StorageException(e.getMessage(), e);
+        }
+    }
+
+    private long lastInsertRowid() throws SQLException {
+        if (lastInsertRowid == null) {
+            lastInsertRowid = connection.prepareStatement("SELECT last_insert_rowid()");
+        }
+        try (ResultSet resultSet = lastInsertRowid.executeQuery()) {
+            return resultSet.next() ? resultSet.getLong(1) : -1;
+        }
+    }
+
+    private static void bindAll(PreparedStatement statement, Object[] args) throws SQLException {
+        if (args == null) {
+            return;
+        }
+        for (int i = 0; i < args.length; i++) {
+            bind(statement, i + 1, args[i]);
+        }
+    }
+
+    private static void bind(PreparedStatement statement, int index, Object value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.NULL);
+        } else if (value instanceof Double || value instanceof Float) {
+            statement.setDouble(index, ((Number) value).doubleValue());
+        } else if (value instanceof Number) {
+            statement.setLong(index, ((Number) value).longValue());
+        } else {
+            statement.setString(index, value.toString());
+        }
+    }
+
+    private static final class JdbcRows implements Rows {
+        private final ResultSet resultSet;
+
+        JdbcRows(ResultSet resultSet) {
+            this.resultSet = resultSet;
+        }
+
+        @Override
+        public boolean next() {
+            try {
+                return resultSet.next();
+            } catch (SQLException e) {
+                throw new StorageException(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public boolean isNull(int column) {
+            try {
+                return resultSet.getObject(column + 1) == null;
+            } catch (SQLException e) {
+                throw new StorageException(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public long getLong(int column) {
+            try {
+                return resultSet.getLong(column + 1);
+            } catch (SQLException e) {
+                throw new StorageException(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public double getDouble(int column) {
+            try {
+                return resultSet.getDouble(column + 1);
+            } catch (SQLException e) {
+                throw new StorageException(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public String getString(int column) {
+            try {
+                return resultSet.getString(column + 1);
+            } catch (SQLException e) {
+                throw new StorageException(e.getMessage(), e);
+            }
+        }
+    }
+
+    private final class JdbcStatement implements Statement {
+        private final PreparedStatement statement;
+
+        JdbcStatement(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        @Override
+        public void bind(int index, Object value) {
+            try {
+                JdbcSqlDatabase.bind(statement, index, value);
+            } catch (SQLException e) {
+                throw new StorageException(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public long executeInsert() {
+            try {
+                if (statement.executeUpdate() == 0) {
+                    return -1;
+                }
+                return lastInsertRowid();
+            } catch (SQLException e) {
+                throw new StorageException(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public void clearBindings() {
+            try {
+                statement.clearParameters();
+            } catch (SQLException e) {
+                throw new StorageException(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                throw new StorageException(e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.peras.campuswal.core;
+
+/**
+ * Writes rows straight into one JSON array text, so a result set crosses
+ * the bridge as a single string instead of an object per row that the
+ * bridge then serializes again. Keys are rendered once per field, so the
+ * loop over rows only appends values.
+ */
+public final class RowJson {
+
+    public enum Type { LONG, DOUBLE, STRING, BOOLEAN }
+
+    /** Maps one column to one JSON key. */
+    public static final class Field {
+        public final String key;
+        public final String column;
+        public final Type type;
+        // Pre-rendered "key": so the hot loop only appends values
+        final String prefix;
+
+        public Field(String key, String column, Type type) {
+            this.key = key;
+            this.column = column;
+            this.type = type;
+            this.prefix = quote(key) + ":";
+        }
+    }
+
+    public static final Field[] EXPENSE = {
+        new Field("id", Schema.COLUMN_EXPENSE_ID, Type.LONG),
+        new Field("item", Schema.COLUMN_EXPENSE_ITEM, Type.STRING),
+        new Field("amount", Schema.COLUMN_EXPENSE_AMOUNT, Type.DOUBLE),
+        new Field("date", Schema.COLUMN_EXPENSE_DATE, Type.STRING),
+        new Field("timestamp", Schema.COLUMN_EXPENSE_TIMESTAMP, Type.LONG),
+    };
+
+    public static final Field[] TODO = {
+        new Field("id", Schema.COLUMN_TODO_ID, Type.LONG),
+        new Field("title", Schema.COLUMN_TODO_TITLE, Type.STRING),
+        new Field("when", Schema.COLUMN_TODO_WHEN, Type.LONG),
+        new Field("priority", Schema.COLUMN_TODO_PRIORITY, Type.STRING),
+        new Field("done", Schema.COLUMN_TODO_DONE, Type.BOOLEAN),
+        new Field("notified", Schema.COLUMN_TODO_NOTIFIED, Type.BOOLEAN),
+        new Field("doneAt", Schema.COLUMN_TODO_DONE_AT, Type.LONG),
+    };
+
+    private final Field[] fields;
+    private final int[] columns;
+    private final StringBuilder json;
+    private int rows;
+
+    /**
+     * columns gives each field's column in the rows, or is null when the
+     * query selects them in field order; expectedRows only sizes the buffer.
+     */
+    public RowJson(Field[] fields, int[] columns, int expectedRows) {
+        this.fields = fields;
+        if (columns == null) {
+            columns = new int[fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                columns[i] = i;
+            }
+        }
+        this.columns = columns;
+        // Rough size guess to avoid most regrowth of the buffer
+        this.json = new StringBuilder(Math.max(64, Math.min(expectedRows, 10000) * 24 * fields.length));
+        json.append('[');
+    }
+
+    /** Appends the current row to the array text. */
+    public void appendRow(SqlDatabase.Rows row) {
+        if (rows++ > 0) {
+            json.append(',');
+        }
+        json.append('{');
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(fields[i].prefix);
+            appendValue(row, fields[i].type, columns[i]);
+        }
+        json.append('}');
+    }
+
+    public int rowCount() {
+        return rows;
+    }
+
+    /** Closes the array and returns its text; call once, after the last row. */
+    public String toJson() {
+        return json.append(']').toString();
+    }
+
+    private static String quote(String value) {
+        StringBuilder out = new StringBuilder(value.length() + 2);
+        JsonText.appendQuoted(out, value);
+        return out.toString();
+    }
+
+    private void appendValue(SqlDatabase.Rows row, Type type, int column) {
+        switch (type) {
+            case LONG:
+                json.append(row.getLong(column));
+                break;
+            case DOUBLE:
+                JsonText.appendNumber(json, row.getDouble(column));
+                break;
+            case BOOLEAN:
+                json.append(row.getLong(column) == 1 ? "true" : "false");
+                break;
+            default:
+                // getString is null for NULL, which saves asking isNull first
+                String value = row.getString(column);
+                if (value == null) {
+                    json.append("null");
+                } else {
+                    JsonText.appendQuoted(json, value);
+                }
+        }
+    }
+}
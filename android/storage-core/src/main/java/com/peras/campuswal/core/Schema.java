@@ -0,0 +1,483 @@
+package com.peras.campuswal.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Table and column names plus every schema migration, shared by the app's
+ * SQLiteOpenHelper and the JVM backend so both build the same database.
+ */
+public final class Schema {
+
+    // Bump together with a new case in migrate(); never edit a shipped step
+    public static final int VERSION = 11;
+
+    // Expenses table
+    public static final String TABLE_EXPENSES = "expenses";
+    public static final String COLUMN_EXPENSE_ID = "id";
+    // Name the item reads back as; since version 11 rows store item_id into items instead
+    public static final String COLUMN_EXPENSE_ITEM = "item";
+    public static final String COLUMN_EXPENSE_ITEM_ID = "item_id";
+    public static final String COLUMN_EXPENSE_AMOUNT = "amount";
+    public static final String COLUMN_EXPENSE_DATE = "date";
+    public static final String COLUMN_EXPENSE_TIMESTAMP = "timestamp";
+
+    // Full-text index over expense item names (external content, rows live in expenses); until version 11
+    public static final String TABLE_EXPENSES_FTS = "expenses_fts";
+
+    // One row per distinct item spelling; key is the normalized name from ItemDictionary.key
+    public static final String TABLE_ITEMS = "items";
+    public static final String COLUMN_ITEM_ID = "id";
+    public static final String COLUMN_ITEM_NAME = "name";
+    public static final String COLUMN_ITEM_KEY = "key";
+    public static final String TABLE_ITEMS_FTS = "items_fts";
+
+    // Expenses moved out of the hot table by ExpenseArchive; same columns and ids as expenses
+    public static final String TABLE_EXPENSES_ARCHIVE = "expenses_archive";
+    public static final String TABLE_EXPENSES_ARCHIVE_FTS = "expenses_archive_fts"; // until version 11
+
+    // Small key/value store for storage state such as the archive cutoff
+    public static final String TABLE_SETTINGS = "storage_settings";
+    public static final String COLUMN_SETTING_KEY = "key";
+    public static final String COLUMN_SETTING_VALUE = "value";
+
+    // Per-day spending rollup maintained by triggers; day = timestamp / 86400000 (UTC)
+    public static final String TABLE_EXPENSE_DAILY_TOTALS = "expense_daily_totals";
+    public static final String COLUMN_ROLLUP_DAY = "day";
+    public static final String COLUMN_ROLLUP_TOTAL = "total";
+    public static final String COLUMN_ROLLUP_COUNT = "count";
+    public static final String COLUMN_ROLLUP_MIN = "min_amount";
+    public static final String COLUMN_ROLLUP_MAX = "max_amount";
+
+    // Latest change per row, for getChangesSince; version only ever grows
+    public static final String TABLE_CHANGE_LOG = "change_log";
+    public static final String COLUMN_CHANGE_VERSION = "version";
+    public static final String COLUMN_CHANGE_TABLE = "table_name";
+    public static final String COLUMN_CHANGE_ROW_ID = "row_id";
+    public static final String COLUMN_CHANGE_OP = "op";
+
+    // Todos table
+    public static final String TABLE_TODOS = "todos";
+    public static final String COLUMN_TODO_ID = "id";
+    public static final String COLUMN_TODO_TITLE = "title";
+    public static final String COLUMN_TODO_WHEN = "when_time";
+    public static final String COLUMN_TODO_PRIORITY = "priority";
+    public static final String COLUMN_TODO_DONE = "done";
+    public static final String COLUMN_TODO_NOTIFIED = "notified";
+    public static final String COLUMN_TODO_DONE_AT = "done_at";
+
+    // Indexes
+    public static final String INDEX_EXPENSES_TIMESTAMP = "idx_expenses_timestamp";
+    public static final String INDEX_TODOS_WHEN = "idx_todos_when";
+    public static final String INDEX_TODOS_DONE_WHEN = "idx_todos_done_when";
+    public static final String INDEX_CHANGE_LOG_ROW = "idx_change_log_row";
+    public static final String INDEX_TODOS_PENDING_REMINDERS = "idx_todos_pending_reminders";
+    public static final String INDEX_EXPENSES_ARCHIVE_TIMESTAMP = "idx_expenses_archive_timestamp";
+    public static final String INDEX_TODOS_PENDING = "idx_todos_pending";
+    public static final String INDEX_TODOS_COMPLETED = "idx_todos_completed";
+    public static final String INDEX_ITEMS_KEY = "idx_items_key";
+    public static final String INDEX_EXPENSES_ITEM = "idx_expenses_item";
+    public static final String INDEX_EXPENSES_ARCHIVE_ITEM = "idx_expenses_archive_item";
+
+    // Version 1 schema. Later changes are applied as migrations on top of it.
+    private static final String CREATE_EXPENSES_TABLE = 
+        "CREATE TABLE " + TABLE_EXPENSES + " (" +
+        COLUMN_EXPENSE_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+        COLUMN_EXPENSE_ITEM + " TEXT NOT NULL, " +
+        COLUMN_EXPENSE_AMOUNT + " REAL NOT NULL, " +
+        COLUMN_EXPENSE_DATE + " TEXT NOT NULL, " +
+        COLUMN_EXPENSE_TIMESTAMP + " INTEGER NOT NULL" +
+        ")";
+
+    private static final String CREATE_TODOS_TABLE = 
+        "CREATE TABLE " + TABLE_TODOS + " (" +
+        COLUMN_TODO_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+        COLUMN_TODO_TITLE + " TEXT NOT NULL, " +
+        COLUMN_TODO_WHEN + " INTEGER NOT NULL, " +
+        COLUMN_TODO_PRIORITY + " TEXT NOT NULL, " +
+        COLUMN_TODO_DONE + " INTEGER DEFAULT 0, " +
+        COLUMN_TODO_NOTIFIED + " INTEGER DEFAULT 0, " +
+        COLUMN_TODO_DONE_AT + " INTEGER DEFAULT 0" +
+        ")";
+
+    private Schema() {
+    }
+
+    /** Builds the current schema in an empty database. */
+    public static void create(SqlDatabase db) {
+        db.execute(CREATE_EXPENSES_TABLE);
+        db.execute(CREATE_TODOS_TABLE);
+        // Fresh installs run the same steps as upgrades so both end up with one schema
+        upgrade(db, 1, VERSION);
+    }
+
+    public static void upgrade(SqlDatabase db, int oldVersion, int newVersion) {
+        for (int version = oldVersion + 1; version <= newVersion; version++) {
+            migrate(db, version);
+        }
+    }
+
+    /** Applies the step that takes the schema from toVersion - 1 to toVersion. */
+    public static void migrate(SqlDatabase db, int toVersion) {
+        switch (toVersion) {
+            case 2:
+                // getExpenses orders by (timestamp DESC, id DESC) and filters on timestamp
+                db.execute("CREATE INDEX IF NOT EXISTS " + INDEX_EXPENSES_TIMESTAMP +
+                    " ON " + TABLE_EXPENSES + " (" +
+                    COLUMN_EXPENSE_TIMESTAMP + " DESC, " + COLUMN_EXPENSE_ID + " DESC)");
+                break;
+            case 3:
+                // getTodos orders by when_time; pending lookups filter on done first
+                db.execute("CREATE INDEX IF NOT EXISTS " + INDEX_TODOS_WHEN +
+                    " ON " + TABLE_TODOS + " (" + COLUMN_TODO_WHEN + ")");
+                db.execute("CREATE INDEX IF NOT EXISTS " + INDEX_TODOS_DONE_WHEN +
+                    " ON " + TABLE_TODOS + " (" + COLUMN_TODO_DONE + ", " + COLUMN_TODO_WHEN + ")");
+                break;
+            case 4:
+                createSearchIndex(db, TABLE_EXPENSES, TABLE_EXPENSES_FTS, COLUMN_EXPENSE_ITEM, COLUMN_EXPENSE_ID);
+                break;
+            case 5:
+                createDailyTotals(db);
+                break;
+            case 6:
+                createChangeLog(db);
+                break;
+            case 7:
+                // Partial index: only reminders still to fire, so the next-due lookup never walks old todos
+                db.execute("CREATE INDEX IF NOT EXISTS " + INDEX_TODOS_PENDING_REMINDERS +
+                    " ON " + TABLE_TODOS + " (" + COLUMN_TODO_WHEN + ")" +
+                    " WHERE " + COLUMN_TODO_DONE + " = 0 AND " + COLUMN_TODO_NOTIFIED + " = 0");
+                // Earlier versions never set notified and skipped past times, so without this
+                // every overdue todo would fire at once on the first delivery after the update
+                db.execute("UPDATE " + TABLE_TODOS + " SET " + COLUMN_TODO_NOTIFIED + " = 1" +
+                    " WHERE " + COLUMN_TODO_DONE + " = 0 AND " + COLUMN_TODO_NOTIFIED + " = 0" +
+                    " AND " + COLUMN_TODO_WHEN + " <= ?", System.currentTimeMillis());
+                break;
+            case 8:
+                addDailyMinMax(db);
+                break;
+            case 9:
+                createExpenseArchive(db);
+                break;
+            case 10:
+                // Todo views read only active or recently completed rows, so index just those;
+                // the pending index replaces (done, when_time) and its entries for every done todo
+                db.execute("CREATE INDEX IF NOT EXISTS " + INDEX_TODOS_PENDING +
+                    " ON " + TABLE_TODOS + " (" + COLUMN_TODO_WHEN + ") WHERE " + COLUMN_TODO_DONE + " = 0");
+                db.execute("CREATE INDEX IF NOT EXISTS " + INDEX_TODOS_COMPLETED +
+                    " ON " + TABLE_TODOS + " (" + COLUMN_TODO_DONE_AT + ") WHERE " + COLUMN_TODO_DONE + " = 1");
+                db.execute("DROP INDEX IF EXISTS " + INDEX_TODOS_DONE_WHEN);
+                break;
+            case 11:
+                encodeItemNames(db);
+                break;
+            default:
+                throw new IllegalStateException("No migration to database version " + toVersion);
+        }
+    }
+
+    private static void createSearchIndex(SqlDatabase db, String table, String fts, String column, String idColumn) {
+        // FTS4 rather than FTS5: the platform SQLite on older devices only ships FTS3/4
+        db.execute("CREATE VIRTUAL TABLE IF NOT EXISTS " + fts +
+            " USING fts4(content=\"" + table + "\", " + column + ")");
+
+        // External content tables must see the old text to remove it, hence BEFORE triggers
+        db.execute("CREATE TRIGGER IF NOT EXISTS " + fts + "_bd BEFORE DELETE ON " + table +
+            " BEGIN DELETE FROM " + fts + " WHERE docid = old." + idColumn + "; END");
+        db.execute("CREATE TRIGGER IF NOT EXISTS " + fts + "_bu BEFORE UPDATE OF " + column +
+            " ON " + table +
+            " BEGIN DELETE FROM " + fts + " WHERE docid = old." + idColumn + "; END");
+        db.execute("CREATE TRIGGER IF NOT EXISTS " + fts + "_au AFTER UPDATE OF " + column +
+            " ON " + table +
+            " BEGIN INSERT INTO " + fts + " (docid, " + column + ")" +
+            " VALUES (new." + idColumn + ", new." + column + "); END");
+        db.execute("CREATE TRIGGER IF NOT EXISTS " + fts + "_ai AFTER INSERT ON " + table +
+            " BEGIN INSERT INTO " + fts + " (docid, " + column + ")" +
+            " VALUES (new." + idColumn + ", new." + column + "); END");
+
+        // Index whatever rows were already there
+        db.execute("INSERT INTO " + fts + " (" + fts + ") VALUES ('rebuild')");
+    }
+
+    private static void createDailyTotals(SqlDatabase db) {
+        db.execute("CREATE TABLE IF NOT EXISTS " + TABLE_EXPENSE_DAILY_TOTALS + " (" +
+            COLUMN_ROLLUP_DAY + " INTEGER PRIMARY KEY, " +
+            COLUMN_ROLLUP_TOTAL + " REAL NOT NULL DEFAULT 0, " +
+            COLUMN_ROLLUP_COUNT + " INTEGER NOT NULL DEFAULT 0" +
+            ")");
+
+        // No UPSERT before SQLite 3.24, so insert-or-ignore the day row and then bump it
+        String newDay = "new." + COLUMN_EXPENSE_TIMESTAMP + " / 86400000";
+        String oldDay = "old." + COLUMN_EXPENSE_TIMESTAMP + " / 86400000";
+        String addNew =
+            "INSERT OR IGNORE INTO " + TABLE_EXPENSE_DAILY_TOTALS + " (" + COLUMN_ROLLUP_DAY + ") VALUES (" + newDay + "); " +
+            "UPDATE " + TABLE_EXPENSE_DAILY_TOTALS + " SET " +
+            COLUMN_ROLLUP_TOTAL + " = " + COLUMN_ROLLUP_TOTAL + " + new." + COLUMN_EXPENSE_AMOUNT + ", " +
+            COLUMN_ROLLUP_COUNT + " = " + COLUMN_ROLLUP_COUNT + " + 1" +
+            " WHERE " + COLUMN_ROLLUP_DAY + " = " + newDay + "; ";
+        String removeOld =
+            "UPDATE " + TABLE_EXPENSE_DAILY_TOTALS + " SET " +
+            COLUMN_ROLLUP_TOTAL + " = " + COLUMN_ROLLUP_TOTAL + " - old." + COLUMN_EXPENSE_AMOUNT + ", " +
+            COLUMN_ROLLUP_COUNT + " = " + COLUMN_ROLLUP_COUNT + " - 1" +
+            " WHERE " + COLUMN_ROLLUP_DAY + " = " + oldDay + "; " +
+            "DELETE FROM " + TABLE_EXPENSE_DAILY_TOTALS +
+            " WHERE " + COLUMN_ROLLUP_DAY + " = " + oldDay + " AND " + COLUMN_ROLLUP_COUNT + " <= 0; ";
+
+        db.execute("CREATE TRIGGER IF NOT EXISTS expense_daily_totals_ai AFTER INSERT ON " + TABLE_EXPENSES +
+            " BEGIN " + addNew + "END");
+        db.execute("CREATE TRIGGER IF NOT EXISTS expense_daily_totals_ad AFTER DELETE ON " + TABLE_EXPENSES +
+            " BEGIN " + removeOld + "END");
+        db.execute("CREATE TRIGGER IF NOT EXISTS expense_daily_totals_au AFTER UPDATE OF " +
+            COLUMN_EXPENSE_AMOUNT + ", " + COLUMN_EXPENSE_TIMESTAMP + " ON " + TABLE_EXPENSES +
+            " BEGIN " + removeOld + addNew + "END");
+
+        db.execute("INSERT INTO " + TABLE_EXPENSE_DAILY_TOTALS + " (" +
+            COLUMN_ROLLUP_DAY + ", " + COLUMN_ROLLUP_TOTAL + ", " + COLUMN_ROLLUP_COUNT + ")" +
+            " SELECT " + COLUMN_EXPENSE_TIMESTAMP + " / 86400000, SUM(" + COLUMN_EXPENSE_AMOUNT + "), COUNT(*)" +
+            " FROM " + TABLE_EXPENSES + " GROUP BY 1");
+    }
+
+    private static void addDailyMinMax(SqlDatabase db) {
+        db.execute("ALTER TABLE " + TABLE_EXPENSE_DAILY_TOTALS + " ADD COLUMN " + COLUMN_ROLLUP_MIN + " REAL");
+        db.execute("ALTER TABLE " + TABLE_EXPENSE_DAILY_TOTALS + " ADD COLUMN " + COLUMN_ROLLUP_MAX + " REAL");
+        db.execute("DROP TRIGGER IF EXISTS expense_daily_totals_ai");
+        db.execute("DROP TRIGGER IF EXISTS expense_daily_totals_ad");
+        db.execute("DROP TRIGGER IF EXISTS expense_daily_totals_au");
+
+        createRollupTriggers(db, TABLE_EXPENSES, "expense_daily_totals", TABLE_EXPENSES);
+
+        db.execute("UPDATE " + TABLE_EXPENSE_DAILY_TOTALS + " SET " +
+            COLUMN_ROLLUP_MIN + " = " + dayAggregate("MIN", TABLE_EXPENSE_DAILY_TOTALS + "." + COLUMN_ROLLUP_DAY, TABLE_EXPENSES) + ", " +
+            COLUMN_ROLLUP_MAX + " = " + dayAggregate("MAX", TABLE_EXPENSE_DAILY_TOTALS + "." + COLUMN_ROLLUP_DAY, TABLE_EXPENSES));
+    }
+
+    /**
+     * Triggers keeping the daily rollup in step with table. dayTables are
+     * every table holding expenses, since a day's min or max may sit in any.
+     */
+    private static void createRollupTriggers(SqlDatabase db, String table, String prefix, String... dayTables) {
+        String newDay = "new." + COLUMN_EXPENSE_TIMESTAMP + " / 86400000";
+        String oldDay = "old." + COLUMN_EXPENSE_TIMESTAMP + " / 86400000";
+        String addNew =
+            "INSERT OR IGNORE INTO " + TABLE_EXPENSE_DAILY_TOTALS + " (" +
+            COLUMN_ROLLUP_DAY + ", " + COLUMN_ROLLUP_MIN + ", " + COLUMN_ROLLUP_MAX + ")" +
+            " VALUES (" + newDay + ", new." + COLUMN_EXPENSE_AMOUNT + ", new." + COLUMN_EXPENSE_AMOUNT + "); " +
+            "UPDATE " + TABLE_EXPENSE_DAILY_TOTALS + " SET " +
+            COLUMN_ROLLUP_TOTAL + " = " + COLUMN_ROLLUP_TOTAL + " + new." + COLUMN_EXPENSE_AMOUNT + ", " +
+            COLUMN_ROLLUP_COUNT + " = " + COLUMN_ROLLUP_COUNT + " + 1, " +
+            COLUMN_ROLLUP_MIN + " = MIN(" + COLUMN_ROLLUP_MIN + ", new." + COLUMN_EXPENSE_AMOUNT + "), " +
+            COLUMN_ROLLUP_MAX + " = MAX(" + COLUMN_ROLLUP_MAX + ", new." + COLUMN_EXPENSE_AMOUNT + ")" +
+            " WHERE " + COLUMN_ROLLUP_DAY + " = " + newDay + "; ";
+        // Removing the day's smallest or largest amount means rescanning that one day through the timestamp index
+        String removeOld =
+            "UPDATE " + TABLE_EXPENSE_DAILY_TOTALS + " SET " +
+            COLUMN_ROLLUP_TOTAL + " = " + COLUMN_ROLLUP_TOTAL + " - old." + COLUMN_EXPENSE_AMOUNT + ", " +
+            COLUMN_ROLLUP_COUNT + " = " + COLUMN_ROLLUP_COUNT + " - 1" +
+            " WHERE " + COLUMN_ROLLUP_DAY + " = " + oldDay + "; " +
+            "UPDATE " + TABLE_EXPENSE_DAILY_TOTALS + " SET " +
+            COLUMN_ROLLUP_MIN + " = " + dayAggregate("MIN", COLUMN_ROLLUP_DAY, dayTables) + ", " +
+            COLUMN_ROLLUP_MAX + " = " + dayAggregate("MAX", COLUMN_ROLLUP_DAY, dayTables) +
+            " WHERE " + COLUMN_ROLLUP_DAY + " = " + oldDay + " AND (old." + COLUMN_EXPENSE_AMOUNT + " <= " +
+            COLUMN_ROLLUP_MIN + " OR old." + COLUMN_EXPENSE_AMOUNT + " >= " + COLUMN_ROLLUP_MAX + "); " +
+            "DELETE FROM " + TABLE_EXPENSE_DAILY_TOTALS +
+            " WHERE " + COLUMN_ROLLUP_DAY + " = " + oldDay + " AND " + COLUMN_ROLLUP_COUNT + " <= 0; ";
+
+        db.execute("CREATE TRIGGER " + prefix + "_ai AFTER INSERT ON " + table +
+            " BEGIN " + addNew + "END");
+        db.execute("CREATE TRIGGER " + prefix + "_ad AFTER DELETE ON " + table +
+            " BEGIN " + removeOld + "END");
+        db.execute("CREATE TRIGGER " + prefix + "_au AFTER UPDATE OF " +
+            COLUMN_EXPENSE_AMOUNT + ", " + COLUMN_EXPENSE_TIMESTAMP + " ON " + table +
+            " BEGIN " + removeOld + addNew + "END");
+    }
+
+    /** Expression for MIN or MAX of the amounts in tables on the UTC day held in dayColumn. */
+    private static String dayAggregate(String function, String dayColumn, String... tables) {
+        String[] parts = new String[tables.length];
+        for (int i = 0; i < tables.length; i++) {
+            parts[i] = "(SELECT " + function + "(" + COLUMN_EXPENSE_AMOUNT + ") FROM " + tables[i] +
+                " WHERE " + COLUMN_EXPENSE_TIMESTAMP + " >= " + dayColumn + " * 86400000" +
+                " AND " + COLUMN_EXPENSE_TIMESTAMP + " < (" + dayColumn + " + 1) * 86400000)";
+        }
+        if (parts.length == 1) {
+            return parts[0];
+        }
+        // Scalar MIN/MAX is NULL if any argument is, so fall back to whichever table has rows that day
+        String joined = String.join(", ", parts);
+        return "COALESCE(" + function + "(" + joined + "), " + joined + ")";
+    }
+
+    private static void createExpenseArchive(SqlDatabase db) {
+        db.execute("CREATE TABLE IF NOT EXISTS " + TABLE_SETTINGS + " (" +
+            COLUMN_SETTING_KEY + " TEXT PRIMARY KEY, " +
+            COLUMN_SETTING_VALUE + ")");
+
+        // No AUTOINCREMENT: rows keep the id they had in expenses, so ids stay unique across both
+        db.execute("CREATE TABLE IF NOT EXISTS " + TABLE_EXPENSES_ARCHIVE + " (" +
+            COLUMN_EXPENSE_ID + " INTEGER PRIMARY KEY, " +
+            COLUMN_EXPENSE_ITEM + " TEXT NOT NULL, " +
+            COLUMN_EXPENSE_AMOUNT + " REAL NOT NULL, " +
+            COLUMN_EXPENSE_DATE + " TEXT NOT NULL, " +
+            COLUMN_EXPENSE_TIMESTAMP + " INTEGER NOT NULL" +
+            ")");
+        db.execute("CREATE INDEX IF NOT EXISTS " + INDEX_EXPENSES_ARCHIVE_TIMESTAMP +
+            " ON " + TABLE_EXPENSES_ARCHIVE + " (" +
+            COLUMN_EXPENSE_TIMESTAMP + " DESC, " + COLUMN_EXPENSE_ID + " DESC)");
+        createSearchIndex(db, TABLE_EXPENSES_ARCHIVE, TABLE_EXPENSES_ARCHIVE_FTS, COLUMN_EXPENSE_ITEM, COLUMN_EXPENSE_ID);
+
+        // The rollup covers both tables: moving a row adds it on the archive side and
+        // removes it on the hot side, so daily totals never change
+        db.execute("DROP TRIGGER IF EXISTS expense_daily_totals_ai");
+        db.execute("DROP TRIGGER IF EXISTS expense_daily_totals_ad");
+        db.execute("DROP TRIGGER IF EXISTS expense_daily_totals_au");
+        createRollupTriggers(db, TABLE_EXPENSES, "expense_daily_totals", TABLE_EXPENSES, TABLE_EXPENSES_ARCHIVE);
+        createRollupTriggers(db, TABLE_EXPENSES_ARCHIVE, "expense_archive_daily_totals",
+            TABLE_EXPENSES, TABLE_EXPENSES_ARCHIVE);
+
+        // Archiving is a move, not a delete: sync clients keep the row
+        db.execute("DROP TRIGGER IF EXISTS " + TABLE_EXPENSES + "_changes_ad");
+        createChangeTrigger(db, TABLE_EXPENSES, TABLE_EXPENSES, COLUMN_EXPENSE_ID, "ad",
+            "NOT EXISTS (SELECT 1 FROM " + TABLE_EXPENSES_ARCHIVE + " WHERE " + COLUMN_EXPENSE_ID +
+                " = old." + COLUMN_EXPENSE_ID + ")");
+        // Edits to archived rows are still changes to the expense as far as clients know
+        createChangeTrigger(db, TABLE_EXPENSES_ARCHIVE, TABLE_EXPENSES, COLUMN_EXPENSE_ID, "au", null);
+        createChangeTrigger(db, TABLE_EXPENSES_ARCHIVE, TABLE_EXPENSES, COLUMN_EXPENSE_ID, "ad", null);
+    }
+
+    /**
+     * Moves item names out of expenses and expenses_archive into items and
+     * leaves each row with the name's id. There is no DROP COLUMN before
+     * SQLite 3.35, so both tables are rebuilt under their old names with
+     * ids, indexes and triggers intact; the daily rollup is not touched
+     * because the copied rows never pass through its triggers.
+     */
+    private static void encodeItemNames(SqlDatabase db) {
+        db.execute("CREATE TABLE IF NOT EXISTS " + TABLE_ITEMS + " (" +
+            COLUMN_ITEM_ID + " INTEGER PRIMARY KEY, " +
+            COLUMN_ITEM_NAME + " TEXT NOT NULL UNIQUE, " +
+            COLUMN_ITEM_KEY + " TEXT NOT NULL" +
+            ")");
+        db.execute("CREATE INDEX IF NOT EXISTS " + INDEX_ITEMS_KEY +
+            " ON " + TABLE_ITEMS + " (" + COLUMN_ITEM_KEY + ")");
+        // Search now matches each name once instead of once per expense
+        createSearchIndex(db, TABLE_ITEMS, TABLE_ITEMS_FTS, COLUMN_ITEM_NAME, COLUMN_ITEM_ID);
+
+        // Keys are computed in Java: SQL lower() only folds ASCII
+        List<String> names = db.query(
+            "SELECT " + COLUMN_EXPENSE_ITEM + " FROM " + TABLE_EXPENSES +
+                " UNION SELECT " + COLUMN_EXPENSE_ITEM + " FROM " + TABLE_EXPENSES_ARCHIVE,
+            null,
+            rows -> {
+                List<String> list = new ArrayList<>();
+                while (rows.next()) {
+                    list.add(rows.getString(0));
+                }
+                return list;
+            });
+        try (SqlDatabase.Statement add = db.compile(ItemDictionary.ADD)) {
+            for (String name : names) {
+                ItemDictionary.add(add, name);
+            }
+        }
+
+        Long sequence = db.query(
+            "SELECT seq FROM sqlite_sequence WHERE name = '" + TABLE_EXPENSES + "'",
+            null,
+            rows -> rows.next() ? rows.getLong(0) : null);
+
+        copyWithItemIds(db, TABLE_EXPENSES, "AUTOINCREMENT");
+        copyWithItemIds(db, TABLE_EXPENSES_ARCHIVE, "");
+        // Dropping a table drops its triggers and FTS triggers; the rollup triggers on each
+        // table read the other, so both old tables go before either new one takes its name
+        db.execute("DROP TABLE " + TABLE_EXPENSES);
+        db.execute("DROP TABLE " + TABLE_EXPENSES_ARCHIVE);
+        db.execute("DROP TABLE IF EXISTS " + TABLE_EXPENSES_FTS);
+        db.execute("DROP TABLE IF EXISTS " + TABLE_EXPENSES_ARCHIVE_FTS);
+        db.execute("ALTER TABLE " + TABLE_EXPENSES + "_v11 RENAME TO " + TABLE_EXPENSES);
+        db.execute("ALTER TABLE " + TABLE_EXPENSES_ARCHIVE + "_v11 RENAME TO " + TABLE_EXPENSES_ARCHIVE);
+
+        // Ids of deleted rows stay unused, as they were before the rebuild
+        if (sequence != null) {
+            db.execute("DELETE FROM sqlite_sequence WHERE name = '" + TABLE_EXPENSES + "'");
+            db.execute("INSERT INTO sqlite_sequence (name, seq) VALUES ('" + TABLE_EXPENSES + "', " +
+                "MAX(?, (SELECT IFNULL(MAX(" + COLUMN_EXPENSE_ID + "), 0) FROM " + TABLE_EXPENSES + ")))", sequence);
+        }
+
+        db.execute("CREATE INDEX " + INDEX_EXPENSES_TIMESTAMP + " ON " + TABLE_EXPENSES + " (" +
+            COLUMN_EXPENSE_TIMESTAMP + " DESC, " + COLUMN_EXPENSE_ID + " DESC)");
+        db.execute("CREATE INDEX " + INDEX_EXPENSES_ARCHIVE_TIMESTAMP + " ON " + TABLE_EXPENSES_ARCHIVE + " (" +
+            COLUMN_EXPENSE_TIMESTAMP + " DESC, " + COLUMN_EXPENSE_ID + " DESC)");
+        // Search and top items look expenses up by item
+        db.execute("CREATE INDEX " + INDEX_EXPENSES_ITEM + " ON " + TABLE_EXPENSES + " (" + COLUMN_EXPENSE_ITEM_ID + ")");
+        db.execute("CREATE INDEX " + INDEX_EXPENSES_ARCHIVE_ITEM +
+            " ON " + TABLE_EXPENSES_ARCHIVE + " (" + COLUMN_EXPENSE_ITEM_ID + ")");
+
+        createRollupTriggers(db, TABLE_EXPENSES, "expense_daily_totals", TABLE_EXPENSES, TABLE_EXPENSES_ARCHIVE);
+        createRollupTriggers(db, TABLE_EXPENSES_ARCHIVE, "expense_archive_daily_totals",
+            TABLE_EXPENSES, TABLE_EXPENSES_ARCHIVE);
+        createChangeTrigger(db, TABLE_EXPENSES, TABLE_EXPENSES, COLUMN_EXPENSE_ID, "ai", null);
+        createChangeTrigger(db, TABLE_EXPENSES, TABLE_EXPENSES, COLUMN_EXPENSE_ID, "au", null);
+        createChangeTrigger(db, TABLE_EXPENSES, TABLE_EXPENSES, COLUMN_EXPENSE_ID, "ad",
+            "NOT EXISTS (SELECT 1 FROM " + TABLE_EXPENSES_ARCHIVE + " WHERE " + COLUMN_EXPENSE_ID +
+                " = old." + COLUMN_EXPENSE_ID + ")");
+        createChangeTrigger(db, TABLE_EXPENSES_ARCHIVE, TABLE_EXPENSES, COLUMN_EXPENSE_ID, "au", null);
+        createChangeTrigger(db, TABLE_EXPENSES_ARCHIVE, TABLE_EXPENSES, COLUMN_EXPENSE_ID, "ad", null);
+    }
+
+    /** Copies table into table_v11 with item_id in place of item; keyword is AUTOINCREMENT or empty. */
+    private static void copyWithItemIds(SqlDatabase db, String table, String keyword) {
+        db.execute("CREATE TABLE " + table + "_v11 (" +
+            COLUMN_EXPENSE_ID + " INTEGER PRIMARY KEY " + keyword + ", " +
+            COLUMN_EXPENSE_ITEM_ID + " INTEGER NOT NULL REFERENCES " + TABLE_ITEMS + " (" + COLUMN_ITEM_ID + "), " +
+            COLUMN_EXPENSE_AMOUNT + " REAL NOT NULL, " +
+            COLUMN_EXPENSE_DATE + " TEXT NOT NULL, " +
+            COLUMN_EXPENSE_TIMESTAMP + " INTEGER NOT NULL" +
+            ")");
+        db.execute("INSERT INTO " + table + "_v11 (" +
+            COLUMN_EXPENSE_ID + ", " + COLUMN_EXPENSE_ITEM_ID + ", " + COLUMN_EXPENSE_AMOUNT + ", " +
+            COLUMN_EXPENSE_DATE + ", " + COLUMN_EXPENSE_TIMESTAMP + ")" +
+            " SELECT e." + COLUMN_EXPENSE_ID + ", i." + COLUMN_ITEM_ID + ", e." + COLUMN_EXPENSE_AMOUNT + ", e." +
+            COLUMN_EXPENSE_DATE + ", e." + COLUMN_EXPENSE_TIMESTAMP +
+            " FROM " + table + " e JOIN " + TABLE_ITEMS + " i ON i." + COLUMN_ITEM_NAME + " = e." + COLUMN_EXPENSE_ITEM);
+    }
+
+    private static void createChangeLog(SqlDatabase db) {
+        // AUTOINCREMENT so a version is never reused, even after the newest entry is deleted
+        db.execute("CREATE TABLE IF NOT EXISTS " + TABLE_CHANGE_LOG + " (" +
+            COLUMN_CHANGE_VERSION + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+            COLUMN_CHANGE_TABLE + " TEXT NOT NULL, " +
+            COLUMN_CHANGE_ROW_ID + " INTEGER NOT NULL, " +
+            COLUMN_CHANGE_OP + " TEXT NOT NULL" +
+            ")");
+        db.execute("CREATE UNIQUE INDEX IF NOT EXISTS " + INDEX_CHANGE_LOG_ROW +
+            " ON " + TABLE_CHANGE_LOG + " (" + COLUMN_CHANGE_TABLE + ", " + COLUMN_CHANGE_ROW_ID + ")");
+
+        createChangeTriggers(db, TABLE_EXPENSES, COLUMN_EXPENSE_ID);
+        createChangeTriggers(db, TABLE_TODOS, COLUMN_TODO_ID);
+    }
+
+    private static void createChangeTriggers(SqlDatabase db, String table, String idColumn) {
+        for (String kind : new String[]{"ai", "au", "ad"}) {
+            createChangeTrigger(db, table, table, idColumn, kind, null);
+        }
+    }
+
+    /**
+     * Trigger named table_changes_kind (ai, au or ad) that logs changes to
+     * table's rows under loggedAs, only when the optional condition holds.
+     */
+    private static void createChangeTrigger(SqlDatabase db, String table, String loggedAs, String idColumn,
+                                            String kind, String when) {
+        String event = kind.equals("ai") ? "INSERT" : kind.equals("au") ? "UPDATE" : "DELETE";
+        String op = kind.equals("ai") ? "insert" : kind.equals("au") ? "update" : "delete";
+        String rowId = (kind.equals("ad") ? "old." : "new.") + idColumn;
+        // Only the latest change per row is kept, so the log grows with the tables, not with edits
+        db.execute("CREATE TRIGGER IF NOT EXISTS " + table + "_changes_" + kind +
+            " AFTER " + event + " ON " + table + (when != null ? " WHEN " + when : "") + " BEGIN " +
+            "DELETE FROM " + TABLE_CHANGE_LOG + " WHERE " + COLUMN_CHANGE_TABLE + " = '" + loggedAs + "'" +
+            " AND " + COLUMN_CHANGE_ROW_ID + " = " + rowId + "; " +
+            "INSERT INTO " + TABLE_CHANGE_LOG + " (" +
+            COLUMN_CHANGE_TABLE + ", " + COLUMN_CHANGE_ROW_ID + ", " + COLUMN_CHANGE_OP + ")" +
+            " VALUES ('" + loggedAs + "', " + rowId + ", '" + op + "'); END");
+    }
+}
@@ -0,0 +1,176 @@
+package com.peras.campuswal.core;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Spending per local-calendar day, week, month or year over a time range.
+ * Bucket edges are local midnights but rollup days are UTC, so each bucket
+ * takes the whole UTC days inside it from expense_daily_totals and only the
+ * hours left over at its edges from the timestamp index. All buckets are
+ * answered by two grouped queries, so a five-year monthly chart reads a
+ * few hundred rollup rows instead of every expense.
+ */
+public final class SpendingHistogram {
+
+    // Keeps the inlined bucket list well inside SQLite's statement limits
+    public static final int MAX_BUCKETS = 1000;
+
+    public enum Granularity {
+        DAY, WEEK, MONTH, YEAR;
+
+        public static Granularity parse(String value) {
+            try {
+                return valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown granularity: " + value);
+            }
+        }
+    }
+
+    /** One bucket; min and max are null when it has no expenses. */
+    public static final class Bucket {
+        public final long start;
+        public final long end;
+        public double amount;
+        public long count;
+        public Double min;
+        public Double max;
+
+        Bucket(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        void add(double amount, long count, Double min, Double max) {
+            if (count == 0) {
+                return;
+            }
+            this.amount += amount;
+            this.count += count;
+            this.min = this.min == null || (min != null && min < this.min) ? min : this.min;
+            this.max = this.max == null || (max != null && max > this.max) ? max : this.max;
+        }
+    }
+
+    private SpendingHistogram() {
+    }
+
+    /** Calendar start of the bucket containing time. */
+    public static long bucketStart(long time, Granularity granularity) {
+        switch (granularity) {
+            case DAY:
+                return SpendingSummary.startOfDay(time);
+            case WEEK:
+                Calendar calendar = Calendar.getInstance();
+                calendar.setTimeInMillis(SpendingSummary.startOfDay(time));
+                int daysIntoWeek = (calendar.get(Calendar.DAY_OF_WEEK) - calendar.getFirstDayOfWeek() + 7) % 7;
+                return SpendingSummary.addDays(calendar.getTimeInMillis(), -daysIntoWeek);
+            case MONTH:
+                return SpendingSummary.startOfMonth(time);
+            default:
+                return SpendingSummary.startOfYear(time);
+        }
+    }
+
+    public static long nextBucket(long bucketStart, Granularity granularity) {
+        switch (granularity) {
+            case DAY:
+                return SpendingSummary.addDays(bucketStart, 1);
+            case WEEK:
+                return SpendingSummary.addDays(bucketStart, 7);
+            case MONTH:
+                return SpendingSummary.addMonths(bucketStart, 1);
+            default:
+                return SpendingSummary.addYears(bucketStart, 1);
+        }
+    }
+
+    /**
+     * Buckets covering [from, to), oldest first, including empty ones so a
+     * chart has no gaps. start and end are the calendar bounds of each
+     * bucket; the first and last only count expenses inside [from, to).
+     */
+    public static List<Bucket> histogram(SqlDatabase db, long from, long to, Granularity granularity) {
+        List<Bucket> buckets = new ArrayList<>();
+        for (long start = bucketStart(from, granularity); start < to; start = nextBucket(start, granularity)) {
+            if (buckets.size() == MAX_BUCKETS) {
+                throw new IllegalArgumentException("Range needs more than " + MAX_BUCKETS + " buckets");
+            }
+            buckets.add(new Bucket(start, nextBucket(start, granularity)));
+        }
+        if (buckets.isEmpty()) {
+            return buckets;
+        }
+
+        StringBuilder days = new StringBuilder();
+        StringBuilder edges = new StringBuilder();
+        for (int i = 0; i < buckets.size(); i++) {
+            Bucket bucket = buckets.get(i);
+            long start = Math.max(bucket.start, from);
+            long end = Math.min(bucket.end, to);
+            long firstFullDay = Math.floorDiv(start + SpendingSummary.DAY_MS - 1, SpendingSummary.DAY_MS);
+            long endFullDay = Math.floorDiv(end, SpendingSummary.DAY_MS);
+            if (firstFullDay >= endFullDay) {
+                // No whole UTC day inside (a local day away from UTC, for one)
+                appendRange(edges, i, start, end);
+            } else {
+                appendRange(days, i, firstFullDay, endFullDay);
+                appendRange(edges, i, start, firstFullDay * SpendingSummary.DAY_MS);
+                appendRange(edges, i, endFullDay * SpendingSummary.DAY_MS, end);
+            }
+        }
+
+        addGrouped(db, buckets, days,
+            "SUM(r." + Schema.COLUMN_ROLLUP_TOTAL + "), SUM(r." + Schema.COLUMN_ROLLUP_COUNT + "), " +
+                "MIN(r." + Schema.COLUMN_ROLLUP_MIN + "), MAX(r." + Schema.COLUMN_ROLLUP_MAX + ")",
+            Schema.TABLE_EXPENSE_DAILY_TOTALS + " r ON r." + Schema.COLUMN_ROLLUP_DAY + " >= b.lo AND r." +
+                Schema.COLUMN_ROLLUP_DAY + " < b.hi");
+        // The rollup already spans archived days; the edge hours may sit in either table
+        for (String table : ExpenseArchive.tables(db, from)) {
+            addGrouped(db, buckets, edges,
+                "SUM(e." + Schema.COLUMN_EXPENSE_AMOUNT + "), COUNT(*), " +
+                    "MIN(e." + Schema.COLUMN_EXPENSE_AMOUNT + "), MAX(e." + Schema.COLUMN_EXPENSE_AMOUNT + ")",
+                table + " e ON e." + Schema.COLUMN_EXPENSE_TIMESTAMP + " >= b.lo AND e." +
+                    Schema.COLUMN_EXPENSE_TIMESTAMP + " < b.hi");
+        }
+        return buckets;
+    }
+
+    private static void appendRange(StringBuilder values, int bucket, long lo, long hi) {
+        if (hi <= lo) {
+            return;
+        }
+        values.append(values.length() == 0 ? "" : ", ")
+            .append('(').append(bucket).append(", ").append(lo).append(", ").append(hi).append(')');
+    }
+
+    /**
+     * Aggregates joined rows per bucket in one statement. The ranges are
+     * computed numbers, so they are inlined rather than bound to stay clear
+     * of the 999-variable limit; CROSS JOIN keeps SQLite looping over the
+     * ranges and seeking the index for each one.
+     */
+    private static void addGrouped(SqlDatabase db, List<Bucket> buckets, StringBuilder ranges,
+                                   String aggregates, String join) {
+        if (ranges.length() == 0) {
+            return;
+        }
+        db.query(
+            "WITH b(i, lo, hi) AS (VALUES " + ranges + ")" +
+                " SELECT b.i, " + aggregates + " FROM b CROSS JOIN " + join + " GROUP BY b.i",
+            null,
+            rows -> {
+                while (rows.next()) {
+                    buckets.get((int) rows.getLong(0)).add(
+                        rows.getDouble(1),
+                        rows.getLong(2),
+                        rows.isNull(3) ? null : rows.getDouble(3),
+                        rows.isNull(4) ? null : rows.getDouble(4));
+                }
+                return null;
+            });
+    }
+}
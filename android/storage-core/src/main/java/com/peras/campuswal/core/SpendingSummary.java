@@ -0,0 +1,158 @@
+package com.peras.campuswal.core;
+
+import java.util.Calendar;
+
+/**
+ * Spending totals for arbitrary time ranges, answered from the
+ * expense_daily_totals rollup. Rollup days are UTC so they don't shift when
+ * the device changes timezone; whole days inside a range come from the
+ * rollup and the partial days at each edge from the timestamp index.
+ */
+public final class SpendingSummary {
+
+    public static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    public static final class Total {
+        public double amount;
+        public long count;
+
+        void add(Total other) {
+            amount += other.amount;
+            count += other.count;
+        }
+    }
+
+    /** The Summary cards: calendar day, rolling 7 days, calendar month and calendar year. */
+    public static final class Cards {
+        public final Total today;
+        public final Total week;
+        public final Total month;
+        public final Total year;
+
+        public Cards(Total today, Total week, Total month, Total year) {
+            this.today = today;
+            this.week = week;
+            this.month = month;
+            this.year = year;
+        }
+    }
+
+    private SpendingSummary() {
+    }
+
+    public static Cards cards(SqlDatabase db, long now) {
+        long today = startOfDay(now);
+        long tomorrow = addDays(today, 1);
+        long month = startOfMonth(now);
+        long year = startOfYear(now);
+        return new Cards(
+            rangeTotal(db, today, tomorrow),
+            rangeTotal(db, now - 7 * DAY_MS, tomorrow),
+            rangeTotal(db, month, addMonths(month, 1)),
+            rangeTotal(db, year, addYears(year, 1)));
+    }
+
+    /** Sum and count of expenses with start <= timestamp < end. */
+    public static Total rangeTotal(SqlDatabase db, long start, long end) {
+        Total total = new Total();
+        if (end <= start) {
+            return total;
+        }
+
+        long firstFullDay = Math.floorDiv(start + DAY_MS - 1, DAY_MS);
+        long endFullDay = Math.floorDiv(end, DAY_MS);
+        if (firstFullDay >= endFullDay) {
+            total.add(rawTotal(db, start, end));
+            return total;
+        }
+
+        total.add(rawTotal(db, start, firstFullDay * DAY_MS));
+        total.add(rollupTotal(db, firstFullDay, endFullDay));
+        total.add(rawTotal(db, endFullDay * DAY_MS, end));
+        return total;
+    }
+
+    /** Start of the local calendar day containing the given time. */
+    public static long startOfDay(long time) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(time);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    public static long startOfMonth(long time) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(startOfDay(time));
+        calendar.set(Calendar.DAY_OF_MONTH, 1);
+        return calendar.getTimeInMillis();
+    }
+
+    public static long startOfYear(long time) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(startOfDay(time));
+        calendar.set(Calendar.DAY_OF_YEAR, 1);
+        return calendar.getTimeInMillis();
+    }
+
+    public static long addDays(long time, int days) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(time);
+        calendar.add(Calendar.DAY_OF_YEAR, days);
+        return calendar.getTimeInMillis();
+    }
+
+    public static long addMonths(long time, int months) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(time);
+        calendar.add(Calendar.MONTH, months);
+        return calendar.getTimeInMillis();
+    }
+
+    public static long addYears(long time, int years) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(time);
+        calendar.add(Calendar.YEAR, years);
+        return calendar.getTimeInMillis();
+    }
+
+    private static Total rawTotal(SqlDatabase db, long start, long end) {
+        if (end <= start) {
+            return new Total();
+        }
+        Total total = new Total();
+        // Edge hours before the archive cutoff may have rows on either side
+        for (String table : ExpenseArchive.tables(db, start)) {
+            total.add(sumQuery(db,
+                "SELECT COALESCE(SUM(" + Schema.COLUMN_EXPENSE_AMOUNT + "), 0), COUNT(*) FROM " +
+                    table + " WHERE " +
+                    Schema.COLUMN_EXPENSE_TIMESTAMP + " >= ? AND " +
+                    Schema.COLUMN_EXPENSE_TIMESTAMP + " < ?",
+                start, end));
+        }
+        return total;
+    }
+
+    private static Total rollupTotal(SqlDatabase db, long firstDay, long endDay) {
+        return sumQuery(db,
+            "SELECT COALESCE(SUM(" + Schema.COLUMN_ROLLUP_TOTAL + "), 0), " +
+                "COALESCE(SUM(" + Schema.COLUMN_ROLLUP_COUNT + "), 0) FROM " +
+                Schema.TABLE_EXPENSE_DAILY_TOTALS + " WHERE " +
+                Schema.COLUMN_ROLLUP_DAY + " >= ? AND " +
+                Schema.COLUMN_ROLLUP_DAY + " < ?",
+            firstDay, endDay);
+    }
+
+    private static Total sumQuery(SqlDatabase db, String sql, long from, long to) {
+        return db.query(sql, new Object[]{from, to}, rows -> {
+            Total total = new Total();
+            if (rows.next()) {
+                total.amount = rows.getDouble(0);
+                total.count = rows.getLong(1);
+            }
+            return total;
+        });
+    }
+}
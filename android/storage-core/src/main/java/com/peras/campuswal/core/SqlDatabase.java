@@ -0,0 +1,57 @@
+package com.peras.campuswal.core;
+
+/**
+ * The few SQL operations the storage code needs, so the same queries run on
+ * Android's SQLiteDatabase in the app and on JDBC SQLite for tests and
+ * benchmarks. Arguments are bound positionally; numbers, strings and null
+ * are supported.
+ */
+public interface SqlDatabase {
+
+    /** Forward-only view of a result set; columns are 0-based. */
+    interface Rows {
+        boolean next();
+
+        boolean isNull(int column);
+
+        long getLong(int column);
+
+        double getDouble(int column);
+
+        String getString(int column);
+    }
+
+    interface RowReader<T> {
+        T read(Rows rows);
+    }
+
+    /** A compiled statement for running the same SQL many times. */
+    interface Statement extends AutoCloseable {
+        void bind(int index, Object value);
+
+        /** Executes an INSERT and returns the new rowid, or -1 if nothing was inserted. */
+        long executeInsert();
+
+        void clearBindings();
+
+        @Override
+        void close();
+    }
+
+    void execute(String sql, Object... args);
+
+    /** Runs a query and hands its rows to reader; the rows are closed when it returns. */
+    <T> T query(String sql, Object[] args, RowReader<T> reader);
+
+    Statement compile(String sql);
+
+    /** Runs work in one transaction, rolled back if it throws; calls may nest. */
+    void inTransaction(Runnable work);
+
+    /**
+     * Runs work under a savepoint of the current transaction: if it throws,
+     * only its own changes are undone and the exception propagates, so the
+     * rest of the transaction can still commit.
+     */
+    void inSavepoint(Runnable work);
+}
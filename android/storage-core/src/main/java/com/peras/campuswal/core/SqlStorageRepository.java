@@ -0,0 +1,178 @@
+package com.peras.campuswal.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * StorageRepository over any SqlDatabase, using the same schema, filters
+ * and rollups as the app. The database must already have the schema; call
+ * Schema.create on a new one.
+ */
+public final class SqlStorageRepository implements StorageRepository {
+
+    private static final String INSERT_EXPENSE =
+        "INSERT INTO " + Schema.TABLE_EXPENSES + " (" +
+        Schema.COLUMN_EXPENSE_ITEM_ID + ", " + Schema.COLUMN_EXPENSE_AMOUNT + ", " +
+        Schema.COLUMN_EXPENSE_DATE + ", " + Schema.COLUMN_EXPENSE_TIMESTAMP + ") VALUES (" +
+        ItemDictionary.ID_OF + ", ?, ?, ?)";
+
+    private static final String INSERT_TODO =
+        "INSERT INTO " + Schema.TABLE_TODOS + " (" +
+        Schema.COLUMN_TODO_TITLE + ", " + Schema.COLUMN_TODO_WHEN + ", " +
+        Schema.COLUMN_TODO_PRIORITY + ", " + Schema.COLUMN_TODO_DONE + ", " +
+        Schema.COLUMN_TODO_NOTIFIED + ") VALUES (?, ?, ?, ?, ?)";
+
+    /**
+     * Changes one todo: ?1 done, ?2 doneAt, ?3 when, ?4 id, ?5 now. Unset
+     * fields bind NULL and keep their value; a new time re-arms the reminder
+     * unless it has already passed. Public for the app's batch updates.
+     */
+    public static final String UPDATE_TODO =
+        "UPDATE " + Schema.TABLE_TODOS + " SET " +
+        Schema.COLUMN_TODO_DONE + " = COALESCE(?1, " + Schema.COLUMN_TODO_DONE + "), " +
+        Schema.COLUMN_TODO_DONE_AT + " = COALESCE(?2, " + Schema.COLUMN_TODO_DONE_AT + "), " +
+        Schema.COLUMN_TODO_WHEN + " = COALESCE(?3, " + Schema.COLUMN_TODO_WHEN + "), " +
+        Schema.COLUMN_TODO_NOTIFIED + " = CASE WHEN ?3 IS NULL THEN " + Schema.COLUMN_TODO_NOTIFIED +
+        " WHEN ?3 <= ?5 THEN 1 ELSE 0 END" +
+        " WHERE " + Schema.COLUMN_TODO_ID + " = ?4";
+
+    public static final String DELETE_TODO =
+        "DELETE FROM " + Schema.TABLE_TODOS + " WHERE " + Schema.COLUMN_TODO_ID + " = ?";
+
+    private static final String EXPENSE_COLUMNS =
+        Schema.COLUMN_EXPENSE_ID + ", " + ItemDictionary.ITEM + ", " +
+        Schema.COLUMN_EXPENSE_AMOUNT + ", " + Schema.COLUMN_EXPENSE_DATE + ", " +
+        Schema.COLUMN_EXPENSE_TIMESTAMP;
+
+    private final SqlDatabase db;
+
+    public SqlStorageRepository(SqlDatabase db) {
+        this.db = db;
+    }
+
+    @Override
+    public long saveExpense(Expense expense) {
+        long[] id = new long[1];
+        db.inTransaction(() -> {
+            try (SqlDatabase.Statement add = db.compile(ItemDictionary.ADD);
+                 SqlDatabase.Statement insert = db.compile(INSERT_EXPENSE)) {
+                ItemDictionary.add(add, expense.item);
+                bindExpense(insert, expense);
+                id[0] = insert.executeInsert();
+            }
+        });
+        return id[0];
+    }
+
+    @Override
+    public void saveExpenses(List<Expense> expenses) {
+        db.inTransaction(() -> {
+            try (SqlDatabase.Statement add = db.compile(ItemDictionary.ADD);
+                 SqlDatabase.Statement insert = db.compile(INSERT_EXPENSE)) {
+                for (Expense expense : expenses) {
+                    ItemDictionary.add(add, expense.item);
+                    bindExpense(insert, expense);
+                    insert.executeInsert();
+                    insert.clearBindings();
+                }
+            }
+        });
+    }
+
+    @Override
+    public ExpensePage findExpenses(String search, long timeLimit, int limit, Expense after) {
+        ExpenseSelection selection = ExpenseQueries.select(db, search.trim(), timeLimit);
+
+        double[] totals = db.query(selection.totalsSql(), selection.args(), rows -> {
+            rows.next();
+            return new double[]{rows.getLong(0), rows.getDouble(1)};
+        });
+
+        ExpenseSelection page = after == null ? selection : selection.after(after.timestamp, after.id);
+        // One extra row tells us whether another page follows
+        List<Expense> expenses = db.query(
+            page.rowsSql(EXPENSE_COLUMNS, limit + 1),
+            page.args(),
+            rows -> {
+                List<Expense> list = new ArrayList<>();
+                while (rows.next()) {
+                    list.add(new Expense(rows.getLong(0), rows.getString(1), rows.getDouble(2),
+                        rows.getString(3), rows.getLong(4)));
+                }
+                return list;
+            });
+
+        boolean hasMore = expenses.size() > limit;
+        if (hasMore) {
+            expenses.remove(limit);
+        }
+        return new ExpensePage(expenses, (long) totals[0], totals[1], hasMore);
+    }
+
+    @Override
+    public SpendingSummary.Total spending(long start, long end) {
+        return SpendingSummary.rangeTotal(db, start, end);
+    }
+
+    @Override
+    public List<SpendingHistogram.Bucket> histogram(long from, long to, SpendingHistogram.Granularity granularity) {
+        return SpendingHistogram.histogram(db, from, to, granularity);
+    }
+
+    @Override
+    public List<ItemDictionary.Total> topItems(long from, int limit) {
+        return ItemDictionary.top(db, from, limit);
+    }
+
+    @Override
+    public long archiveExpenses(long before) {
+        return ExpenseArchive.archive(db, before);
+    }
+
+    @Override
+    public long saveTodo(Todo todo) {
+        try (SqlDatabase.Statement insert = db.compile(INSERT_TODO)) {
+            insert.bind(1, todo.title);
+            insert.bind(2, todo.when);
+            insert.bind(3, todo.priority);
+            insert.bind(4, todo.done ? 1 : 0);
+            // A time already past has nothing left to remind of
+            insert.bind(5, todo.when <= System.currentTimeMillis() ? 1 : 0);
+            return insert.executeInsert();
+        }
+    }
+
+    @Override
+    public boolean updateTodo(long id, Boolean done, Long doneAt, Long when) {
+        db.execute(UPDATE_TODO, done == null ? null : done ? 1 : 0, doneAt, when, id, System.currentTimeMillis());
+        return db.query("SELECT changes()", null, rows -> rows.next() && rows.getLong(0) > 0);
+    }
+
+    @Override
+    public List<Todo> pendingTodos() {
+        return todos(TodoQueries.View.PENDING, 0, 0, 0);
+    }
+
+    @Override
+    public List<Todo> todos(TodoQueries.View view, long from, long to, int limit) {
+        TodoQueries.Query query = TodoQueries.query(view,
+            Schema.COLUMN_TODO_ID + ", " + Schema.COLUMN_TODO_TITLE + ", " + Schema.COLUMN_TODO_WHEN + ", " +
+                Schema.COLUMN_TODO_PRIORITY + ", " + Schema.COLUMN_TODO_DONE,
+            from, to, limit);
+        return db.query(query.sql, query.args, rows -> {
+            List<Todo> todos = new ArrayList<>();
+            while (rows.next()) {
+                todos.add(new Todo(rows.getLong(0), rows.getString(1), rows.getLong(2),
+                    rows.getString(3), rows.getLong(4) != 0));
+            }
+            return todos;
+        });
+    }
+
+    private static void bindExpense(SqlDatabase.Statement insert, Expense expense) {
+        insert.bind(1, expense.item);
+        insert.bind(2, expense.amount);
+        insert.bind(3, expense.date);
+        insert.bind(4, expense.timestamp);
+    }
+}
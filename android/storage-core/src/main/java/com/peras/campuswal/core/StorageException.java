@@ -0,0 +1,11 @@
+package com.peras.campuswal.core;
+
+/** Unchecked wrapper for backend errors, e.g. a JDBC SQLException. */
+public class StorageException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public StorageException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
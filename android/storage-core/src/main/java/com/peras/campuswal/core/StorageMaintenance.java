@@ -0,0 +1,242 @@
+package com.peras.campuswal.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Housekeeping that keeps queries fast and the file from only ever growing:
+ * archiving by the stored policy, dropping item names no expense uses,
+ * refreshing the planner's statistics, handing free pages back to the file
+ * system and checkpointing the WAL. Meant for idle moments on the writer
+ * thread. Each task runs at most once per interval and records when it
+ * last ran and how long it took in storage_settings; a run only starts a
+ * task whose last duration fits in what is left of its budget, and defers
+ * everything still due once foreground work is waiting.
+ */
+public final class StorageMaintenance {
+
+    private static final long DAY_MS = TimeUnit.DAYS.toMillis(1);
+
+    // Pages freed per incremental_vacuum step, so a waiting call never sits behind a big one
+    static final int VACUUM_STEP_PAGES = 128;
+    // How many pages a full VACUUM rewrites per millisecond on a slow phone, to judge whether it fits
+    static final int VACUUM_PAGES_PER_MS = 5;
+
+    private static final int AUTO_VACUUM_INCREMENTAL = 2;
+
+    public enum Task {
+        ARCHIVE("archive", DAY_MS, false),
+        PRUNE_ITEMS("pruneItems", 7 * DAY_MS, false),
+        ANALYZE("analyze", 7 * DAY_MS, false),
+        OPTIMIZE("optimize", DAY_MS, false),
+        VACUUM("vacuum", DAY_MS, true),
+        // Last, so it also flushes what the other tasks wrote
+        CHECKPOINT("checkpoint", 0, false);
+
+        /** Name in settings keys and reports. */
+        public final String key;
+        public final long intervalMs;
+        // Stops at the run's deadline by itself, so its last duration says nothing about fitting
+        final boolean bounded;
+
+        Task(String key, long intervalMs, boolean bounded) {
+            this.key = key;
+            this.intervalMs = intervalMs;
+            this.bounded = bounded;
+        }
+
+        String lastRunKey() {
+            return "maintenance." + key + ".lastRun";
+        }
+
+        String millisKey() {
+            return "maintenance." + key + ".millis";
+        }
+    }
+
+    /** Size of the main database file; the WAL is not counted. */
+    public static final class FileStats {
+        public final long pageSize;
+        public final long pageCount;
+        public final long freelistPages;
+
+        FileStats(long pageSize, long pageCount, long freelistPages) {
+            this.pageSize = pageSize;
+            this.pageCount = pageCount;
+            this.freelistPages = freelistPages;
+        }
+
+        public long bytes() {
+            return pageSize * pageCount;
+        }
+    }
+
+    /** One task a run carried out; count is the rows archived or pruned or the pages freed, else 0. */
+    public static final class TaskRun {
+        public final Task task;
+        public final long millis;
+        public final long count;
+
+        TaskRun(Task task, long millis, long count) {
+            this.task = task;
+            this.millis = millis;
+            this.count = count;
+        }
+    }
+
+    /** What one run did; deferred lists the tasks that were due but did not fit or had to give way. */
+    public static final class Report {
+        public final FileStats before;
+        public FileStats after;
+        public final List<TaskRun> ran = new ArrayList<>();
+        public final List<Task> deferred = new ArrayList<>();
+        public long millis;
+
+        Report(FileStats before) {
+            this.before = before;
+        }
+
+        /** Rows the archive task moved, so the caller knows whether cached lists went stale. */
+        public long archived() {
+            for (TaskRun run : ran) {
+                if (run.task == Task.ARCHIVE) {
+                    return run.count;
+                }
+            }
+            return 0;
+        }
+    }
+
+    private StorageMaintenance() {
+    }
+
+    /**
+     * Runs the tasks due at now within about budgetMs. busy is asked before
+     * every task and vacuum step; once it says foreground work is waiting,
+     * the rest is left for the next run. Must not be called inside a
+     * transaction: VACUUM and checkpoints cannot run in one.
+     */
+    public static Report run(SqlDatabase db, long now, long budgetMs, BooleanSupplier busy) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(budgetMs);
+        Report report = new Report(fileStats(db));
+
+        for (Task task : Task.values()) {
+            if (!due(db, task, now)) {
+                continue;
+            }
+            long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (busy.getAsBoolean() || left <= 0 || (!task.bounded && lastMillis(db, task) > left)) {
+                report.deferred.add(task);
+                continue;
+            }
+            long began = System.nanoTime();
+            long count = runTask(db, task, now, deadline, busy);
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - began);
+            db.inTransaction(() -> {
+                StorageSettings.putLong(db, task.lastRunKey(), now);
+                StorageSettings.putLong(db, task.millisKey(), millis);
+            });
+            report.ran.add(new TaskRun(task, millis, count));
+        }
+
+        report.after = fileStats(db);
+        report.millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return report;
+    }
+
+    public static boolean due(SqlDatabase db, Task task, long now) {
+        long lastRun = lastRun(db, task);
+        return lastRun == 0 || now - lastRun >= task.intervalMs || now < lastRun;
+    }
+
+    /** When task last ran, or 0 if it never has. */
+    public static long lastRun(SqlDatabase db, Task task) {
+        return StorageSettings.getLong(db, task.lastRunKey(), 0);
+    }
+
+    /** How long task took the last time it ran, or 0 if it never has. */
+    public static long lastMillis(SqlDatabase db, Task task) {
+        return StorageSettings.getLong(db, task.millisKey(), 0);
+    }
+
+    public static FileStats fileStats(SqlDatabase db) {
+        return new FileStats(pragma(db, "page_size"), pragma(db, "page_count"), pragma(db, "freelist_count"));
+    }
+
+    private static long runTask(SqlDatabase db, Task task, long now, long deadline, BooleanSupplier busy) {
+        switch (task) {
+            case ARCHIVE:
+                return ExpenseArchive.applyPolicy(db, now);
+            case PRUNE_ITEMS:
+                return pruneItems(db);
+            case ANALYZE:
+                db.execute("ANALYZE");
+                return 0;
+            case OPTIMIZE:
+                // Re-analyzes only tables whose statistics have drifted; platform SQLite before 3.18 ignores it
+                db.execute("PRAGMA optimize");
+                return 0;
+            case VACUUM:
+                return vacuum(db, deadline, busy);
+            case CHECKPOINT:
+                // TRUNCATE also resets the -wal file to zero bytes instead of leaving it at its peak size
+                db.query("PRAGMA wal_checkpoint(TRUNCATE)", null, rows -> rows.next());
+                return 0;
+            default:
+                throw new IllegalStateException("Unknown maintenance task " + task);
+        }
+    }
+
+    /** Deletes item names that no expense, hot or archived, refers to any more. */
+    static long pruneItems(SqlDatabase db) {
+        long[] pruned = new long[1];
+        db.inTransaction(() -> {
+            db.execute("DELETE FROM " + Schema.TABLE_ITEMS + " WHERE " + Schema.COLUMN_ITEM_ID + " NOT IN (" +
+                "SELECT " + Schema.COLUMN_EXPENSE_ITEM_ID + " FROM " + Schema.TABLE_EXPENSES +
+                ") AND " + Schema.COLUMN_ITEM_ID + " NOT IN (" +
+                "SELECT " + Schema.COLUMN_EXPENSE_ITEM_ID + " FROM " + Schema.TABLE_EXPENSES_ARCHIVE + ")");
+            pruned[0] = db.query("SELECT changes()", null, rows -> rows.next() ? rows.getLong(0) : 0);
+        });
+        return pruned[0];
+    }
+
+    /**
+     * Frees pages step by step until the freelist is empty, the deadline
+     * passes or a call is waiting. Incremental vacuum needs auto_vacuum set
+     * before the first table exists, which WAL mode already rules out when
+     * the database is created, so a database without it is converted by
+     * one full VACUUM once that is expected to fit in the time left.
+     */
+    private static long vacuum(SqlDatabase db, long deadline, BooleanSupplier busy) {
+        FileStats stats = fileStats(db);
+        if (pragma(db, "auto_vacuum") != AUTO_VACUUM_INCREMENTAL) {
+            long leftMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (stats.pageCount / VACUUM_PAGES_PER_MS > leftMs) {
+                return 0;
+            }
+            db.execute("PRAGMA auto_vacuum = INCREMENTAL");
+            db.execute("VACUUM");
+            return Math.max(stats.pageCount - pragma(db, "page_count"), 0);
+        }
+
+        long freed = 0;
+        long free = stats.freelistPages;
+        while (free > 0 && System.nanoTime() < deadline && !busy.getAsBoolean()) {
+            db.execute("PRAGMA incremental_vacuum(" + Math.min(free, VACUUM_STEP_PAGES) + ")");
+            long remaining = pragma(db, "freelist_count");
+            freed += free - remaining;
+            if (remaining >= free) {
+                break;
+            }
+            free = remaining;
+        }
+        return freed;
+    }
+
+    private static long pragma(SqlDatabase db, String name) {
+        return db.query("PRAGMA " + name, null, rows -> rows.next() ? rows.getLong(0) : 0);
+    }
+}
@@ -0,0 +1,47 @@
+package com.peras.campuswal.core;
+
+import java.util.List;
+
+/**
+ * Expense and todo storage without any Android or Capacitor types, so the
+ * queries behind the plugin can be tested and benchmarked on a plain JVM.
+ */
+public interface StorageRepository {
+
+    /** Saves one expense and returns its new id. */
+    long saveExpense(Expense expense);
+
+    /** Saves all expenses in one transaction. */
+    void saveExpenses(List<Expense> expenses);
+
+    /**
+     * Expenses at or after timeLimit (0 for all) matching search (empty for
+     * all), newest first, limit at a time. after is the last expense of the
+     * previous page, or null for the first page.
+     */
+    ExpensePage findExpenses(String search, long timeLimit, int limit, Expense after);
+
+    /** Total spent in [start, end). */
+    SpendingSummary.Total spending(long start, long end);
+
+    /** Spending per local day, week, month or year over [from, to). */
+    List<SpendingHistogram.Bucket> histogram(long from, long to, SpendingHistogram.Granularity granularity);
+
+    /** The limit items with the most spend at or after from (0 for all time), largest first. */
+    List<ItemDictionary.Total> topItems(long from, int limit);
+
+    /** Moves expenses older than before into the archive and returns how many moved. */
+    long archiveExpenses(long before);
+
+    /** Saves one todo and returns its new id. */
+    long saveTodo(Todo todo);
+
+    /** Sets the given fields of one todo, leaving null ones as they are; false if there is no such todo. */
+    boolean updateTodo(long id, Boolean done, Long doneAt, Long when);
+
+    /** Todos not yet done, soonest first. */
+    List<Todo> pendingTodos();
+
+    /** The todos in one view; see TodoQueries.query for what from, to and limit bound. */
+    List<Todo> todos(TodoQueries.View view, long from, long to, int limit);
+}
@@ -0,0 +1,24 @@
+package com.peras.campuswal.core;
+
+/**
+ * Numbers the storage layer keeps about itself, such as the archive cutoff,
+ * in the storage_settings table so they live and migrate with the data.
+ */
+public final class StorageSettings {
+
+    private StorageSettings() {
+    }
+
+    public static long getLong(SqlDatabase db, String key, long defaultValue) {
+        return db.query(
+            "SELECT " + Schema.COLUMN_SETTING_VALUE + " FROM " + Schema.TABLE_SETTINGS +
+                " WHERE " + Schema.COLUMN_SETTING_KEY + " = ?",
+            new Object[]{key},
+            rows -> rows.next() && !rows.isNull(0) ? rows.getLong(0) : defaultValue);
+    }
+
+    public static void putLong(SqlDatabase db, String key, long value) {
+        db.execute("INSERT OR REPLACE INTO " + Schema.TABLE_SETTINGS + " (" +
+            Schema.COLUMN_SETTING_KEY + ", " + Schema.COLUMN_SETTING_VALUE + ") VALUES (?, ?)", key, value);
+    }
+}
@@ -0,0 +1,23 @@
+package com.peras.campuswal.core;
+
+/** One row of the todos table; id is 0 until it has been saved. */
+public final class Todo {
+
+    public final long id;
+    public final String title;
+    public final long when;
+    public final String priority;
+    public final boolean done;
+
+    public Todo(long id, String title, long when, String priority, boolean done) {
+        this.id = id;
+        this.title = title;
+        this.when = when;
+        this.priority = priority;
+        this.done = done;
+    }
+
+    public Todo(String title, long when, String priority) {
+        this(0, title, when, priority, false);
+    }
+}
@@ -0,0 +1,93 @@
+package com.peras.campuswal.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The todo lists screens actually show. Each view reads through a partial
+ * index over pending or completed todos only, so its cost follows the
+ * rows on screen rather than every todo ever created.
+ */
+public final class TodoQueries {
+
+    // Completed todos are history; without an explicit limit a view shows this many
+    public static final int DEFAULT_COMPLETED_LIMIT = 50;
+
+    public enum View {
+        /** Every todo, soonest first; what getTodos returned before views. */
+        ALL,
+        /** Not done, soonest first. */
+        PENDING,
+        /** Not done and due before to. */
+        OVERDUE,
+        /** Not done and due in [from, to). */
+        DUE,
+        /** Done at or after from, most recently completed first. */
+        COMPLETED;
+
+        public static View parse(String value) {
+            try {
+                return valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown todo view: " + value);
+            }
+        }
+    }
+
+    /** SQL and bound arguments for one view. */
+    public static final class Query {
+        public final String sql;
+        public final String[] args;
+
+        Query(String sql, List<String> args) {
+            this.sql = sql;
+            this.args = args.isEmpty() ? null : args.toArray(new String[0]);
+        }
+    }
+
+    private TodoQueries() {
+    }
+
+    /**
+     * The given columns of the todos in view. from and to bound the view's
+     * time column where it has one; limit <= 0 means no limit, except for
+     * COMPLETED which then falls back to DEFAULT_COMPLETED_LIMIT.
+     */
+    public static Query query(View view, String columns, long from, long to, int limit) {
+        List<String> args = new ArrayList<>();
+        String when = Schema.COLUMN_TODO_WHEN;
+        String where;
+        // id breaks ties in the index's own order, so repeated loads agree without a sort
+        String order = when + ", " + Schema.COLUMN_TODO_ID;
+        switch (view) {
+            case ALL:
+                where = null;
+                break;
+            case PENDING:
+                where = Schema.COLUMN_TODO_DONE + " = 0";
+                break;
+            case OVERDUE:
+                where = Schema.COLUMN_TODO_DONE + " = 0 AND " + when + " < ?";
+                args.add(String.valueOf(to));
+                break;
+            case DUE:
+                where = Schema.COLUMN_TODO_DONE + " = 0 AND " + when + " >= ? AND " + when + " < ?";
+                args.add(String.valueOf(from));
+                args.add(String.valueOf(to));
+                break;
+            default:
+                where = Schema.COLUMN_TODO_DONE + " = 1 AND " + Schema.COLUMN_TODO_DONE_AT + " >= ?";
+                args.add(String.valueOf(from));
+                order = Schema.COLUMN_TODO_DONE_AT + " DESC, " + Schema.COLUMN_TODO_ID + " DESC";
+                if (limit <= 0) {
+                    limit = DEFAULT_COMPLETED_LIMIT;
+                }
+        }
+        String sql = "SELECT " + columns + " FROM " + Schema.TABLE_TODOS +
+            (where == null ? "" : " WHERE " + where) +
+            " ORDER BY " + order +
+            (limit > 0 ? " LIMIT " + limit : "");
+        return new Query(sql, args);
+    }
+}
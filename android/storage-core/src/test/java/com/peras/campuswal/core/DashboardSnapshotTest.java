@@ -0,0 +1,106 @@
+package com.peras.campuswal.core;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The snapshot file must hand back exactly what the dashboard queries saw,
+ * and a damaged or foreign file must read as no snapshot rather than as
+ * wrong numbers.
+ */
+public class DashboardSnapshotTest {
+
+    private static final long DAY = SpendingSummary.DAY_MS;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private JdbcSqlDatabase db;
+    private SqlStorageRepository repository;
+    private long now;
+
+    @Before
+    public void setUp() throws Exception {
+        db = new JdbcSqlDatabase(DriverManager.getConnection("jdbc:sqlite::memory:"));
+        Schema.create(db);
+        repository = new SqlStorageRepository(db);
+        now = SpendingSummary.startOfDay(System.currentTimeMillis()) + DAY / 2;
+
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 0; i < DashboardSnapshot.PAGE_ROWS + 20; i++) {
+            expenses.add(new Expense(i % 2 == 0 ? "Caf\u00e9 au lait" : "Bus " + i, i + 0.25, "d", now - i * (DAY / 4)));
+        }
+        repository.saveExpenses(expenses);
+        for (int i = 0; i < 5; i++) {
+            repository.saveTodo(new Todo("Todo " + i, now + (5 - i) * DAY, "high"));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void saveAndRead_roundTripsTheDashboard() throws Exception {
+        DashboardSnapshot saved = DashboardSnapshot.load(db, 42, now);
+        File file = folder.newFile("dashboard.snapshot");
+        saved.save(file);
+        DashboardSnapshot read = DashboardSnapshot.read(file);
+
+        assertNotNull(read);
+        assertEquals(now, read.savedAt);
+        assertEquals(42, read.version);
+        SpendingSummary.Cards expected = SpendingSummary.cards(db, now);
+        assertEquals(expected.today.amount, read.totals.today.amount, 0);
+        assertEquals(expected.week.count, read.totals.week.count);
+        assertEquals(expected.year.amount, read.totals.year.amount, 0);
+
+        ExpensePage newest = repository.findExpenses("", 0, DashboardSnapshot.PAGE_ROWS, null);
+        assertEquals(DashboardSnapshot.PAGE_ROWS, read.expenses.size());
+        for (int i = 0; i < newest.expenses.size(); i++) {
+            Expense want = newest.expenses.get(i);
+            Expense got = read.expenses.get(i);
+            assertEquals(want.id + want.item + want.amount + want.date + want.timestamp,
+                got.id + got.item + got.amount + got.date + got.timestamp);
+        }
+        assertEquals(5, read.todos.size());
+        assertEquals("Todo 4", read.todos.get(0).title);
+        assertEquals("high", read.todos.get(0).priority);
+
+        assertTrue(read.totalsCurrent(now + DAY / 4));
+        assertFalse(read.totalsCurrent(now + DAY));
+    }
+
+    @Test
+    public void read_treatsDamageAsNoSnapshot() throws Exception {
+        File file = folder.newFile("dashboard.snapshot");
+        assertNull(DashboardSnapshot.read(file));
+        assertNull(DashboardSnapshot.read(new File(folder.getRoot(), "missing")));
+
+        DashboardSnapshot.load(db, 1, now).save(file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length() / 2);
+            int b = raf.read();
+            raf.seek(raf.length() / 2);
+            raf.write(b ^ 0x10);
+        }
+        assertNull(DashboardSnapshot.read(file));
+
+        ByteBuffer encoded = DashboardSnapshot.load(db, 1, now).encode();
+        encoded.limit(encoded.limit() - 3);
+        assertNull(DashboardSnapshot.decode(encoded));
+    }
+}
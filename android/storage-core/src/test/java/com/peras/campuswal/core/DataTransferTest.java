@@ -0,0 +1,131 @@
+package com.peras.campuswal.core;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Exports and re-imports through both formats: every row must come back
+ * with the same values, awkward text included, and bad rows must be
+ * skipped without losing the rest.
+ */
+public class DataTransferTest {
+
+    private JdbcSqlDatabase source;
+    private JdbcSqlDatabase target;
+
+    @Before
+    public void setUp() throws Exception {
+        source = open();
+        target = open();
+    }
+
+    @After
+    public void tearDown() {
+        source.close();
+        target.close();
+    }
+
+    @Test
+    public void ndjson_roundTripsBothTablesAcrossPagesAndBatches() throws Exception {
+        SqlStorageRepository repository = new SqlStorageRepository(source);
+        List<Expense> expenses = new ArrayList<>();
+        int count = DataTransfer.BATCH_ROWS * 2 + 17;
+        for (int i = 0; i < count; i++) {
+            expenses.add(new Expense("item \"" + i + "\"\n\u00e9\u2028", i + 0.25, "2025-01-01", 1000L + i));
+        }
+        repository.saveExpenses(expenses);
+        repository.saveTodo(new Todo(0, "done todo", 50, "high", true));
+        repository.saveTodo(new Todo("open todo", 60, "low"));
+
+        List<Long> progress = new ArrayList<>();
+        StringWriter out = new StringWriter();
+        long written = DataTransfer.export(source, out, DataTransfer.Format.NDJSON,
+            Arrays.asList("expenses", "todos"), (table, rows, total) -> progress.add(rows));
+        assertEquals(count + 2, written);
+        assertTrue(progress.size() > count / DataTransfer.PAGE_ROWS);
+
+        DataTransfer.ImportResult result = DataTransfer.importFrom(target,
+            new BufferedReader(new StringReader(out.toString())), DataTransfer.Format.NDJSON, "expenses", null);
+        assertEquals(count, result.expenses);
+        assertEquals(2, result.todos);
+        assertEquals(0, result.failed);
+
+        String columns = "SELECT " + ItemDictionary.ITEM + ", amount, date, timestamp FROM expenses ORDER BY id";
+        assertEquals(dump(source, columns, 4), dump(target, columns, 4));
+        String todos = "SELECT title, when_time, priority, done, notified, done_at FROM todos ORDER BY id";
+        assertEquals(dump(source, todos, 6), dump(target, todos, 6));
+    }
+
+    @Test
+    public void csv_roundTripsQuotedFields() throws Exception {
+        SqlStorageRepository repository = new SqlStorageRepository(source);
+        repository.saveExpense(new Expense("Tea, \"green\"", 3.5, "d", 1));
+        repository.saveExpense(new Expense("two\r\nlines", 12, "d", 2));
+
+        StringWriter out = new StringWriter();
+        DataTransfer.export(source, out, DataTransfer.Format.CSV, Collections.singletonList("expenses"), null);
+        assertTrue(out.toString().startsWith("id,item,amount,date,timestamp\n"));
+
+        DataTransfer.ImportResult result = DataTransfer.importFrom(target,
+            new BufferedReader(new StringReader(out.toString())), DataTransfer.Format.CSV, "expenses", null);
+        assertEquals(2, result.expenses);
+        String columns = "SELECT " + ItemDictionary.ITEM + ", amount, date, timestamp FROM expenses ORDER BY id";
+        assertEquals(dump(source, columns, 4), dump(target, columns, 4));
+    }
+
+    @Test
+    public void import_skipsBadRowsAndKeepsTheRest() throws Exception {
+        String ndjson =
+            "{\"item\":\"ok\",\"amount\":1,\"date\":\"d\",\"timestamp\":1}\n" +
+            "not json\n" +
+            "\n" +
+            "{\"item\":\"no amount\",\"date\":\"d\",\"timestamp\":2}\n" +
+            "{\"item\":\"bad amount\",\"amount\":\"lots\",\"date\":\"d\",\"timestamp\":3}\n" +
+            "{\"table\":\"nope\",\"item\":\"x\"}\n" +
+            "{\"table\":\"todos\",\"title\":\"t\",\"when\":5,\"priority\":\"low\"}\n";
+
+        DataTransfer.ImportResult result = DataTransfer.importFrom(target,
+            new BufferedReader(new StringReader(ndjson)), DataTransfer.Format.NDJSON, "expenses", null);
+        assertEquals(1, result.expenses);
+        assertEquals(1, result.todos);
+        assertEquals(4, result.failed);
+        assertTrue(result.failures.get(1), result.failures.get(1).contains("Missing amount"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void csvExport_rejectsSeveralTables() throws Exception {
+        DataTransfer.export(source, new StringWriter(), DataTransfer.Format.CSV, Arrays.asList("expenses", "todos"), null);
+    }
+
+    private static JdbcSqlDatabase open() throws Exception {
+        JdbcSqlDatabase db = new JdbcSqlDatabase(DriverManager.getConnection("jdbc:sqlite::memory:"));
+        Schema.create(db);
+        return db;
+    }
+
+    private static List<String> dump(SqlDatabase db, String sql, int columns) {
+        return db.query(sql, null, rows -> {
+            List<String> out = new ArrayList<>();
+            while (rows.next()) {
+                StringBuilder row = new StringBuilder();
+                for (int i = 0; i < columns; i++) {
+                    row.append(rows.getString(i)).append('|');
+                }
+                out.add(row.toString());
+            }
+            return out;
+        });
+    }
+}
@@ -0,0 +1,139 @@
+package com.peras.campuswal.core;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Moving old expenses into the archive must not change anything a caller
+ * can see: lists, searches, totals, histograms, exports and the change log
+ * read the same before and after, while recent queries stay on the hot table.
+ */
+public class ExpenseArchiveTest {
+
+    private static final long DAY = SpendingSummary.DAY_MS;
+
+    private JdbcSqlDatabase db;
+    private SqlStorageRepository repository;
+
+    @Before
+    public void setUp() throws Exception {
+        db = new JdbcSqlDatabase(DriverManager.getConnection("jdbc:sqlite::memory:"));
+        Schema.create(db);
+        repository = new SqlStorageRepository(db);
+
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 0; i < ExpenseArchive.BATCH_ROWS * 2 + 300; i++) {
+            // Several per day, with amounts varying so per-day min and max matter
+            expenses.add(new Expense((i % 3 == 0 ? "Green tea " : "Coffee ") + i, (i * 7) % 50 + 0.5,
+                "d", 100 * DAY + i * (DAY / 5)));
+        }
+        repository.saveExpenses(expenses);
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void archive_leavesEveryQueryUnchanged() {
+        long cutoff = 600 * DAY + DAY / 3;
+        List<String> before = snapshot(cutoff);
+
+        long moved = repository.archiveExpenses(cutoff);
+        assertEquals(count("SELECT COUNT(*) FROM expenses_archive"), moved);
+        assertTrue(moved > ExpenseArchive.BATCH_ROWS);
+        assertEquals(0, count("SELECT COUNT(*) FROM expenses WHERE timestamp < " + cutoff));
+        assertEquals(cutoff, ExpenseArchive.archivedBefore(db));
+
+        assertEquals(before, snapshot(cutoff));
+    }
+
+    @Test
+    public void select_onlyReadsArchiveForRangesBeforeCutoff() {
+        long cutoff = 300 * DAY;
+        repository.archiveExpenses(cutoff);
+
+        assertFalse(ExpenseQueries.select(db, "", cutoff).includesArchive());
+        assertFalse(ExpenseQueries.select(db, "tea", cutoff + DAY).includesArchive());
+        assertTrue(ExpenseQueries.select(db, "", 0).includesArchive());
+        assertTrue(ExpenseQueries.select(db, "", cutoff - 1).includesArchive());
+
+        // An earlier cutoff later on never pulls the boundary back
+        repository.archiveExpenses(cutoff - 50 * DAY);
+        assertEquals(cutoff, ExpenseArchive.archivedBefore(db));
+    }
+
+    @Test
+    public void archive_isNotLoggedAsADelete() {
+        long version = count("SELECT MAX(version) FROM change_log");
+        repository.archiveExpenses(500 * DAY);
+        assertEquals(version, count("SELECT MAX(version) FROM change_log"));
+        assertEquals(0, count("SELECT COUNT(*) FROM change_log WHERE op = 'delete'"));
+
+        // Deleting an archived expense still reaches the log
+        db.execute("DELETE FROM expenses_archive WHERE id = 1");
+        assertEquals(1, count("SELECT COUNT(*) FROM change_log WHERE op = 'delete' AND row_id = 1"));
+    }
+
+    @Test
+    public void applyPolicy_usesStoredAge() {
+        long now = 900 * DAY;
+        assertEquals(0, ExpenseArchive.applyPolicy(db, now));
+
+        StorageSettings.putLong(db, ExpenseArchive.KEY_OLDER_THAN_DAYS, 365);
+        long moved = ExpenseArchive.applyPolicy(db, now);
+        long cutoff = SpendingSummary.addDays(SpendingSummary.startOfDay(now), -365);
+        assertEquals(cutoff, ExpenseArchive.archivedBefore(db));
+        assertEquals(count("SELECT COUNT(*) FROM expenses_archive WHERE timestamp < " + cutoff), moved);
+        assertEquals(0, ExpenseArchive.applyPolicy(db, now));
+    }
+
+    private List<String> snapshot(long cutoff) {
+        List<String> out = new ArrayList<>();
+        for (String search : new String[]{"", "gre te", "offe"}) {
+            for (long timeLimit : new long[]{0, cutoff - 40 * DAY, cutoff + 10 * DAY}) {
+                Expense after = null;
+                ExpensePage page;
+                do {
+                    page = repository.findExpenses(search, timeLimit, 300, after);
+                    out.add(page.count + "/" + page.totalAmount + "/" + page.hasMore);
+                    for (Expense expense : page.expenses) {
+                        out.add(expense.id + ":" + expense.item + ":" + expense.amount + ":" + expense.timestamp);
+                    }
+                    after = page.expenses.isEmpty() ? null : page.expenses.get(page.expenses.size() - 1);
+                } while (page.hasMore);
+            }
+        }
+        for (long start : new long[]{0, cutoff - DAY / 2, cutoff - 30 * DAY - DAY / 7}) {
+            SpendingSummary.Total total = repository.spending(start, start + 61 * DAY);
+            out.add(total.amount + "/" + total.count);
+        }
+        for (SpendingHistogram.Bucket bucket : repository.histogram(90 * DAY, 1100 * DAY,
+                SpendingHistogram.Granularity.WEEK)) {
+            out.add(bucket.start + ":" + bucket.amount + ":" + bucket.count + ":" + bucket.min + ":" + bucket.max);
+        }
+        StringWriter export = new StringWriter();
+        try {
+            DataTransfer.export(db, export, DataTransfer.Format.CSV, Collections.singletonList("expenses"), null);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        out.add(export.toString());
+        return out;
+    }
+
+    private long count(String sql) {
+        return db.query(sql, null, rows -> rows.next() ? rows.getLong(0) : 0);
+    }
+}
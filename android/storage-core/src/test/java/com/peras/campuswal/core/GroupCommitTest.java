@@ -0,0 +1,185 @@
+package com.peras.campuswal.core;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A burst of writes must share transactions, each caller must get its own
+ * row id after the commit, a failing write must fail alone without leaving
+ * anything behind, and an open window must never hold up the writer.
+ */
+public class GroupCommitTest {
+
+    private static final String INSERT =
+        "INSERT INTO " + Schema.TABLE_EXPENSES + " (" +
+        Schema.COLUMN_EXPENSE_ITEM_ID + ", " + Schema.COLUMN_EXPENSE_AMOUNT + ", " +
+        Schema.COLUMN_EXPENSE_DATE + ", " + Schema.COLUMN_EXPENSE_TIMESTAMP + ") VALUES (" +
+        ItemDictionary.ID_OF + ", 1, 'd', 0)";
+
+    private JdbcSqlDatabase db;
+    private CountingDatabase counting;
+    private ExecutorService writer;
+    private ScheduledExecutorService timer;
+
+    @Before
+    public void setUp() throws Exception {
+        db = new JdbcSqlDatabase(DriverManager.getConnection("jdbc:sqlite::memory:"));
+        Schema.create(db);
+        counting = new CountingDatabase(db);
+        writer = Executors.newSingleThreadExecutor();
+        timer = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        timer.shutdownNow();
+        writer.shutdown();
+        writer.awaitTermination(5, TimeUnit.SECONDS);
+        db.close();
+    }
+
+    @Test
+    public void burst_sharesCommitsAndReturnsEachId() throws Exception {
+        GroupCommit group = new GroupCommit(counting, writer, timer, 200, 10);
+        Results results = new Results(25);
+        for (int i = 0; i < 25; i++) {
+            group.submit(insert("item " + i), results);
+        }
+        results.await();
+
+        assertEquals(0, results.failures.get());
+        assertEquals(25, new HashSet<>(results.ids).size());
+        assertEquals(3, counting.transactions.get());
+        for (long id : results.ids) {
+            assertEquals(1, count("SELECT COUNT(*) FROM expenses WHERE id = " + id));
+        }
+        assertEquals(0, group.pending());
+    }
+
+    @Test
+    public void failingWrite_failsAloneAndTheRestCommit() throws Exception {
+        GroupCommit group = new GroupCommit(counting, writer, timer, 100, 10);
+        Results results = new Results(3);
+        group.submit(insert("kept"), results);
+        group.submit(database -> {
+            // Half done when it throws: the item name it filed must go too
+            insert("lost").apply(database);
+            throw new StorageException("disk full", null);
+        }, results);
+        group.submit(insert("also kept"), results);
+        results.await();
+
+        assertEquals(1, results.failures.get());
+        assertEquals(2, results.ids.size());
+        assertEquals(1, counting.transactions.get());
+        assertEquals(2, count("SELECT COUNT(*) FROM expenses"));
+        assertEquals(0, count("SELECT COUNT(*) FROM items WHERE name = 'lost'"));
+    }
+
+    @Test
+    public void openWindow_doesNotHoldUpTheWriter() throws Exception {
+        GroupCommit group = new GroupCommit(counting, writer, timer, 2000, 10);
+        Results results = new Results(1);
+        group.submit(insert("grouped"), results);
+
+        // A write that isn't grouped runs straight away instead of waiting out the window
+        CountDownLatch ran = new CountDownLatch(1);
+        writer.execute(ran::countDown);
+        assertTrue(ran.await(500, TimeUnit.MILLISECONDS));
+        assertEquals(1, group.pending());
+
+        results.await();
+        assertEquals(0, results.failures.get());
+        assertEquals(0, group.pending());
+    }
+
+    private static GroupCommit.Write insert(String item) {
+        return database -> {
+            try (SqlDatabase.Statement add = database.compile(ItemDictionary.ADD);
+                 SqlDatabase.Statement insert = database.compile(INSERT)) {
+                ItemDictionary.add(add, item);
+                insert.bind(1, item);
+                return insert.executeInsert();
+            }
+        };
+    }
+
+    private long count(String sql) {
+        return db.query(sql, null, rows -> rows.next() ? rows.getLong(0) : 0);
+    }
+
+    private static final class Results implements GroupCommit.Callback {
+        final List<Long> ids = new ArrayList<>();
+        final AtomicInteger failures = new AtomicInteger();
+        final CountDownLatch done;
+
+        Results(int expected) {
+            done = new CountDownLatch(expected);
+        }
+
+        @Override
+        public synchronized void committed(long id) {
+            ids.add(id);
+            done.countDown();
+        }
+
+        @Override
+        public void failed(Exception error) {
+            failures.incrementAndGet();
+            done.countDown();
+        }
+
+        void await() throws InterruptedException {
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    private static final class CountingDatabase implements SqlDatabase {
+        final SqlDatabase db;
+        final AtomicInteger transactions = new AtomicInteger();
+
+        CountingDatabase(SqlDatabase db) {
+            this.db = db;
+        }
+
+        @Override
+        public void execute(String sql, Object... args) {
+            db.execute(sql, args);
+        }
+
+        @Override
+        public <T> T query(String sql, Object[] args, RowReader<T> reader) {
+            return db.query(sql, args, reader);
+        }
+
+        @Override
+        public Statement compile(String sql) {
+            return db.compile(sql);
+        }
+
+        @Override
+        public void inTransaction(Runnable work) {
+            transactions.incrementAndGet();
+            db.inTransaction(work);
+        }
+
+        @Override
+        public void inSavepoint(Runnable work) {
+            db.inSavepoint(work);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.peras.campuswal.core;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Expenses store only an item id, so every name must read back exactly as
+ * saved, searches must still find it, and top items must count spellings
+ * of one item together across the hot table and the archive.
+ */
+public class ItemDictionaryTest {
+
+    private static final long DAY = SpendingSummary.DAY_MS;
+
+    private JdbcSqlDatabase db;
+    private SqlStorageRepository repository;
+
+    @Before
+    public void setUp() throws Exception {
+        db = new JdbcSqlDatabase(DriverManager.getConnection("jdbc:sqlite::memory:"));
+        Schema.create(db);
+        repository = new SqlStorageRepository(db);
+
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            expenses.add(new Expense("Coffee", 2, "d", (10 + i) * DAY));
+        }
+        expenses.add(new Expense("coffee  ", 2, "d", 5 * DAY));
+        expenses.add(new Expense("Lunch", 45, "d", 20 * DAY));
+        expenses.add(new Expense("Caf\u00e9 au lait", 4, "d", 25 * DAY));
+        repository.saveExpenses(expenses);
+        repository.saveExpense(new Expense("Lunch", 20, "d", 2 * DAY));
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void names_areStoredOnceAndReadBackAsSaved() {
+        assertEquals(4, count("SELECT COUNT(*) FROM items"));
+        assertEquals(2, count("SELECT COUNT(DISTINCT key) FROM items WHERE key IN ('coffee', 'lunch')"));
+
+        ExpensePage all = repository.findExpenses("", 0, 100, null);
+        assertEquals(34, all.count);
+        assertEquals("coffee  ", all.expenses.get(all.expenses.size() - 2).item);
+        assertEquals("Lunch", all.expenses.get(all.expenses.size() - 1).item);
+
+        assertEquals(31, repository.findExpenses("coff", 0, 100, null).count);
+        assertEquals(1, repository.findExpenses("au lait", 0, 100, null).count);
+        // Mid-word falls back to LIKE over the dictionary
+        assertEquals(31, repository.findExpenses("offe", 0, 100, null).count);
+        assertEquals(2, repository.findExpenses("unc", 0, 100, null).count);
+    }
+
+    @Test
+    public void top_mergesSpellingsAndReadsTheArchive() {
+        repository.archiveExpenses(15 * DAY);
+
+        List<ItemDictionary.Total> top = repository.topItems(0, 2);
+        assertEquals(2, top.size());
+        assertEquals("Lunch", top.get(0).name);
+        assertEquals(65, top.get(0).amount, 0);
+        assertEquals(2, top.get(0).count);
+        assertEquals("Coffee", top.get(1).name);
+        assertEquals(62, top.get(1).amount, 0);
+        assertEquals(31, top.get(1).count);
+
+        List<ItemDictionary.Total> recent = repository.topItems(20 * DAY, 10);
+        assertEquals(3, recent.size());
+        assertEquals("Lunch", recent.get(0).name);
+        assertEquals(20, recent.get(1).count);
+        assertEquals("Caf\u00e9 au lait", recent.get(2).name);
+    }
+
+    private long count(String sql) {
+        return db.query(sql, null, rows -> rows.next() ? rows.getLong(0) : 0);
+    }
+}
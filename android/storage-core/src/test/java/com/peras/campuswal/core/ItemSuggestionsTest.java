@@ -0,0 +1,102 @@
+package com.peras.campuswal.core;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.DriverManager;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * Suggestions come from the database once, then stay current through add:
+ * most used first, spelling variants merged, archived names included.
+ */
+public class ItemSuggestionsTest {
+
+    private JdbcSqlDatabase db;
+    private SqlStorageRepository repository;
+
+    @Before
+    public void setUp() throws Exception {
+        db = new JdbcSqlDatabase(DriverManager.getConnection("jdbc:sqlite::memory:"));
+        Schema.create(db);
+        repository = new SqlStorageRepository(db);
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void suggest_ranksByUseAndMergesSpellings() {
+        save("Tea", 1, 3);
+        save("tea ", 2, 1);
+        save("Bus fare", 3, 2);
+        save("bus  Fare", 4, 1);
+        save("Bus pass", 5, 4);
+        save("Books", 6, 1);
+        repository.archiveExpenses(3);
+
+        ItemSuggestions suggestions = new ItemSuggestions();
+        suggestions.load(db);
+        assertEquals(Arrays.asList("Bus pass", "Bus fare"), suggestions.suggest("bu", 5));
+        assertEquals(Collections.singletonList("Tea"), suggestions.suggest(" TE", 5));
+        // Ties go alphabetically
+        assertEquals(Arrays.asList("Bus pass", "Tea", "Bus fare", "Books"), suggestions.suggest("", 5));
+        assertEquals(Collections.singletonList("Bus pass"), suggestions.suggest("b", 1));
+        assertTrue(suggestions.suggest("x", 5).isEmpty());
+
+        suggestions.add("Bus fare");
+        suggestions.add("Bus fare");
+        suggestions.add("Bread");
+        assertEquals(Arrays.asList("Bus fare", "Bus pass", "Books", "Bread"), suggestions.suggest("b", 5));
+    }
+
+    @Test
+    public void add_keepsShortPrefixRankingInStepWithAReload() {
+        Random random = new Random(3);
+        for (int i = 0; i < 300; i++) {
+            save("c" + (char) ('a' + random.nextInt(3)) + " item " + random.nextInt(80), i, 1);
+        }
+        ItemSuggestions suggestions = new ItemSuggestions();
+        suggestions.load(db);
+        suggestions.suggest("c", 10);
+        suggestions.suggest("cb", 10);
+
+        for (int i = 0; i < 500; i++) {
+            String item = "c" + (char) ('a' + random.nextInt(3)) + " item " + random.nextInt(120);
+            save(item, i, 1);
+            suggestions.add(item);
+        }
+        ItemSuggestions reloaded = new ItemSuggestions();
+        reloaded.load(db);
+        for (String prefix : new String[]{"", "c", "cb", "cb item 1"}) {
+            assertEquals(prefix, reloaded.suggest(prefix, ItemSuggestions.MAX_LIMIT),
+                suggestions.suggest(prefix, ItemSuggestions.MAX_LIMIT));
+        }
+    }
+
+    @Test
+    public void add_isIgnoredUntilLoaded() {
+        ItemSuggestions suggestions = new ItemSuggestions();
+        suggestions.add("Tea");
+        save("Tea", 1, 1);
+        suggestions.load(db);
+        assertEquals(1, suggestions.size());
+
+        suggestions.invalidate();
+        assertFalse(suggestions.isLoaded());
+        assertTrue(suggestions.suggest("t", 5).isEmpty());
+    }
+
+    private void save(String item, long timestamp, int times) {
+        for (int i = 0; i < times; i++) {
+            repository.saveExpense(new Expense(item, 1, "d", timestamp));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.peras.campuswal.core;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.DriverManager;
+
+/**
+ * Rows must come out as the JSON the bridge expects: typed values, escaped
+ * text, null for missing text and the columns picked by index, not order.
+ */
+public class RowJsonTest {
+
+    private JdbcSqlDatabase db;
+
+    @Before
+    public void setUp() throws Exception {
+        db = new JdbcSqlDatabase(DriverManager.getConnection("jdbc:sqlite::memory:"));
+        db.execute("CREATE TABLE t (title TEXT, id INTEGER, done INTEGER, amount REAL)");
+        db.execute("INSERT INTO t VALUES ('Say \"hi\"\n', 1, 1, 2.5)");
+        db.execute("INSERT INTO t VALUES (NULL, 2, 0, 3)");
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void appendRow_writesTypedValuesByColumnIndex() {
+        RowJson.Field[] fields = {
+            new RowJson.Field("id", "id", RowJson.Type.LONG),
+            new RowJson.Field("title", "title", RowJson.Type.STRING),
+            new RowJson.Field("done", "done", RowJson.Type.BOOLEAN),
+            new RowJson.Field("amount", "amount", RowJson.Type.DOUBLE),
+        };
+        String json = db.query("SELECT title, id, done, amount FROM t ORDER BY id", null, rows -> {
+            RowJson out = new RowJson(fields, new int[]{1, 0, 2, 3}, 2);
+            while (rows.next()) {
+                out.appendRow(rows);
+            }
+            assertEquals(2, out.rowCount());
+            return out.toJson();
+        });
+
+        assertEquals("[{\"id\":1,\"title\":\"Say \\\"hi\\\"\\n\",\"done\":true,\"amount\":2.5}," +
+            "{\"id\":2,\"title\":null,\"done\":false,\"amount\":3}]", json);
+    }
+
+    @Test
+    public void toJson_noRowsIsAnEmptyArray() {
+        assertEquals("[]", new RowJson(RowJson.TODO, null, 0).toJson());
+    }
+}
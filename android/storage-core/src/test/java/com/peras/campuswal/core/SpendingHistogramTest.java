@@ -0,0 +1,105 @@
+package com.peras.campuswal.core;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Buckets must follow the local calendar (here one with DST) while the
+ * rollup is kept in UTC days, so every bucket is checked against a plain
+ * aggregate over its own range after inserts, updates and deletes.
+ */
+public class SpendingHistogramTest {
+
+    private static final long DAY = SpendingSummary.DAY_MS;
+    private static final long START = 1_704_067_200_000L; // 2024-01-01 UTC
+
+    private TimeZone defaultZone;
+    private JdbcSqlDatabase db;
+
+    @Before
+    public void setUp() throws Exception {
+        defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+        db = new JdbcSqlDatabase(DriverManager.getConnection("jdbc:sqlite::memory:"));
+        Schema.create(db);
+
+        Random random = new Random(13);
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            expenses.add(new Expense("x", 1 + random.nextInt(10000) / 100.0, "d",
+                START + (long) (random.nextDouble() * 400 * DAY)));
+        }
+        new SqlStorageRepository(db).saveExpenses(expenses);
+        db.execute("UPDATE expenses SET amount = amount * 3 WHERE id % 11 = 0");
+        db.execute("UPDATE expenses SET timestamp = timestamp + 36 * 3600000 WHERE id % 13 = 0");
+        db.execute("DELETE FROM expenses WHERE id % 7 = 0");
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+        TimeZone.setDefault(defaultZone);
+    }
+
+    @Test
+    public void histogram_matchesRawAggregatesForEveryGranularity() {
+        long from = START + 5 * DAY + 12345;
+        long to = START + 390 * DAY;
+        for (SpendingHistogram.Granularity granularity : SpendingHistogram.Granularity.values()) {
+            List<SpendingHistogram.Bucket> buckets = SpendingHistogram.histogram(db, from, to, granularity);
+            long previousEnd = buckets.get(0).start;
+            for (SpendingHistogram.Bucket bucket : buckets) {
+                assertEquals(granularity + " buckets are contiguous", previousEnd, bucket.start);
+                assertEquals(bucket.start, SpendingHistogram.bucketStart(bucket.start, granularity));
+                previousEnd = bucket.end;
+                assertMatchesRaw(granularity, bucket, Math.max(bucket.start, from), Math.min(bucket.end, to));
+            }
+            assertTrue(buckets.get(buckets.size() - 1).end >= to);
+        }
+    }
+
+    @Test
+    public void rollupMinMax_followsDeletesOfExtremes() {
+        db.execute("DELETE FROM expenses");
+        db.execute("INSERT INTO expenses (item_id, amount, date, timestamp) VALUES (1, 5, 'd', ?), (1, 1, 'd', ?), (1, 9, 'd', ?)",
+            START + 1000, START + 2000, START + 3000);
+        db.execute("DELETE FROM expenses WHERE amount IN (1, 9)");
+
+        double[] minMax = db.query("SELECT min_amount, max_amount FROM expense_daily_totals", null,
+            rows -> rows.next() ? new double[]{rows.getDouble(0), rows.getDouble(1)} : null);
+        assertEquals(5, minMax[0], 0);
+        assertEquals(5, minMax[1], 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void histogram_rejectsTooManyBuckets() {
+        SpendingHistogram.histogram(db, 0, (SpendingHistogram.MAX_BUCKETS + 1) * DAY, SpendingHistogram.Granularity.DAY);
+    }
+
+    private void assertMatchesRaw(SpendingHistogram.Granularity granularity, SpendingHistogram.Bucket bucket,
+                                  long start, long end) {
+        Object[] raw = db.query(
+            "SELECT COALESCE(SUM(amount), 0), COUNT(*), MIN(amount), MAX(amount) FROM expenses" +
+                " WHERE timestamp >= ? AND timestamp < ?",
+            new Object[]{start, end},
+            rows -> {
+                rows.next();
+                return new Object[]{rows.getDouble(0), rows.getLong(1),
+                    rows.isNull(2) ? null : rows.getDouble(2), rows.isNull(3) ? null : rows.getDouble(3)};
+            });
+        String label = granularity + " bucket " + bucket.start;
+        assertEquals(label, (Double) raw[0], bucket.amount, 0.0001);
+        assertEquals(label, raw[1], bucket.count);
+        assertEquals(label, raw[2], bucket.min);
+        assertEquals(label, raw[3], bucket.max);
+    }
+}
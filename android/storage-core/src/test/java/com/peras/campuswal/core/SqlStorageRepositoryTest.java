@@ -0,0 +1,191 @@
+package com.peras.campuswal.core;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the shared schema and queries on JDBC SQLite: paging through a
+ * filtered list must visit every match once, and both search paths and
+ * the rollup must agree with plain SQL.
+ */
+public class SqlStorageRepositoryTest {
+
+    private static final long DAY = SpendingSummary.DAY_MS;
+
+    private JdbcSqlDatabase db;
+    private SqlStorageRepository repository;
+
+    @Before
+    public void setUp() throws Exception {
+        db = new JdbcSqlDatabase(DriverManager.getConnection("jdbc:sqlite::memory:"));
+        Schema.create(db);
+        repository = new SqlStorageRepository(db);
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void findExpenses_pagesThroughEveryMatchOnce() {
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            // Pairs share a timestamp so the id tie-break is exercised
+            expenses.add(new Expense("item " + i, 1, "d", (i / 2) * DAY));
+        }
+        repository.saveExpenses(expenses);
+
+        long timeLimit = 20 * DAY;
+        List<Long> seen = new ArrayList<>();
+        Expense after = null;
+        ExpensePage page;
+        do {
+            page = repository.findExpenses("", timeLimit, 25, after);
+            assertEquals(80, page.count);
+            for (Expense expense : page.expenses) {
+                seen.add(expense.id);
+                assertTrue(expense.timestamp >= timeLimit);
+            }
+            after = page.expenses.isEmpty() ? null : page.expenses.get(page.expenses.size() - 1);
+        } while (page.hasMore);
+
+        assertEquals(80, seen.size());
+        assertEquals(80, seen.stream().distinct().count());
+        assertEquals(Long.valueOf(120), seen.get(0));
+    }
+
+    @Test
+    public void findExpenses_searchesWordPrefixesAndSubstrings() {
+        repository.saveExpense(new Expense("Green tea", 3, "d", 1));
+        repository.saveExpense(new Expense("Coffee", 2, "d", 2));
+        repository.saveExpense(new Expense("Steak", 9, "d", 3));
+
+        ExpensePage prefix = repository.findExpenses("gre te", 0, 10, null);
+        assertEquals(1, prefix.count);
+        assertEquals("Green tea", prefix.expenses.get(0).item);
+
+        // "ea" is inside words, so only the substring match finds these
+        ExpensePage substring = repository.findExpenses("ea", 0, 10, null);
+        assertEquals(2, substring.count);
+        assertEquals(12, substring.totalAmount, 0);
+    }
+
+    @Test
+    public void findExpenses_returnsPrefixAndMidWordMatchesTogether() {
+        repository.saveExpense(new Expense("Eats", 5, "d", 1));
+        repository.saveExpense(new Expense("Tea", 2, "d", 2));
+        repository.saveExpense(new Expense("Bus", 1, "d", 3));
+
+        // "Eats" starts with "ea" and "Tea" only contains it; a prefix hit must not hide the other
+        ExpensePage page = repository.findExpenses("ea", 0, 10, null);
+        assertEquals(2, page.count);
+        assertEquals("Tea", page.expenses.get(0).item);
+        assertEquals("Eats", page.expenses.get(1).item);
+    }
+
+    @Test
+    public void findExpenses_severalWordsMatchWordStartsOnly() {
+        repository.saveExpense(new Expense("Green tea", 3, "d", 1));
+        repository.saveExpense(new Expense("Evergreen tea", 4, "d", 2));
+
+        // "green" is a word start in one name and mid-word in the other
+        assertEquals(2, repository.findExpenses("green", 0, 10, null).count);
+        ExpensePage words = repository.findExpenses("green te", 0, 10, null);
+        assertEquals(1, words.count);
+        assertEquals("Green tea", words.expenses.get(0).item);
+        assertEquals(0, repository.findExpenses("green cof", 0, 10, null).count);
+    }
+
+    @Test
+    public void spending_matchesRawSum() {
+        for (int i = 0; i < 50; i++) {
+            repository.saveExpense(new Expense("x", i, "d", i * DAY / 3));
+        }
+        db.execute("DELETE FROM expenses WHERE id % 4 = 0");
+
+        SpendingSummary.Total total = repository.spending(2 * DAY, 12 * DAY);
+        double raw = db.query(
+            "SELECT SUM(amount) FROM expenses WHERE timestamp >= ? AND timestamp < ?",
+            new Object[]{2 * DAY, 12 * DAY},
+            rows -> rows.next() ? rows.getDouble(0) : 0);
+        assertEquals(raw, total.amount, 0.0001);
+    }
+
+    @Test
+    public void pendingTodos_skipsDoneAndOrdersByTime() {
+        repository.saveTodo(new Todo("later", 20, "low"));
+        repository.saveTodo(new Todo(0, "finished", 5, "high", true));
+        repository.saveTodo(new Todo("sooner", 10, "medium"));
+
+        List<Todo> todos = repository.pendingTodos();
+        assertEquals(2, todos.size());
+        assertEquals("sooner", todos.get(0).title);
+        assertEquals("later", todos.get(1).title);
+    }
+
+    @Test
+    public void updateTodo_changesOnlyGivenFieldsAndRearmsFutureReminders() {
+        long later = System.currentTimeMillis() + DAY;
+        long id = repository.saveTodo(new Todo("call home", 10, "low"));
+
+        assertTrue(repository.updateTodo(id, null, null, later));
+        assertEquals("0|" + later + "|0", todoRow(id));
+        assertTrue(repository.updateTodo(id, true, 50L, null));
+        assertEquals("1|" + later + "|0", todoRow(id));
+        // Moved into the past: nothing left to remind of
+        assertTrue(repository.updateTodo(id, null, null, 20L));
+        assertEquals("1|20|1", todoRow(id));
+        assertFalse(repository.updateTodo(id + 1, true, null, null));
+    }
+
+    @Test
+    public void todoViews_returnTheirRowsThroughPartialIndexes() {
+        for (int i = 0; i < 10; i++) {
+            repository.saveTodo(new Todo("open " + i, i * 10, "low"));
+        }
+        for (int i = 0; i < 5; i++) {
+            long id = repository.saveTodo(new Todo("done " + i, i, "low"));
+            db.execute("UPDATE todos SET done = 1, done_at = ? WHERE id = ?", 100 + i, id);
+        }
+
+        assertEquals(10, repository.todos(TodoQueries.View.PENDING, 0, 0, 0).size());
+        assertEquals(3, repository.todos(TodoQueries.View.OVERDUE, 0, 25, 0).size());
+        List<Todo> due = repository.todos(TodoQueries.View.DUE, 30, 60, 0);
+        assertEquals("open 3", due.get(0).title);
+        assertEquals(3, due.size());
+        List<Todo> completed = repository.todos(TodoQueries.View.COMPLETED, 102, 0, 2);
+        assertEquals(2, completed.size());
+        assertEquals("done 4", completed.get(0).title);
+        assertTrue(completed.get(0).done);
+
+        for (TodoQueries.View view : TodoQueries.View.values()) {
+            if (view == TodoQueries.View.ALL) {
+                continue;
+            }
+            TodoQueries.Query query = TodoQueries.query(view, "*", 0, 1, 0);
+            String plan = db.query("EXPLAIN QUERY PLAN " + query.sql, query.args, rows -> {
+                StringBuilder out = new StringBuilder();
+                while (rows.next()) {
+                    out.append(rows.getString(3)).append('\n');
+                }
+                return out.toString();
+            });
+            String index = view == TodoQueries.View.COMPLETED ? Schema.INDEX_TODOS_COMPLETED : Schema.INDEX_TODOS_PENDING;
+            assertTrue(view + ": " + plan, plan.contains(index));
+            assertFalse(view + ": " + plan, plan.contains("TEMP B-TREE"));
+        }
+    }
+
+    private String todoRow(long id) {
+        return db.query("SELECT done, when_time, notified FROM todos WHERE id = ?", new Object[]{id},
+            rows -> rows.next() ? rows.getLong(0) + "|" + rows.getLong(1) + "|" + rows.getLong(2) : null);
+    }
+}
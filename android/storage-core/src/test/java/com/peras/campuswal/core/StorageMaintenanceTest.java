@@ -0,0 +1,115 @@
+package com.peras.campuswal.core;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Maintenance must run each task once per interval and remember it, hand
+ * freed pages back to the file, and never start work that doesn't fit
+ * its budget or that would make a waiting call wait longer.
+ */
+public class StorageMaintenanceTest {
+
+    private static final long DAY = SpendingSummary.DAY_MS;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private JdbcSqlDatabase db;
+    private long now;
+
+    @Before
+    public void setUp() throws Exception {
+        db = JdbcSqlDatabase.open(folder.newFile("maintenance.db").getPath());
+        Schema.create(db);
+        now = SpendingSummary.startOfDay(System.currentTimeMillis()) + DAY / 2;
+
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 0; i < 4000; i++) {
+            expenses.add(new Expense("Item number " + i, i % 40 + 0.5, "d", now - i * (DAY / 40)));
+        }
+        new SqlStorageRepository(db).saveExpenses(expenses);
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void run_doesEachDueTaskOnceAndShrinksTheFile() {
+        StorageSettings.putLong(db, ExpenseArchive.KEY_OLDER_THAN_DAYS, 30);
+        db.execute("DELETE FROM expenses WHERE id % 4 <> 0");
+
+        StorageMaintenance.Report report = StorageMaintenance.run(db, now, 60_000, () -> false);
+        assertEquals(Arrays.asList(StorageMaintenance.Task.values()), tasks(report));
+        assertTrue(report.deferred.isEmpty());
+        assertEquals(count("SELECT COUNT(*) FROM expenses_archive"), report.archived());
+        assertTrue(report.archived() > 0);
+        assertEquals(0, count("SELECT COUNT(*) FROM items WHERE id NOT IN (SELECT item_id FROM expenses)" +
+            " AND id NOT IN (SELECT item_id FROM expenses_archive)"));
+        assertEquals(1000, count("SELECT COUNT(*) FROM items"));
+        assertEquals(2, count("PRAGMA auto_vacuum"));
+        assertEquals(0, report.after.freelistPages);
+        assertTrue(report.after.bytes() < report.before.bytes());
+        for (StorageMaintenance.Task task : StorageMaintenance.Task.values()) {
+            assertEquals(now, StorageMaintenance.lastRun(db, task));
+        }
+
+        // Within the hour only the checkpoint, which has no interval, is due again
+        StorageMaintenance.Report again = StorageMaintenance.run(db, now + DAY / 24, 60_000, () -> false);
+        assertEquals(Arrays.asList(StorageMaintenance.Task.CHECKPOINT), tasks(again));
+
+        // Converted once; from then on freed pages go back a step at a time
+        db.execute("DELETE FROM expenses WHERE id % 8 <> 0");
+        db.execute("DELETE FROM change_log");
+        StorageMaintenance.Report nextDay = StorageMaintenance.run(db, now + DAY, 60_000, () -> false);
+        assertTrue(nextDay.before.freelistPages > StorageMaintenance.VACUUM_STEP_PAGES / 4);
+        assertEquals(0, nextDay.after.freelistPages);
+        assertTrue(nextDay.after.pageCount < nextDay.before.pageCount);
+    }
+
+    @Test
+    public void run_defersEverythingWhileCallsAreWaiting() {
+        StorageMaintenance.Report report = StorageMaintenance.run(db, now, 60_000, () -> true);
+
+        assertTrue(report.ran.isEmpty());
+        assertEquals(Arrays.asList(StorageMaintenance.Task.values()), report.deferred);
+        assertEquals(0, StorageMaintenance.lastRun(db, StorageMaintenance.Task.ANALYZE));
+        assertEquals(0, count("SELECT COUNT(*) FROM sqlite_master WHERE name = 'sqlite_stat1'"));
+    }
+
+    @Test
+    public void run_skipsTasksThatTookLongerThanTheBudgetLastTime() {
+        StorageSettings.putLong(db, "maintenance.analyze.millis", 5_000);
+        // The vacuum stops itself at the deadline, so a slow conversion last time doesn't hold it back
+        StorageSettings.putLong(db, "maintenance.vacuum.millis", 5_000);
+
+        StorageMaintenance.Report report = StorageMaintenance.run(db, now, 1_000, () -> false);
+        assertEquals(Arrays.asList(StorageMaintenance.Task.ANALYZE), report.deferred);
+        assertTrue(tasks(report).contains(StorageMaintenance.Task.VACUUM));
+        assertTrue(StorageMaintenance.due(db, StorageMaintenance.Task.ANALYZE, now));
+        assertFalse(StorageMaintenance.due(db, StorageMaintenance.Task.OPTIMIZE, now));
+    }
+
+    private static List<StorageMaintenance.Task> tasks(StorageMaintenance.Report report) {
+        List<StorageMaintenance.Task> tasks = new ArrayList<>();
+        for (StorageMaintenance.TaskRun run : report.ran) {
+            tasks.add(run.task);
+        }
+        return tasks;
+    }
+
+    private long count(String sql) {
+        return db.query(sql, null, rows -> rows.next() ? rows.getLong(0) : 0);
+    }
+}
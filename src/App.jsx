@@ -15,6 +15,7 @@ export default function App() {
   /* ================= EXPENSE STATE ================= */
 
   const [expenses, setExpenses] = useState([]);
+  const [summaryTotals, setSummaryTotals] = useState(null);
   const [searchResults, setSearchResults] = useState(null);
   const [searchQuery, setSearchQuery] = useState('');
   const [timeFilter, setTimeFilter] = useState('all');
@@ -44,8 +45,15 @@ export default function App() {
 
   const loadExpenses = async (search = searchQuery, filter = timeFilter) => {
     try {
-      const result = await storage.getExpenses(search, filter);
+      const [result, totals] = await Promise.all([
+        storage.getExpenses(search, filter),
+        storage.getSummary()
+      ]);
+      // A newer search already replaced this one
+      if (result.superseded) return;
+
       setExpenses(result.expenses || []);
+      setSummaryTotals(totals);
       
       if (search) {
         setSearchResults({
@@ -71,6 +79,14 @@ export default function App() {
       try {
         console.log('🚀 Starting app initialization...');
         setIsLoading(true);
+
+        // Paint the saved first screen straight away; the loads below replace it
+        const snapshot = await storage.getDashboardSnapshot();
+        if (snapshot) {
+          setExpenses(snapshot.expenses);
+          setSummaryTotals(snapshot.totals);
+          setIsLoading(false);
+        }
         
         // Request permissions first
         const userWantsPermissions = await permissions.showPermissionDialog();
@@ -190,8 +206,20 @@ export default function App() {
     loadExpenses(searchQuery, filter);
   };
 
-  const handleExpenseAdded = () => {
-    // Reload expenses after adding new one
+  const handleExpenseAdded = async () => {
+    // The unfiltered list only needs the new rows; searches and time filters reload
+    if (!searchQuery && timeFilter === 'all') {
+      const [changes, totals] = await Promise.all([
+        storage.syncChanges('expenses'),
+        storage.getSummary()
+      ]);
+      if (changes) {
+        setExpenses(prev => storage.applyChanges(prev, changes,
+          (a, b) => (b.timestamp - a.timestamp) || (b.id - a.id)));
+        setSummaryTotals(totals);
+        return;
+      }
+    }
     loadExpenses(searchQuery, timeFilter);
   };
 
@@ -250,6 +278,7 @@ export default function App() {
             <div className={`below-form ${dropdownOpen ? "lowered" : ""}`}>
               <Summary
                 expenses={expenses}
+                totals={summaryTotals}
                 onSelect={handleSelect}
                 active={activeSection}
                 searchResults={searchResults}
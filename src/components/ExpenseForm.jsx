@@ -10,6 +10,17 @@ export default function ExpenseForm({ onExpenseAdded, dropdownOpen, setDropdownO
   const [custom, setCustom] = useState("");
   const [amount, setAmount] = useState("");
   const [isSubmitting, setIsSubmitting] = useState(false);
+  const [suggestions, setSuggestions] = useState([]);
+
+  // Names the user has typed before, most used first
+  useEffect(() => {
+    if (type !== "Other") return;
+    let current = true;
+    storage.suggestItems(custom).then(items => {
+      if (current) setSuggestions(items.filter(item => item !== custom));
+    });
+    return () => { current = false; };
+  }, [type, custom]);
 
   // Close dropdown when clicking outside
   useEffect(() => {
@@ -126,12 +137,21 @@ export default function ExpenseForm({ onExpenseAdded, dropdownOpen, setDropdownO
       </div>
 
       {type === "Other" && (
-        <input
-          placeholder="Expense name"
-          value={custom}
-          onChange={e => setCustom(e.target.value)}
-          disabled={isSubmitting}
-        />
+        <>
+          <input
+            placeholder="Expense name"
+            value={custom}
+            onChange={e => setCustom(e.target.value)}
+            disabled={isSubmitting}
+            list="expense-name-suggestions"
+            autoComplete="off"
+          />
+          <datalist id="expense-name-suggestions">
+            {suggestions.map(item => (
+              <option key={item} value={item} />
+            ))}
+          </datalist>
+        </>
       )}
 
       <input
@@ -6,6 +6,7 @@ export default function StorageDebug() {
   const [storageInfo, setStorageInfo] = useState(null);
   const [permissions, setPermissions] = useState(null);
   const [dataStats, setDataStats] = useState(null);
+  const [metrics, setMetrics] = useState(null);
 
   useEffect(() => {
     const getInfo = async () => {
@@ -32,8 +33,13 @@ export default function StorageDebug() {
     };
 
     getInfo();
+    loadMetrics();
   }, []);
 
+  const loadMetrics = async (reset = false) => {
+    setMetrics(await storage.getMetrics(reset));
+  };
+
   const handleExportData = async () => {
     try {
       const data = await storage.exportData();
@@ -99,6 +105,44 @@ export default function StorageDebug() {
           <p><strong>Data:</strong> {dataStats.expenseCount} expenses, {dataStats.todoCount} todos</p>
         </div>
       )}
+      {metrics && (
+        <div style={{ marginTop: '8px', overflowX: 'auto' }}>
+          <p><strong>Storage calls:</strong> {metrics.pendingReads} reads, {metrics.pendingWrites} writes queued</p>
+          <table style={{ width: '100%', fontSize: '11px', textAlign: 'right' }}>
+            <thead>
+              <tr>
+                <th style={{ textAlign: 'left' }}>Method</th>
+                <th>Calls</th>
+                <th>p50</th>
+                <th>p95</th>
+                <th>p99</th>
+                <th>Rows</th>
+                <th>KB</th>
+                <th>Err</th>
+              </tr>
+            </thead>
+            <tbody>
+              {Object.entries(metrics.methods || {}).map(([name, m]) => (
+                <tr key={name}>
+                  <td style={{ textAlign: 'left' }}>{name}</td>
+                  <td>{m.calls}</td>
+                  <td>{m.p50Ms.toFixed(1)}</td>
+                  <td>{m.p95Ms.toFixed(1)}</td>
+                  <td>{m.p99Ms.toFixed(1)}</td>
+                  <td>{m.rowsReturned}/{m.rowsScanned}</td>
+                  <td>{(m.bytes / 1024).toFixed(1)}</td>
+                  <td>{m.errors}</td>
+                </tr>
+              ))}
+            </tbody>
+          </table>
+          {metrics.cache && (
+            <p><strong>Cache:</strong> {metrics.cache.hits} hits, {metrics.cache.misses} misses</p>
+          )}
+          <button className="export-btn" onClick={() => loadMetrics()}>🔄 Refresh</button>
+          <button className="export-btn" onClick={() => loadMetrics(true)}>♻️ Reset</button>
+        </div>
+      )}
       <div style={{ display: 'flex', gap: '8px', marginTop: '8px', flexWrap: 'wrap' }}>
         <button 
           onClick={handleExportData}
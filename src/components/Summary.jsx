@@ -1,4 +1,4 @@
-export default function Summary({ expenses, onSelect, active, searchResults }) {
+export default function Summary({ expenses, totals, onSelect, active, searchResults }) {
   const now = new Date();
 
   // Use search results if available, otherwise use all expenses
@@ -15,6 +15,11 @@ export default function Summary({ expenses, onSelect, active, searchResults }) {
       return searchResults.total;
     }
     
+    // Native storage keeps these up to date, so no need to walk the list
+    if (totals) {
+      return totals[period] || 0;
+    }
+
     // Normal period-based totals
     switch (period) {
       case "today":
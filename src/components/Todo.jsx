@@ -2,9 +2,13 @@ import { useState, useEffect } from "react";
 import { storage } from "../utils/storage";
 import { toast } from "../utils/toast";
 
+// Completed tasks stay on screen this long
+const DONE_VISIBLE_MS = 21 * 24 * 60 * 60 * 1000;
+
 export default function Todo() {
-  const [todos, setTodos] = useState([]);
-  const [isLoading, setIsLoading] = useState(true);
+  // Until the first load, show the pending todos saved with the dashboard snapshot
+  const [todos, setTodos] = useState(() => storage.snapshot?.todos || []);
+  const [isLoading, setIsLoading] = useState(() => !storage.snapshot?.todos);
 
   const [title, setTitle] = useState("");
   const [date, setDate] = useState("");
@@ -22,7 +26,7 @@ export default function Todo() {
     const loadTodos = async () => {
       try {
         console.log('📂 Loading todos...');
-        const loadedTodos = await storage.getTodos();
+        const loadedTodos = await storage.getTodoScreen(DONE_VISIBLE_MS);
         console.log('📂 Loaded todos:', loadedTodos?.length || 0);
         setTodos(Array.isArray(loadedTodos) ? loadedTodos : []);
       } catch (error) {
@@ -37,18 +41,18 @@ export default function Todo() {
     loadTodos();
   }, []);
 
-  /* ================= AUTO REMOVE DONE (21 DAYS) ================= */
-
-  useEffect(() => {
-    const now = Date.now();
-    const limit = 21 * 24 * 60 * 60 * 1000;
+  /* ================= SYNC CHANGES ================= */
 
-    setTodos(prev =>
-      prev.filter(t =>
-        !t.done || (now - t.doneAt) < limit
-      )
-    );
-  }, []);
+  // Applies only the rows changed since the last load; falls back to a full reload
+  const refreshTodos = async () => {
+    const changes = await storage.syncChanges('todos');
+    if (changes) {
+      setTodos(prev => storage.applyChanges(prev, changes, (a, b) => a.when - b.when));
+      return;
+    }
+    const updatedTodos = await storage.getTodoScreen(DONE_VISIBLE_MS);
+    setTodos(Array.isArray(updatedTodos) ? updatedTodos : []);
+  };
 
   /* ================= ADD TODO WITH BETTER ERROR HANDLING ================= */
 
@@ -90,9 +94,8 @@ export default function Todo() {
       if (result && result.success) {
         toast.success('Task scheduled successfully');
         
-        // Reload todos from database to get the updated list with IDs
-        const updatedTodos = await storage.getTodos();
-        setTodos(Array.isArray(updatedTodos) ? updatedTodos : []);
+        // Pull the new todo (with its ID) from the database
+        await refreshTodos();
         
         // Clear form
         setTitle("");
@@ -154,9 +157,8 @@ export default function Todo() {
       
       if (result && result.success) {
         toast.success('Task completed');
-        // Reload todos from database
-        const updatedTodos = await storage.getTodos();
-        setTodos(Array.isArray(updatedTodos) ? updatedTodos : []);
+        // Pull the changed todo from the database
+        await refreshTodos();
       } else {
         throw new Error('Failed to update task in database');
       }
@@ -193,9 +195,8 @@ export default function Todo() {
 
       if (result && result.success) {
         toast.success('Task rescheduled successfully');
-        // Reload todos from database
-        const updatedTodos = await storage.getTodos();
-        setTodos(Array.isArray(updatedTodos) ? updatedTodos : []);
+        // Pull the changed todo from the database
+        await refreshTodos();
         setRescheduleTodo(null);
       } else {
         throw new Error('Failed to update task in database');
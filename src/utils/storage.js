@@ -5,6 +5,11 @@ class StorageManager {
     this.isInitialized = false;
     this.useNativeStorage = false;
     this.plugin = null;
+    // Change-log version each table was last loaded or synced at (native only)
+    this.versions = {};
+    this.pendingSync = {};
+    // Set by getDashboardSnapshot so screens mounted later can paint it too
+    this.snapshot = null;
   }
 
   async init() {
@@ -75,20 +80,106 @@ class StorageManager {
     }
   }
 
-  async getExpenses(searchQuery = '', timeFilter = 'all') {
+  // Saves many expenses in one native transaction; failures are reported per row
+  async saveExpensesBatch(expenses) {
+    try {
+      await this.init();
+
+      if (this.useNativeStorage && this.plugin) {
+        const result = await this.plugin.saveExpensesBatch({ expenses });
+        console.log(`💾 ${result.inserted} expenses saved to SQLite`);
+        return result;
+      } else {
+        // Web fallback
+        const stored = this.getLocalStorageExpenses();
+        const added = expenses.map((expense, index) => ({
+          id: Date.now() + index,
+          ...expense,
+          timestamp: expense.timestamp || Date.now()
+        }));
+        localStorage.setItem('campuswal_expenses', JSON.stringify([...added.reverse(), ...stored]));
+        console.log('💾 Expenses saved to localStorage');
+        return { success: true, inserted: added.length, failed: 0, failures: [] };
+      }
+    } catch (error) {
+      console.error('❌ Failed to save expenses:', error);
+      throw error;
+    }
+  }
+
+  // Native-only: streams an expenses.json (or exported backup) straight into SQLite
+  async importExpensesFile(path) {
+    await this.init();
+
+    if (!this.useNativeStorage || !this.plugin) {
+      throw new Error('File import requires native storage');
+    }
+    const result = await this.plugin.importExpenses({ path });
+    console.log(`📥 ${result.inserted} expenses imported`);
+    return result;
+  }
+
+  // Native-only: streams tables to a CSV or NDJSON file (format follows the extension unless given)
+  async exportData(path, { format, tables, onProgress } = {}) {
+    await this.init();
+
+    if (!this.useNativeStorage || !this.plugin) {
+      throw new Error('File export requires native storage');
+    }
+    return this.withTransferProgress(onProgress, () =>
+      this.plugin.exportData({ path, format, tables }));
+  }
+
+  // Native-only: streams a CSV or NDJSON file back in, committing every few thousand rows
+  async importData(path, { format, table, onProgress } = {}) {
+    await this.init();
+
+    if (!this.useNativeStorage || !this.plugin) {
+      throw new Error('File import requires native storage');
+    }
+    const result = await this.withTransferProgress(onProgress, () =>
+      this.plugin.importData({ path, format, table }));
+    console.log(`📥 ${result.expenses} expenses and ${result.todos} todos imported`);
+    return result;
+  }
+
+  // onProgress gets { operation, table, rows, total } (plus bytes/totalBytes on import)
+  async withTransferProgress(onProgress, run) {
+    const listener = onProgress
+      ? await this.plugin.addListener('transferProgress', onProgress)
+      : null;
+    try {
+      return await run();
+    } finally {
+      if (listener) await listener.remove();
+    }
+  }
+
+  // Pass { limit, cursor } to fetch one page; feed back nextCursor for the next one
+  async getExpenses(searchQuery = '', timeFilter = 'all', page = {}) {
     try {
       await this.init();
       
       if (this.useNativeStorage && this.plugin) {
+        // A newer load with the same cancelKey cancels this one natively
         const result = await this.plugin.getExpenses({
           search: searchQuery,
-          timeFilter: timeFilter
+          timeFilter: timeFilter,
+          cancelKey: 'expenses',
+          format: 'json',
+          ...page
         });
         console.log('📂 Expenses loaded from SQLite');
+        // Only a full, unfiltered list is a baseline that changes can be applied to
+        if (!searchQuery && timeFilter === 'all' && !page.limit) {
+          this.versions.expenses = result.version;
+        }
         return {
-          expenses: result.expenses || [],
+          expenses: this.parseRows(result, 'expenses'),
           total: result.total || 0,
-          count: result.count || 0
+          count: result.count || 0,
+          hasMore: result.hasMore || false,
+          nextCursor: result.nextCursor || null
         };
       } else {
         // Web fallback
@@ -119,11 +210,218 @@ class StorageManager {
         };
       }
     } catch (error) {
+      if (error && error.code === 'SUPERSEDED') {
+        return { expenses: [], total: 0, count: 0, superseded: true };
+      }
       console.error('❌ Failed to load expenses:', error);
       return { expenses: [], total: 0, count: 0 };
     }
   }
 
+  // Period totals for the Summary cards; null means compute them from the loaded list
+  async getSummary() {
+    try {
+      await this.init();
+
+      if (this.useNativeStorage && this.plugin) {
+        const result = await this.plugin.getSummary();
+        console.log('📊 Summary loaded from SQLite');
+        return {
+          today: result.today || 0,
+          week: result.week || 0,
+          month: result.month || 0,
+          year: result.year || 0
+        };
+      }
+      return null;
+    } catch (error) {
+      console.error('❌ Failed to load summary:', error);
+      return null;
+    }
+  }
+
+  // Last saved first screen ({ expenses, todos, totals, savedAt }), read without opening the database;
+  // null on web or before the first save. totals is null once the saved day has passed.
+  async getDashboardSnapshot() {
+    try {
+      await this.init();
+
+      if (this.useNativeStorage && this.plugin) {
+        const result = await this.plugin.getDashboardSnapshot();
+        if (!result.found) return null;
+        const { expenses, todos, totals, savedAt } = result.snapshot;
+        this.snapshot = { expenses: expenses || [], todos: todos || [], totals: totals || null, savedAt };
+        return this.snapshot;
+      }
+      return null;
+    } catch (error) {
+      console.error('❌ Failed to read dashboard snapshot:', error);
+      return null;
+    }
+  }
+
+  // Spending per local day/week/month/year in [from, to); each bucket has start, end, sum, count, min, max
+  async getExpenseHistogram(from, to, granularity = 'day') {
+    try {
+      await this.init();
+
+      if (this.useNativeStorage && this.plugin) {
+        const result = await this.plugin.getExpenseHistogram({ from, to, granularity });
+        return result.buckets || [];
+      }
+      return null;
+    } catch (error) {
+      console.error('❌ Failed to load expense histogram:', error);
+      return null;
+    }
+  }
+
+  // Moves expenses older than olderThanDays into the archive and keeps that age as the policy
+  // (omit it to re-apply the stored one, 0 turns archiving off); null on web
+  async archiveExpenses(olderThanDays) {
+    try {
+      await this.init();
+
+      if (this.useNativeStorage && this.plugin) {
+        return await this.plugin.archiveExpenses(olderThanDays === undefined ? {} : { olderThanDays });
+      }
+      return null;
+    } catch (error) {
+      console.error('❌ Failed to archive expenses:', error);
+      return null;
+    }
+  }
+
+  // Runs whatever housekeeping is due (archiving, statistics, vacuum, WAL checkpoint); null on web
+  async runMaintenance(budgetMs = 1000) {
+    try {
+      await this.init();
+
+      if (this.useNativeStorage && this.plugin) {
+        return await this.plugin.runMaintenance({ budgetMs });
+      }
+      return null;
+    } catch (error) {
+      console.error('❌ Failed to run maintenance:', error);
+      return null;
+    }
+  }
+
+  // Database file size, free pages and when each maintenance task last ran; null on web
+  async getMaintenanceStats() {
+    try {
+      await this.init();
+
+      if (this.useNativeStorage && this.plugin) {
+        return await this.plugin.getMaintenanceStats();
+      }
+      return null;
+    } catch (error) {
+      console.error('❌ Failed to load maintenance stats:', error);
+      return null;
+    }
+  }
+
+  // Item names starting with prefix, most used first; answered from a native in-memory index
+  async suggestItems(prefix, limit = 8) {
+    try {
+      await this.init();
+
+      if (this.useNativeStorage && this.plugin) {
+        const result = await this.plugin.suggestItems({ prefix, limit });
+        return result.items || [];
+      }
+      // Web fallback
+      const key = prefix.trim().toLowerCase();
+      const counts = new Map();
+      this.getLocalStorageExpenses().forEach(({ item }) => {
+        if (item && item.toLowerCase().startsWith(key)) {
+          counts.set(item, (counts.get(item) || 0) + 1);
+        }
+      });
+      return [...counts.entries()]
+        .sort((a, b) => b[1] - a[1] || a[0].localeCompare(b[0]))
+        .slice(0, limit)
+        .map(([item]) => item);
+    } catch (error) {
+      console.error('❌ Failed to load suggestions:', error);
+      return [];
+    }
+  }
+
+  // Items with the most spend over range (a getExpenses timeFilter), largest first, as
+  // { item, total, count }; spellings differing only in case or spacing count as one item
+  async getTopItems(range = 'month', limit = 10) {
+    try {
+      await this.init();
+
+      if (this.useNativeStorage && this.plugin) {
+        const result = await this.plugin.getTopItems({ range, limit });
+        return result.items || [];
+      }
+      // Web fallback
+      const timeLimit = this.getTimeLimit(range);
+      const totals = new Map();
+      this.getLocalStorageExpenses().forEach(({ item, amount, timestamp }) => {
+        if (!item || timestamp < timeLimit) {
+          return;
+        }
+        const key = item.trim().replace(/\s+/g, ' ').toLowerCase();
+        const entry = totals.get(key) || { item, total: 0, count: 0 };
+        entry.total += Number(amount) || 0;
+        entry.count += 1;
+        totals.set(key, entry);
+      });
+      return [...totals.values()]
+        .sort((a, b) => b.total - a.total || a.item.localeCompare(b.item))
+        .slice(0, limit);
+    } catch (error) {
+      console.error('❌ Failed to load top items:', error);
+      return [];
+    }
+  }
+
+  // Coalesces saveExpense/saveTodo calls arriving within windowMs (or maxWrites of them) into one
+  // commit; each save still resolves with its own id once that commit lands. windowMs 0 turns it off.
+  async setGroupCommit(windowMs, maxWrites) {
+    try {
+      await this.init();
+
+      if (this.useNativeStorage && this.plugin) {
+        return await this.plugin.setGroupCommit({ windowMs, maxWrites });
+      }
+      return null;
+    } catch (error) {
+      console.error('❌ Failed to set group commit:', error);
+      return null;
+    }
+  }
+
+  // Per-method latency percentiles, row counts, payload sizes and errors; null on web
+  async getMetrics(reset = false) {
+    try {
+      await this.init();
+
+      if (this.useNativeStorage && this.plugin) {
+        return await this.plugin.getMetrics({ reset });
+      }
+      return null;
+    } catch (error) {
+      console.error('❌ Failed to load metrics:', error);
+      return null;
+    }
+  }
+
+  // Hit/miss counters for the native getExpenses cache; null on web
+  async getCacheStats() {
+    await this.init();
+
+    if (this.useNativeStorage && this.plugin) {
+      return this.plugin.getCacheStats();
+    }
+    return null;
+  }
+
   async saveTodo(todo) {
     try {
       await this.init();
@@ -160,17 +458,22 @@ class StorageManager {
     }
   }
 
-  async getTodos() {
+  // view: 'all' | 'pending' | 'overdue' | 'due' | 'completed', bounded by from/to/limit as the
+  // native TodoQueries views are; only the 'all' and 'pending' loads set the sync baseline
+  async getTodos({ view = 'all', from, to, limit } = {}) {
     try {
       await this.init();
       
       if (this.useNativeStorage && this.plugin) {
-        const result = await this.plugin.getTodos();
-        console.log('📂 Todos loaded from SQLite');
-        return result.todos || [];
+        const result = await this.plugin.getTodos({ format: 'json', view, from, to, limit });
+        console.log(`📂 Todos (${view}) loaded from SQLite`);
+        if (view === 'all' || view === 'pending') {
+          this.versions.todos = result.version;
+        }
+        return this.parseRows(result, 'todos');
       } else {
         // Web fallback
-        const todos = this.getLocalStorageTodos();
+        const todos = this.filterTodoView(this.getLocalStorageTodos(), { view, from, to, limit });
         console.log('📂 Todos loaded from localStorage');
         return todos;
       }
@@ -180,6 +483,38 @@ class StorageManager {
     }
   }
 
+  // The Todo screen: every pending todo plus those completed within the last doneWithinMs.
+  // Pending loads first so the sync baseline predates both reads.
+  async getTodoScreen(doneWithinMs) {
+    const pending = await this.getTodos({ view: 'pending' });
+    const completed = await this.getTodos({ view: 'completed', from: Date.now() - doneWithinMs, limit: 500 });
+    // Live rows from here on; the snapshot's copy would only be staler
+    if (this.snapshot) this.snapshot.todos = null;
+    return [...pending, ...completed];
+  }
+
+  filterTodoView(todos, { view, from, to, limit }) {
+    const now = Date.now();
+    let rows;
+    switch (view) {
+      case 'pending':
+        rows = todos.filter(t => !t.done).sort((a, b) => a.when - b.when);
+        break;
+      case 'overdue':
+        rows = todos.filter(t => !t.done && t.when < (to ?? now)).sort((a, b) => a.when - b.when);
+        break;
+      case 'due':
+        rows = todos.filter(t => !t.done && t.when >= (from ?? now) && t.when < to).sort((a, b) => a.when - b.when);
+        break;
+      case 'completed':
+        rows = todos.filter(t => t.done && (t.doneAt || 0) >= (from || 0)).sort((a, b) => b.doneAt - a.doneAt);
+        return rows.slice(0, limit || 50);
+      default:
+        rows = todos;
+    }
+    return limit ? rows.slice(0, limit) : rows;
+  }
+
   async updateTodo(id, updates) {
     try {
       await this.init();
@@ -209,6 +544,117 @@ class StorageManager {
     }
   }
 
+  // Applies [{ id, done?, doneAt?, when? }, ...] in one native call and one transaction;
+  // resolves to { updated, failed, failures } with failures indexed like changes
+  async updateTodos(changes) {
+    try {
+      await this.init();
+
+      if (this.useNativeStorage && this.plugin) {
+        const result = await this.plugin.updateTodos({ todos: changes });
+        console.log(`✅ ${result.updated} todos updated in SQLite`);
+        return result;
+      } else {
+        // Web fallback
+        const todos = this.getLocalStorageTodos();
+        const byId = new Map(todos.map((todo, index) => [todo.id, index]));
+        const failures = [];
+        changes.forEach(({ id, ...updates }, index) => {
+          if (byId.has(id)) {
+            todos[byId.get(id)] = { ...todos[byId.get(id)], ...updates };
+          } else {
+            failures.push({ index, error: 'Todo not found' });
+          }
+        });
+        localStorage.setItem('campuswal_todos', JSON.stringify(todos));
+        return { success: true, updated: changes.length - failures.length, deleted: 0, failed: failures.length, failures };
+      }
+    } catch (error) {
+      console.error('❌ Failed to update todos:', error);
+      throw error;
+    }
+  }
+
+  async deleteTodos(ids) {
+    try {
+      await this.init();
+
+      if (this.useNativeStorage && this.plugin) {
+        const result = await this.plugin.deleteTodos({ ids });
+        console.log(`🗑️ ${result.deleted} todos deleted from SQLite`);
+        return result;
+      } else {
+        // Web fallback
+        const remove = new Set(ids);
+        const todos = this.getLocalStorageTodos();
+        const kept = todos.filter(todo => !remove.has(todo.id));
+        localStorage.setItem('campuswal_todos', JSON.stringify(kept));
+        const deleted = todos.length - kept.length;
+        return { success: true, updated: 0, deleted, failed: ids.length - deleted, failures: [] };
+      }
+    } catch (error) {
+      console.error('❌ Failed to delete todos:', error);
+      throw error;
+    }
+  }
+
+  // Rows of 'expenses' or 'todos' changed since the last load or sync, as
+  // { upserted, deleted }; null means there is no baseline and the caller should reload.
+  // Syncs for one table run one after another so their results apply in order.
+  syncChanges(table) {
+    const run = () => this.fetchChanges(table);
+    const next = (this.pendingSync[table] || Promise.resolve()).then(run, run);
+    this.pendingSync[table] = next;
+    return next;
+  }
+
+  async fetchChanges(table) {
+    try {
+      await this.init();
+
+      const since = this.versions[table];
+      if (!this.useNativeStorage || !this.plugin || since == null) return null;
+
+      const upserted = [];
+      const deleted = [];
+      let version = since;
+      let result;
+      do {
+        result = await this.plugin.getChangesSince({ table, since: version, format: 'json' });
+        if (result.reset) {
+          delete this.versions[table];
+          return null;
+        }
+        upserted.push(...this.parseRows(result, 'upserted'));
+        deleted.push(...(result.deleted || []));
+        version = result.version;
+      } while (result.hasMore);
+
+      this.versions[table] = version;
+      console.log(`🔁 ${upserted.length + deleted.length} ${table} changes synced`);
+      return { upserted, deleted };
+    } catch (error) {
+      console.error('❌ Failed to sync changes:', error);
+      delete this.versions[table];
+      return null;
+    }
+  }
+
+  // Merges synced changes into a loaded list, keeping it sorted with compare
+  applyChanges(rows, changes, compare) {
+    const replaced = new Set(changes.deleted);
+    changes.upserted.forEach(row => replaced.add(row.id));
+    return [...rows.filter(row => !replaced.has(row.id)), ...changes.upserted].sort(compare);
+  }
+
+  // Native queries can return rows as one pre-serialized JSON string (key + 'Json')
+  parseRows(result, key) {
+    if (result[key + 'Json']) {
+      return JSON.parse(result[key + 'Json']);
+    }
+    return result[key] || [];
+  }
+
   // Helper methods for localStorage fallback
   getLocalStorageExpenses() {
     try {